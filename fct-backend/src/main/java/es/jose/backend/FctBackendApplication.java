@@ -1,15 +1,51 @@
 package es.jose.backend;
 
+import es.jose.backend.config.AppointmentReminderProperties;
+import es.jose.backend.config.AppointmentScheduleProperties;
+import es.jose.backend.config.CalendarFeedProperties;
+import es.jose.backend.config.CartExpiryProperties;
+import es.jose.backend.config.CartWriteBehindProperties;
+import es.jose.backend.config.IdempotencyProperties;
+import es.jose.backend.config.InvoiceExportProperties;
+import es.jose.backend.config.InvoicePdfCacheProperties;
+import es.jose.backend.config.InvoicePdfPrerenderProperties;
+import es.jose.backend.config.InvoicePdfRendererProperties;
+import es.jose.backend.config.JwtCacheProperties;
+import es.jose.backend.config.OptimisticRetryProperties;
+import es.jose.backend.config.PasswordHashingProperties;
+import es.jose.backend.config.PrincipalCacheProperties;
+import es.jose.backend.config.RefreshTokenProperties;
+import es.jose.backend.config.RevenueRollupProperties;
 import es.jose.backend.config.RsaKeyConfigProperties;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@EnableScheduling
 @EnableJpaAuditing
 @SpringBootApplication
-@EnableConfigurationProperties(RsaKeyConfigProperties.class)
+@EnableConfigurationProperties({
+    RsaKeyConfigProperties.class,
+    AppointmentScheduleProperties.class,
+    AppointmentReminderProperties.class,
+    CartExpiryProperties.class,
+    CartWriteBehindProperties.class,
+    CalendarFeedProperties.class,
+    IdempotencyProperties.class,
+    InvoiceExportProperties.class,
+    InvoicePdfCacheProperties.class,
+    InvoicePdfPrerenderProperties.class,
+    InvoicePdfRendererProperties.class,
+    JwtCacheProperties.class,
+    OptimisticRetryProperties.class,
+    PasswordHashingProperties.class,
+    PrincipalCacheProperties.class,
+    RefreshTokenProperties.class,
+    RevenueRollupProperties.class
+})
 public class FctBackendApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,30 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the appointment reminder emails sent the day before each appointment.
+ *
+ * @param enabled whether reminders are scheduled at all.
+ * @param cron when to look for appointments that still need a reminder.
+ * @param from sender address of the reminders.
+ * @param pageSize number of appointments read from the database at a time.
+ * @param batchSize maximum number of messages sent over a single SMTP connection.
+ * @param queueCapacity number of rendered reminders that may wait to be sent before rendering
+ *     pauses.
+ * @param maxAttempts number of times a batch is tried before its failed messages are left for the
+ *     next run.
+ * @param initialBackoff wait before the first retry, doubled on every further retry.
+ */
+@ConfigurationProperties(prefix = "app.reminders")
+public record AppointmentReminderProperties(
+        boolean enabled,
+        String cron,
+        String from,
+        int pageSize,
+        int batchSize,
+        int queueCapacity,
+        int maxAttempts,
+        Duration initialBackoff) {}
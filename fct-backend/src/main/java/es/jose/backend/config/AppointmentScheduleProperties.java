@@ -0,0 +1,16 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.LocalTime;
+
+/**
+ * Working hours used by the appointment scheduler.
+ *
+ * @param openingTime first minute of the day an appointment may start.
+ * @param closingTime minute of the day by which every appointment must have finished.
+ * @param slotStepMinutes granularity of the start times offered as available slots.
+ */
+@ConfigurationProperties(prefix = "app.appointments")
+public record AppointmentScheduleProperties(
+        LocalTime openingTime, LocalTime closingTime, int slotStepMinutes) {}
@@ -0,0 +1,15 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.ZoneId;
+
+/**
+ * Settings of the iCalendar feeds.
+ *
+ * @param timeZone time zone the appointment times are given in.
+ * @param pastDays number of past days covered by a feed.
+ * @param futureDays number of days ahead covered by a feed.
+ */
+@ConfigurationProperties(prefix = "app.calendar")
+public record CalendarFeedProperties(ZoneId timeZone, int pastDays, int futureDays) {}
@@ -0,0 +1,26 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the expiry of carts nobody has touched for a long time.
+ *
+ * @param enabled whether idle carts are periodically deleted.
+ * @param cron when to delete them.
+ * @param ttl how long a cart stays after it was last changed.
+ * @param batchSize number of carts deleted at a time.
+ * @param batchPause how long to wait between batches, so that other writes to the carts are not
+ *     held up for long.
+ * @param maxDuration how long a run may take before it leaves the remaining carts to the next
+ *     run. Only one instance of the application runs it at a time.
+ */
+@ConfigurationProperties(prefix = "app.carts.expiry")
+public record CartExpiryProperties(
+        boolean enabled,
+        String cron,
+        Duration ttl,
+        int batchSize,
+        Duration batchPause,
+        Duration maxDuration) {}
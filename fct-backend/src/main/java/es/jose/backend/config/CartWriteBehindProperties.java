@@ -0,0 +1,21 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the write-behind cart store, which keeps the carts in use in memory and writes
+ * their changes to the database in batches.
+ *
+ * @param enabled whether carts are kept in memory at all. Only for a single instance of the
+ *     application: another instance would not see the changes it has not written yet.
+ * @param flushInterval how long changes to carts wait in memory before they are written.
+ * @param stripes number of locks the carts are spread over; users whose carts share a lock wait
+ *     for each other.
+ * @param idleTtl how long a cart with no changes left to write stays in memory after it was last
+ *     used.
+ */
+@ConfigurationProperties(prefix = "app.carts.write-behind")
+public record CartWriteBehindProperties(
+        boolean enabled, Duration flushInterval, int stripes, Duration idleTtl) {}
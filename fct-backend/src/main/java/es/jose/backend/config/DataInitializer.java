@@ -16,12 +16,14 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.openapitools.model.AddAppointmentCategoryRequest;
 import org.openapitools.model.AddAppointmentRequest;
+import org.openapitools.model.AddAppointmentSeriesRequest;
 import org.openapitools.model.AddCourseCategoryRequest;
 import org.openapitools.model.AddCourseRequest;
 import org.openapitools.model.AddInvoiceRequest;
 import org.openapitools.model.AddProductCategoryRequest;
 import org.openapitools.model.AddProductRequest;
 import org.openapitools.model.AddUserRequest;
+import org.openapitools.model.AppointmentRecurrenceEnum;
 import org.openapitools.model.RoleEnum;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.ApplicationContext;
@@ -29,8 +31,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.AbstractMap;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 import java.util.stream.IntStream;
 
@@ -138,6 +142,7 @@ public class DataInitializer implements CommandLineRunner {
         List.of(
                         AddAppointmentRequest.builder()
                                 .date(LocalDate.now().plusDays(5))
+                                .startTime(Optional.of(LocalTime.of(10, 0)))
                                 .duration(30)
                                 .description("Maquillaje sencillo para la fiesta de una amiga")
                                 .userId(getRandomElement(users).id())
@@ -145,6 +150,7 @@ public class DataInitializer implements CommandLineRunner {
                                 .build(),
                         AddAppointmentRequest.builder()
                                 .date(LocalDate.now().plusDays(7))
+                                .startTime(Optional.of(LocalTime.of(17, 30)))
                                 .duration(60)
                                 .description("Cita de maquillaje de novia")
                                 .userId(getRandomElement(users).id())
@@ -154,6 +160,18 @@ public class DataInitializer implements CommandLineRunner {
                 .map(appointmentService::createAppointment)
                 .toList();
 
+        appointmentService.createAppointmentSeries(
+                AddAppointmentSeriesRequest.builder()
+                        .startDate(LocalDate.now().plusDays(1))
+                        .startTime(LocalTime.of(12, 0))
+                        .duration(60)
+                        .recurrence(AppointmentRecurrenceEnum.WEEKLY)
+                        .count(Optional.of(6))
+                        .description("Maquillaje semanal para sesiones de fotos")
+                        .userId(getRandomElement(users).id())
+                        .categoryId(getRandomElement(appointmentCategories).id())
+                        .build());
+
         invoiceService.createInvoice(
                 AddInvoiceRequest.builder()
                         .userId(users.getFirst().id())
@@ -0,0 +1,18 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the idempotency keys that make retried creation requests safe.
+ *
+ * @param ttl how long a key is remembered after its request completes.
+ * @param hotTtl how long a response is also kept in memory, where most retries find it.
+ * @param hotMaxEntries number of responses kept in memory at most.
+ * @param purgeEnabled whether expired keys are periodically deleted.
+ * @param purgeCron when to delete expired keys.
+ */
+@ConfigurationProperties(prefix = "app.idempotency")
+public record IdempotencyProperties(
+        Duration ttl, Duration hotTtl, int hotMaxEntries, boolean purgeEnabled, String purgeCron) {}
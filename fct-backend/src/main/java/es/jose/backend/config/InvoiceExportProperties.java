@@ -0,0 +1,12 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the bulk export of invoice PDFs.
+ *
+ * @param workers number of invoices of an export rendered at the same time. It also bounds how
+ *     many rendered PDFs an export holds in memory.
+ */
+@ConfigurationProperties(prefix = "app.invoices.export")
+public record InvoiceExportProperties(int workers) {}
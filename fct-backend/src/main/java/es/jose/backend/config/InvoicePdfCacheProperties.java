@@ -0,0 +1,15 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of the on-disk cache of rendered invoice PDFs.
+ *
+ * @param directory where the rendered PDFs are kept. It survives restarts.
+ * @param maxSize total size of the cached PDFs above which the least recently used are evicted.
+ */
+@ConfigurationProperties(prefix = "app.invoices.pdf-cache")
+public record InvoicePdfCacheProperties(Path directory, DataSize maxSize) {}
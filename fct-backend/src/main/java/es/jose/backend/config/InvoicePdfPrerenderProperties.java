@@ -0,0 +1,24 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the background rendering of the PDFs of invoices that have just been paid.
+ *
+ * @param enabled whether paid invoices are rendered in the background at all.
+ * @param workers number of invoices rendered in the background at the same time.
+ * @param queueCapacity number of invoices that may wait to be rendered before new ones are left
+ *     to be rendered on download.
+ * @param enqueueTimeout how long a status change waits for room in a full queue.
+ * @param downloadWait how long a download waits for a background render of the same invoice
+ *     before rendering the PDF itself.
+ */
+@ConfigurationProperties(prefix = "app.invoices.pdf-prerender")
+public record InvoicePdfPrerenderProperties(
+        boolean enabled,
+        int workers,
+        int queueCapacity,
+        Duration enqueueTimeout,
+        Duration downloadWait) {}
@@ -0,0 +1,25 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.Resource;
+
+import java.util.List;
+
+/**
+ * Settings of the renderer of invoice PDFs.
+ *
+ * @param poolSize how many invoices can be rendered at the same time, or 0 for one per core.
+ * @param fonts fonts to embed in the PDFs, loaded once at startup.
+ */
+@ConfigurationProperties(prefix = "app.invoices.pdf-renderer")
+public record InvoicePdfRendererProperties(int poolSize, List<Font> fonts) {
+
+    /**
+     * A font to embed in the PDFs.
+     *
+     * @param location the TrueType font file.
+     * @param family the CSS font family it is registered as, e.g. {@code Arial} to replace the one
+     *     the invoice stylesheet asks for.
+     */
+    public record Font(Resource location, String family) {}
+}
@@ -0,0 +1,17 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the cache of decoded JSON Web Tokens, which spares authenticated requests from
+ * parsing their token and verifying its signature again.
+ *
+ * @param enabled whether decoded tokens are cached. Revoked tokens are rejected either way.
+ * @param maxEntries number of decoded tokens kept in memory at most.
+ * @param expiryMargin how long before its expiry a token is decoded again, so that the cache never
+ *     accepts a token the decoder would reject.
+ */
+@ConfigurationProperties(prefix = "app.jwt.cache")
+public record JwtCacheProperties(boolean enabled, int maxEntries, Duration expiryMargin) {}
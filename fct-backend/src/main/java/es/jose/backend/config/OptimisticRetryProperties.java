@@ -0,0 +1,16 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the retries of writes that lost a race with a concurrent write of the same rows.
+ *
+ * @param maxAttempts how many times a write is attempted before giving up.
+ * @param initialBackoff the longest wait before the first retry, doubled for every retry after.
+ * @param maxBackoff the longest wait before any retry.
+ */
+@ConfigurationProperties(prefix = "app.optimistic-retry")
+public record OptimisticRetryProperties(
+        int maxAttempts, Duration initialBackoff, Duration maxBackoff) {}
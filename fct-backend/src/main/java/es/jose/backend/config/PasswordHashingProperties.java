@@ -0,0 +1,20 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the executor that hashes and verifies passwords, for logins and HTTP Basic requests.
+ *
+ * @param poolSize how many passwords can be hashed at the same time, or 0 for half the cores, so
+ *     that a burst of logins cannot take every core away from the rest of the API.
+ * @param queueCapacity how many passwords can wait for a free thread; further ones are rejected
+ *     right away.
+ * @param verifiedTtl how long a verified password is remembered, so that clients sending the same
+ *     credentials on every request are not verified again each time.
+ * @param verifiedMaxEntries number of verified passwords remembered at most.
+ */
+@ConfigurationProperties(prefix = "app.password-hashing")
+public record PasswordHashingProperties(
+        int poolSize, int queueCapacity, Duration verifiedTtl, int verifiedMaxEntries) {}
@@ -0,0 +1,16 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the cache of the users behind authenticated JSON Web Tokens, which spares ownership
+ * checks from loading the user on every request.
+ *
+ * @param ttl how long a user is kept after it was loaded; changes made through the user service
+ *     evict it right away, other changes show up after at most this long.
+ * @param maxEntries number of users kept in memory at most.
+ */
+@ConfigurationProperties(prefix = "app.principal-cache")
+public record PrincipalCacheProperties(Duration ttl, int maxEntries) {}
@@ -0,0 +1,13 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the refresh tokens.
+ *
+ * @param expirationDays how long a refresh token can be used.
+ * @param purgeEnabled whether expired refresh tokens are periodically deleted.
+ * @param purgeCron when to delete expired refresh tokens.
+ */
+@ConfigurationProperties(prefix = "app.refresh-token")
+public record RefreshTokenProperties(long expirationDays, boolean purgeEnabled, String purgeCron) {}
@@ -0,0 +1,13 @@
+package es.jose.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the daily revenue rollups read by revenue reports.
+ *
+ * @param rebuildEnabled whether recent rollups are periodically rebuilt from the invoices.
+ * @param rebuildCron when to rebuild them.
+ * @param rebuildDays number of days, counting back from today, whose rollups are rebuilt.
+ */
+@ConfigurationProperties(prefix = "app.reports.revenue-rollups")
+public record RevenueRollupProperties(boolean rebuildEnabled, String rebuildCron, int rebuildDays) {}
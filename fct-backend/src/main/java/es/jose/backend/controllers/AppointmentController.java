@@ -3,14 +3,21 @@ package es.jose.backend.controllers;
 import es.jose.backend.services.AppointmentService;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
 
 import lombok.RequiredArgsConstructor;
 
 import org.openapitools.api.AppointmentsApi;
 import org.openapitools.model.AddAppointmentRequest;
+import org.openapitools.model.AddAppointmentSeriesRequest;
 import org.openapitools.model.Appointment;
+import org.openapitools.model.AppointmentSeries;
+import org.openapitools.model.AppointmentSlot;
 import org.openapitools.model.AppointmentStatusEnum;
 import org.openapitools.model.UpdateAppointmentRequest;
+import org.openapitools.model.UpdateAppointmentSeriesRequest;
 import org.openapitools.model.UpdateAppointmentStatusRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,12 +31,26 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class AppointmentController implements AppointmentsApi {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
     private final AppointmentService appointmentService;
 
     @Override
     public ResponseEntity<List<Appointment>> getAllAppointments(
-            @Valid Optional<Long> userId, @Valid Optional<AppointmentStatusEnum> status) {
-        return ResponseEntity.ok(appointmentService.getAllAppointments(userId));
+            @Valid Optional<Long> userId,
+            @Valid Optional<AppointmentStatusEnum> status,
+            @Valid Optional<LocalDate> from,
+            @Valid Optional<LocalDate> to,
+            @Valid Optional<String> cursor,
+            @Valid Optional<@Min(1) @Max(200) Integer> limit) {
+        var page =
+                appointmentService.getAllAppointments(
+                        userId, status, from, to, cursor, limit.orElse(DEFAULT_PAGE_SIZE));
+
+        var response = ResponseEntity.ok();
+        page.nextCursor().ifPresent(next -> response.header(NEXT_CURSOR_HEADER, next));
+        return response.body(page.items());
     }
 
     @Override
@@ -37,6 +58,14 @@ public class AppointmentController implements AppointmentsApi {
         return ResponseEntity.ok(appointmentService.getAppointmentById(id));
     }
 
+    @Override
+    public ResponseEntity<List<AppointmentSlot>> getAppointmentAvailability(
+            @NotNull @Valid LocalDate date,
+            @NotNull @Valid Long categoryId,
+            @NotNull @Min(1) @Valid Integer duration) {
+        return ResponseEntity.ok(appointmentService.getAvailableSlots(date, categoryId, duration));
+    }
+
     @Override
     public ResponseEntity<Appointment> addAppointment(
             @Valid AddAppointmentRequest addAppointmentRequest) {
@@ -68,4 +97,29 @@ public class AppointmentController implements AppointmentsApi {
     public ResponseEntity<List<LocalDate>> getAllDaysWithAppointments() {
         return ResponseEntity.ok(appointmentService.getAllDaysWithAppointments());
     }
+
+    @Override
+    public ResponseEntity<AppointmentSeries> getAppointmentSeriesById(Long id) {
+        return ResponseEntity.ok(appointmentService.getAppointmentSeriesById(id));
+    }
+
+    @Override
+    public ResponseEntity<AppointmentSeries> addAppointmentSeries(
+            @Valid AddAppointmentSeriesRequest addAppointmentSeriesRequest) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(appointmentService.createAppointmentSeries(addAppointmentSeriesRequest));
+    }
+
+    @Override
+    public ResponseEntity<AppointmentSeries> updateAppointmentSeries(
+            Long id, @Valid UpdateAppointmentSeriesRequest updateAppointmentSeriesRequest) {
+        return ResponseEntity.ok(
+                appointmentService.updateAppointmentSeries(id, updateAppointmentSeriesRequest));
+    }
+
+    @Override
+    public ResponseEntity<Void> cancelAppointmentSeries(Long id) {
+        appointmentService.cancelAppointmentSeries(id);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -24,7 +24,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
 
-/** AuthController - Handles authentication, user registration, and token refreshing. */
+/** AuthController - Handles authentication, user registration, token refreshing and logout. */
 @RestController
 @RequiredArgsConstructor
 public class AuthController implements AuthApi {
@@ -52,6 +52,13 @@ public class AuthController implements AuthApi {
         return ResponseEntity.ok(authService.refreshSession(refreshToken.refreshToken()));
     }
 
+    public ResponseEntity<Void> logout(@RequestBody @Valid RefreshTokenRequest refreshToken) {
+        authService.logout(
+                SecurityContextHolder.getContext().getAuthentication(),
+                refreshToken.refreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
     public ResponseEntity<Map<String, String>> verifyEmail(@RequestParam String token) {
         emailVerificationService.verifyEmail(token);
         return ResponseEntity.ok(Map.of("message", "Email verified successfully"));
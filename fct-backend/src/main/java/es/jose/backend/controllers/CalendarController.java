@@ -0,0 +1,58 @@
+package es.jose.backend.controllers;
+
+import es.jose.backend.services.calendar.CalendarFeedService;
+import es.jose.backend.services.calendar.CalendarFeedVersion;
+
+import lombok.RequiredArgsConstructor;
+
+import org.openapitools.api.CalendarApi;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Optional;
+
+@RestController
+@RequiredArgsConstructor
+public class CalendarController implements CalendarApi {
+
+    private static final MediaType TEXT_CALENDAR =
+            MediaType.parseMediaType("text/calendar;charset=UTF-8");
+
+    private final NativeWebRequest request;
+    private final CalendarFeedService calendarFeedService;
+
+    @Override
+    public Optional<NativeWebRequest> getRequest() {
+        return Optional.of(request);
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> getUserCalendarFeed(Long userId) {
+        return feed(
+                calendarFeedService.getUserFeedVersion(userId),
+                out -> calendarFeedService.writeUserFeed(userId, out));
+    }
+
+    @Override
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getStaffCalendarFeed() {
+        return feed(calendarFeedService.getStaffFeedVersion(), calendarFeedService::writeStaffFeed);
+    }
+
+    private ResponseEntity<StreamingResponseBody> feed(
+            CalendarFeedVersion version, StreamingResponseBody body) {
+        final long lastModified = version.lastModified().orElse(-1L);
+        if (request.checkNotModified(version.eTag(), lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(version.eTag()).build();
+        }
+
+        var response = ResponseEntity.ok().eTag(version.eTag()).contentType(TEXT_CALENDAR);
+        version.lastModified().ifPresent(response::lastModified);
+        return response.body(body);
+    }
+}
@@ -10,6 +10,7 @@ import lombok.RequiredArgsConstructor;
 
 import org.openapitools.api.CartsApi;
 import org.openapitools.model.Cart;
+import org.openapitools.model.CartSummary;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -35,6 +36,11 @@ public class CartController implements CartsApi {
         return ResponseEntity.ok(cartService.getAllCarts(userId));
     }
 
+    @Override
+    public ResponseEntity<CartSummary> getCartSummary(Long userId) {
+        return ResponseEntity.ok(cartService.getCartSummary(userId));
+    }
+
     @Override
     public ResponseEntity<Void> removeProductFromCart(Long userId, Long productId) {
         cartService.removeProductFromCart(userId, productId);
@@ -0,0 +1,33 @@
+package es.jose.backend.controllers;
+
+import es.jose.backend.services.checkout.CheckoutService;
+
+import jakarta.validation.Valid;
+
+import lombok.RequiredArgsConstructor;
+
+import org.openapitools.api.CheckoutApi;
+import org.openapitools.model.CheckoutRequest;
+import org.openapitools.model.Invoice;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+
+@RestController
+@RequiredArgsConstructor
+public class CheckoutController implements CheckoutApi {
+
+    private final CheckoutService checkoutService;
+
+    @Override
+    public ResponseEntity<Invoice> checkout(@Valid CheckoutRequest checkoutRequest) {
+        var result = checkoutService.checkout(checkoutRequest);
+        var invoice = result.invoice();
+
+        if (!result.created()) {
+            return ResponseEntity.ok(invoice);
+        }
+        return ResponseEntity.created(URI.create("/api/v1/invoices/" + invoice.id())).body(invoice);
+    }
+}
@@ -1,23 +1,38 @@
 package es.jose.backend.controllers;
 
 import es.jose.backend.services.InvoiceService;
+import es.jose.backend.services.idempotency.IdempotencyService;
+import es.jose.backend.services.invoicing.InvoiceExportService;
+import es.jose.backend.services.pdf.InvoicePdf;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import lombok.RequiredArgsConstructor;
 
 import org.openapitools.api.InvoicesApi;
 import org.openapitools.model.AddInvoiceRequest;
 import org.openapitools.model.Invoice;
+import org.openapitools.model.InvoiceSortEnum;
 import org.openapitools.model.InvoiceStatusEnum;
+import org.openapitools.model.SortDirectionEnum;
 import org.openapitools.model.UpdateInvoiceRequest;
 import org.openapitools.model.UpdateInvoiceStatusRequest;
-import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,8 +40,19 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class InvoiceController implements InvoicesApi {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    // Request attributes through which Tomcat offers and takes files to send with sendfile.
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final NativeWebRequest request;
     private final InvoiceService invoiceService;
+    private final InvoiceExportService invoiceExportService;
+    private final IdempotencyService idempotencyService;
 
     @Override
     public Optional<NativeWebRequest> getRequest() {
@@ -34,10 +60,20 @@ public class InvoiceController implements InvoicesApi {
     }
 
     @Override
-    public ResponseEntity<Invoice> addInvoice(@Valid AddInvoiceRequest addInvoiceRequest) {
-        var invoice = invoiceService.createInvoice(addInvoiceRequest);
-
-        return ResponseEntity.created(URI.create("/api/invoices/" + invoice.id())).body(invoice);
+    public ResponseEntity<Invoice> addInvoice(
+            @Valid AddInvoiceRequest addInvoiceRequest,
+            Optional<@Size(min = 1, max = 255) String> idempotencyKey) {
+        return idempotencyService.execute(
+                "addInvoice",
+                idempotencyKey,
+                addInvoiceRequest,
+                Invoice.class,
+                () -> {
+                    var invoice = invoiceService.createInvoice(addInvoiceRequest);
+
+                    return ResponseEntity.created(URI.create("/api/invoices/" + invoice.id()))
+                            .body(invoice);
+                });
     }
 
     @Override
@@ -50,8 +86,46 @@ public class InvoiceController implements InvoicesApi {
     public ResponseEntity<List<Invoice>> getAllInvoices(
             @Valid Optional<Long> userId,
             @Valid Optional<InvoiceStatusEnum> status,
-            @Valid Optional<Long> lineItemId) {
-        return ResponseEntity.ok(invoiceService.getAllInvoices(userId, status, lineItemId));
+            @Valid Optional<Long> lineItemId,
+            @Valid Optional<@Min(0) Integer> page,
+            @Valid Optional<@Min(1) @Max(200) Integer> size,
+            @Valid Optional<InvoiceSortEnum> sort,
+            @Valid Optional<SortDirectionEnum> direction) {
+        var invoices =
+                invoiceService.getAllInvoices(
+                        userId,
+                        status,
+                        lineItemId,
+                        PageRequest.of(
+                                page.orElse(0),
+                                size.orElse(DEFAULT_PAGE_SIZE),
+                                sortOf(
+                                        sort.orElse(InvoiceSortEnum.CREATED_AT),
+                                        direction.orElse(SortDirectionEnum.DESC))));
+
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, Long.toString(invoices.getTotalElements()))
+                .body(invoices.getContent());
+    }
+
+    /**
+     * Builds the sort order of an invoice listing, breaking ties by id so pages are stable.
+     *
+     * @param field The field to sort by.
+     * @param direction The sort direction.
+     * @return the sort order.
+     */
+    private static Sort sortOf(InvoiceSortEnum field, SortDirectionEnum direction) {
+        var sortDirection =
+                direction == SortDirectionEnum.ASC ? Sort.Direction.ASC : Sort.Direction.DESC;
+        var property =
+                switch (field) {
+                    case CREATED_AT -> "createdAt";
+                    case UPDATED_AT -> "updatedAt";
+                    case TOTAL_PRICE -> "totalPrice";
+                };
+
+        return Sort.by(sortDirection, property, "id");
     }
 
     @Override
@@ -60,10 +134,62 @@ public class InvoiceController implements InvoicesApi {
     }
 
     @Override
-    public ResponseEntity<Resource> getInvoiceByIdAsPDF(Long id) {
+    public ResponseEntity<StreamingResponseBody> getInvoiceByIdAsPDF(Long id) {
+        var pdf = invoiceService.getInvoiceByIdAsPDF(id);
+        var response =
+                ResponseEntity.ok()
+                        .header("Content-Disposition", "attachment; filename=invoice.pdf")
+                        .contentType(MediaType.APPLICATION_PDF);
+        if (pdf.contentLength() >= 0) {
+            response.contentLength(pdf.contentLength());
+        }
+        if (sendfile(pdf)) {
+            // Without a body the response is committed right away, rather than asynchronously.
+            return response.build();
+        }
+        return response.body(pdf::writeTo);
+    }
+
+    /**
+     * Hands a cached PDF over to Tomcat to be sent with sendfile, which transfers the file to the
+     * socket in the kernel instead of copying it through the application. Only possible when the
+     * connector supports it, which it does not over TLS. Tomcat opens the file right after this
+     * request returns; the cache only deletes a file once a newer version replaces it or it becomes
+     * the least recently used, neither of which is likely in that moment.
+     *
+     * @param pdf The PDF to send.
+     * @return true if Tomcat sends the PDF, so the response body must be left empty.
+     */
+    private boolean sendfile(InvoicePdf pdf) {
+        if (pdf.file() == null
+                || !Boolean.TRUE.equals(
+                        request.getAttribute(SENDFILE_SUPPORT, RequestAttributes.SCOPE_REQUEST))) {
+            return false;
+        }
+
+        request.setAttribute(
+                SENDFILE_FILENAME,
+                pdf.file().toAbsolutePath().toString(),
+                RequestAttributes.SCOPE_REQUEST);
+        request.setAttribute(SENDFILE_START, 0L, RequestAttributes.SCOPE_REQUEST);
+        request.setAttribute(SENDFILE_END, pdf.contentLength(), RequestAttributes.SCOPE_REQUEST);
+        return true;
+    }
+
+    @Override
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportInvoicePdfs(
+            @NotNull @Valid LocalDate from,
+            @NotNull @Valid LocalDate to,
+            @Valid Optional<InvoiceStatusEnum> status) {
+        var invoiceIds = invoiceExportService.findInvoiceIdsToExport(from, to, status);
+
         return ResponseEntity.ok()
-                .header("Content-Disposition", "attachment; filename=invoice.pdf")
-                .body(invoiceService.getInvoiceByIdAsPDF(id));
+                .header(
+                        "Content-Disposition",
+                        "attachment; filename=invoices-" + from + "-" + to + ".zip")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(out -> invoiceExportService.writePdfs(invoiceIds, out));
     }
 
     @Override
@@ -1,8 +1,10 @@
 package es.jose.backend.controllers;
 
 import es.jose.backend.services.LineItemService;
+import es.jose.backend.services.idempotency.IdempotencyService;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 
 import lombok.RequiredArgsConstructor;
 
@@ -22,12 +24,20 @@ import java.util.Optional;
 public class LineItemController implements LineItemsApi {
 
     private final LineItemService lineItemService;
+    private final IdempotencyService idempotencyService;
 
     @Override
     public ResponseEntity<LineItem> addLineItem(
-            @Valid final AddLineItemRequest addLineItemRequest) {
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(lineItemService.createLineItem(addLineItemRequest));
+            @Valid final AddLineItemRequest addLineItemRequest,
+            final Optional<@Size(min = 1, max = 255) String> idempotencyKey) {
+        return idempotencyService.execute(
+                "addLineItem",
+                idempotencyKey,
+                addLineItemRequest,
+                LineItem.class,
+                () ->
+                        ResponseEntity.status(HttpStatus.CREATED)
+                                .body(lineItemService.createLineItem(addLineItemRequest)));
     }
 
     @Override
@@ -0,0 +1,60 @@
+package es.jose.backend.controllers;
+
+import es.jose.backend.services.reporting.RevenueReportService;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+import lombok.RequiredArgsConstructor;
+
+import org.openapitools.api.ReportsApi;
+import org.openapitools.model.LineItemTypeRevenue;
+import org.openapitools.model.PeriodRevenue;
+import org.openapitools.model.ProductCategoryRevenue;
+import org.openapitools.model.RevenueGranularityEnum;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequiredArgsConstructor
+public class ReportController implements ReportsApi {
+
+    private final NativeWebRequest request;
+    private final RevenueReportService revenueReportService;
+
+    @Override
+    public Optional<NativeWebRequest> getRequest() {
+        return Optional.of(request);
+    }
+
+    @Override
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<PeriodRevenue>> getRevenueByPeriod(
+            @NotNull @Valid LocalDate from,
+            @NotNull @Valid LocalDate to,
+            @Valid Optional<RevenueGranularityEnum> granularity) {
+        return ResponseEntity.ok(
+                revenueReportService.getRevenueByPeriod(
+                        from, to, granularity.orElse(RevenueGranularityEnum.DAY)));
+    }
+
+    @Override
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<ProductCategoryRevenue>> getRevenueByProductCategory(
+            @NotNull @Valid LocalDate from, @NotNull @Valid LocalDate to) {
+        return ResponseEntity.ok(revenueReportService.getRevenueByProductCategory(from, to));
+    }
+
+    @Override
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<LineItemTypeRevenue>> getRevenueByLineItemType(
+            @NotNull @Valid LocalDate from, @NotNull @Valid LocalDate to) {
+        return ResponseEntity.ok(revenueReportService.getRevenueByLineItemType(from, to));
+    }
+}
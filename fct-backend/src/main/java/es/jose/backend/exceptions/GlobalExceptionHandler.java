@@ -8,6 +8,8 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.openapitools.model.ErrorMessage;
 import org.openapitools.model.ValidationErrorMessage;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -55,6 +57,16 @@ public class GlobalExceptionHandler {
                 ex.getMessage(), "Authorization failed", request, HttpStatus.FORBIDDEN);
     }
 
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<ErrorMessage> handleConcurrencyFailure(
+            final ConcurrencyFailureException ex, final HttpServletRequest request) {
+        return buildErrorResponse(
+                "Concurrent modification",
+                "The resource was modified by another request. Please try again.",
+                request,
+                HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public void handleInvalidEnumException(
             HttpMessageNotReadableException ex, HttpServletRequest request) throws BindException {
@@ -111,6 +123,20 @@ public class GlobalExceptionHandler {
         return buildAuthenticationErrorResponse("Invalid username or password.", request);
     }
 
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ErrorMessage> handlePasswordHashingBusy(
+            PasswordHashingBusyException e, HttpServletRequest request) {
+        final var response =
+                buildErrorResponse(
+                        e.getMessage(),
+                        "Authentication Failed",
+                        request,
+                        HttpStatus.SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response.getBody());
+    }
+
     @ExceptionHandler(AuthenticationException.class)
     public ResponseEntity<ErrorMessage> handleAuthenticationException(
             AuthenticationException e, HttpServletRequest request) {
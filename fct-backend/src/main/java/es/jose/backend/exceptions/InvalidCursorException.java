@@ -0,0 +1,24 @@
+package es.jose.backend.exceptions;
+
+import es.jose.backend.config.MessageSourceProvider;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+
+public class InvalidCursorException extends BadRequestException {
+
+    private static final String MESSAGE_KEY = "exception.invalidCursor";
+
+    public InvalidCursorException(String cursor) {
+        super(cursor, MessageSourceProvider.getMessageSource());
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(
+                        MESSAGE_KEY,
+                        new Object[] {getMsg()},
+                        super.getMessage(), // fallback to parent message
+                        LocaleContextHolder.getLocale());
+    }
+}
@@ -0,0 +1,28 @@
+package es.jose.backend.exceptions;
+
+import es.jose.backend.config.MessageSourceProvider;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a password cannot be verified because too many are already waiting to be. It is an
+ * authentication exception so that authentication fails, not the request with a server error.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PasswordHashingBusyException extends AuthenticationServiceException {
+
+    private static final String MESSAGE_KEY = "exception.passwordHashingBusy";
+
+    public PasswordHashingBusyException() {
+        super("Too many credentials are being verified, please try again later");
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(MESSAGE_KEY, null, super.getMessage(), LocaleContextHolder.getLocale());
+    }
+}
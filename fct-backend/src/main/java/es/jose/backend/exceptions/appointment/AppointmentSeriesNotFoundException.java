@@ -0,0 +1,26 @@
+package es.jose.backend.exceptions.appointment;
+
+import es.jose.backend.config.MessageSourceProvider;
+import es.jose.backend.exceptions.NotFoundException;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+
+public class AppointmentSeriesNotFoundException extends NotFoundException {
+
+    private static final String APPOINTMENT_SERIES_MESSAGE_KEY =
+            "exception.appointmentSeriesNotFound";
+
+    public AppointmentSeriesNotFoundException(String field, String value) {
+        super("Appointment series", field, value, MessageSourceProvider.getMessageSource());
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(
+                        APPOINTMENT_SERIES_MESSAGE_KEY,
+                        new Object[] {"appointment series", getIdentifier(), getValue()},
+                        super.getMessage(), // fallback to parent message
+                        LocaleContextHolder.getLocale());
+    }
+}
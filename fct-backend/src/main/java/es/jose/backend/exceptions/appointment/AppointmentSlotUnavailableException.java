@@ -0,0 +1,25 @@
+package es.jose.backend.exceptions.appointment;
+
+import es.jose.backend.config.MessageSourceProvider;
+import es.jose.backend.exceptions.AlreadyExistsException;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+
+public class AppointmentSlotUnavailableException extends AlreadyExistsException {
+
+    private static final String APPOINTMENT_MESSAGE_KEY = "exception.appointmentSlotUnavailable";
+
+    public AppointmentSlotUnavailableException(String slot) {
+        super("Appointment", slot, MessageSourceProvider.getMessageSource());
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(
+                        APPOINTMENT_MESSAGE_KEY,
+                        new Object[] {"appointment", getIdentifier()},
+                        super.getMessage(), // fallback to parent message
+                        LocaleContextHolder.getLocale());
+    }
+}
@@ -0,0 +1,32 @@
+package es.jose.backend.exceptions.appointment;
+
+import es.jose.backend.config.MessageSourceProvider;
+import es.jose.backend.exceptions.BadRequestException;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+
+public class InvalidAppointmentSeriesException extends BadRequestException {
+
+    private static final String MESSAGE_KEY = "exception.invalidAppointmentSeries";
+
+    private final int maxOccurrences;
+
+    public InvalidAppointmentSeriesException(int maxOccurrences) {
+        super(
+                "a series must end by a date or a count and have 1 to "
+                        + maxOccurrences
+                        + " occurrences",
+                MessageSourceProvider.getMessageSource());
+        this.maxOccurrences = maxOccurrences;
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(
+                        MESSAGE_KEY,
+                        new Object[] {maxOccurrences},
+                        super.getMessage(), // fallback to parent message
+                        LocaleContextHolder.getLocale());
+    }
+}
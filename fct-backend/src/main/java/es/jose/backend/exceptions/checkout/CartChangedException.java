@@ -0,0 +1,25 @@
+package es.jose.backend.exceptions.checkout;
+
+import es.jose.backend.config.MessageSourceProvider;
+import es.jose.backend.exceptions.AlreadyExistsException;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+
+public class CartChangedException extends AlreadyExistsException {
+
+    private static final String MESSAGE_KEY = "exception.cartChanged";
+
+    public CartChangedException(Long userId) {
+        super("Checkout", userId.toString(), MessageSourceProvider.getMessageSource());
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(
+                        MESSAGE_KEY,
+                        new Object[] {"checkout", getIdentifier()},
+                        super.getMessage(), // fallback to parent message
+                        LocaleContextHolder.getLocale());
+    }
+}
@@ -0,0 +1,25 @@
+package es.jose.backend.exceptions.checkout;
+
+import es.jose.backend.config.MessageSourceProvider;
+import es.jose.backend.exceptions.AlreadyExistsException;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+
+public class CheckoutIdInUseException extends AlreadyExistsException {
+
+    private static final String MESSAGE_KEY = "exception.checkoutIdInUse";
+
+    public CheckoutIdInUseException(String checkoutId) {
+        super("Checkout", checkoutId, MessageSourceProvider.getMessageSource());
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(
+                        MESSAGE_KEY,
+                        new Object[] {"checkout", getIdentifier()},
+                        super.getMessage(), // fallback to parent message
+                        LocaleContextHolder.getLocale());
+    }
+}
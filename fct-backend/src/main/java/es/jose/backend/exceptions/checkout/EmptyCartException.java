@@ -0,0 +1,28 @@
+package es.jose.backend.exceptions.checkout;
+
+import es.jose.backend.config.MessageSourceProvider;
+import es.jose.backend.exceptions.BadRequestException;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+
+public class EmptyCartException extends BadRequestException {
+
+    private static final String MESSAGE_KEY = "exception.emptyCart";
+
+    private final Long userId;
+
+    public EmptyCartException(Long userId) {
+        super("the cart of user " + userId + " is empty", MessageSourceProvider.getMessageSource());
+        this.userId = userId;
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(
+                        MESSAGE_KEY,
+                        new Object[] {userId},
+                        super.getMessage(), // fallback to parent message
+                        LocaleContextHolder.getLocale());
+    }
+}
@@ -0,0 +1,27 @@
+package es.jose.backend.exceptions.checkout;
+
+import es.jose.backend.config.MessageSourceProvider;
+import es.jose.backend.exceptions.AlreadyExistsException;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+
+import java.util.Collection;
+
+public class InsufficientStockException extends AlreadyExistsException {
+
+    private static final String MESSAGE_KEY = "exception.insufficientStock";
+
+    public InsufficientStockException(Collection<Long> productIds) {
+        super("Product", productIds.toString(), MessageSourceProvider.getMessageSource());
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(
+                        MESSAGE_KEY,
+                        new Object[] {"product", getIdentifier()},
+                        super.getMessage(), // fallback to parent message
+                        LocaleContextHolder.getLocale());
+    }
+}
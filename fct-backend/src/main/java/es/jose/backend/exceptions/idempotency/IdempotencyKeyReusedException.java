@@ -0,0 +1,30 @@
+package es.jose.backend.exceptions.idempotency;
+
+import es.jose.backend.config.MessageSourceProvider;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    private static final String MESSAGE_KEY = "exception.idempotencyKeyReused";
+
+    private final String key;
+
+    public IdempotencyKeyReusedException(String key) {
+        super(String.format("The idempotency key %s was already used for a different request", key));
+        this.key = key;
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(
+                        MESSAGE_KEY,
+                        new Object[] {key},
+                        super.getMessage(),
+                        LocaleContextHolder.getLocale());
+    }
+}
@@ -0,0 +1,32 @@
+package es.jose.backend.exceptions.report;
+
+import es.jose.backend.config.MessageSourceProvider;
+import es.jose.backend.exceptions.BadRequestException;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+
+import java.time.LocalDate;
+
+public class InvalidReportRangeException extends BadRequestException {
+
+    private static final String MESSAGE_KEY = "exception.invalidReportRange";
+
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public InvalidReportRangeException(LocalDate from, LocalDate to) {
+        super(from + " - " + to, MessageSourceProvider.getMessageSource());
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public String getMessage() {
+        return MessageSourceProvider.getMessageSource()
+                .getMessage(
+                        MESSAGE_KEY,
+                        new Object[] {from, to},
+                        super.getMessage(), // fallback to parent message
+                        LocaleContextHolder.getLocale());
+    }
+}
@@ -5,10 +5,11 @@ import org.mapstruct.Mapping;
 import org.openapitools.model.AddAppointmentCategoryRequest;
 import org.openapitools.model.AppointmentCategory;
 
+import es.jose.backend.mappers.util.MapperUtils;
 import es.jose.backend.persistence.entities.AppointmentCategoryEntity;
 
 @Mapper(componentModel = "spring")
-public interface AppointmentCategoryMapper {
+public interface AppointmentCategoryMapper extends MapperUtils {
 
     AppointmentCategory toDto(AppointmentCategoryEntity entity);
 
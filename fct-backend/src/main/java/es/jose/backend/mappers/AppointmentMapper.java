@@ -6,17 +6,23 @@ import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import org.mapstruct.NullValuePropertyMappingStrategy;
 import org.openapitools.model.AddAppointmentRequest;
+import org.openapitools.model.AddAppointmentSeriesRequest;
 import org.openapitools.model.Appointment;
+import org.openapitools.model.AppointmentSeries;
 import org.openapitools.model.UpdateAppointmentRequest;
 
 import es.jose.backend.mappers.util.MapperUtils;
 import es.jose.backend.persistence.entities.AppointmentEntity;
+import es.jose.backend.persistence.entities.AppointmentSeriesEntity;
+
+import java.util.List;
 
 @Mapper(componentModel = "spring")
 public interface AppointmentMapper extends MapperUtils {
 
     @Mapping(target = "userId", source = "user.id")
     @Mapping(target = "categoryId", source = "category.id")
+    @Mapping(target = "seriesId", source = "series.id")
     Appointment toDto(AppointmentEntity entity);
 
     @Mapping(target = "id", ignore = true)
@@ -24,6 +30,9 @@ public interface AppointmentMapper extends MapperUtils {
     @Mapping(target = "price", ignore = true)
     @Mapping(target = "status", constant = "WAITING")
     @Mapping(target = "category", ignore = true)
+    @Mapping(target = "series", ignore = true)
+    @Mapping(target = "reminderSentAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     AppointmentEntity toEntity(AddAppointmentRequest dto);
 
     @Mapping(target = "id", ignore = true)
@@ -31,7 +40,25 @@ public interface AppointmentMapper extends MapperUtils {
     @Mapping(target = "price", ignore = true)
     @Mapping(target = "status", ignore = true)
     @Mapping(target = "category", ignore = true)
+    @Mapping(target = "startTime", ignore = true)
+    @Mapping(target = "series", ignore = true)
+    @Mapping(target = "reminderSentAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     void updateEntity(UpdateAppointmentRequest dto, @MappingTarget AppointmentEntity entity);
 
+    @Mapping(target = "id", source = "entity.id")
+    @Mapping(target = "startTime", source = "entity.startTime")
+    @Mapping(target = "duration", source = "entity.duration")
+    @Mapping(target = "description", source = "entity.description")
+    @Mapping(target = "userId", source = "entity.user.id")
+    @Mapping(target = "categoryId", source = "entity.category.id")
+    AppointmentSeries toSeriesDto(
+            AppointmentSeriesEntity entity, List<AppointmentEntity> appointments);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "user", ignore = true)
+    @Mapping(target = "category", ignore = true)
+    AppointmentSeriesEntity toSeriesEntity(AddAppointmentSeriesRequest dto);
+
 }
@@ -2,10 +2,18 @@ package es.jose.backend.mappers;
 
 import es.jose.backend.mappers.util.MapperUtils;
 import es.jose.backend.persistence.entities.CartEntity;
+import es.jose.backend.services.cart.CartLine;
+import es.jose.backend.services.cart.PricedCartLine;
+import es.jose.backend.utils.Money;
 
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.openapitools.model.Cart;
+import org.openapitools.model.CartSummary;
+import org.openapitools.model.CartSummaryLine;
+
+import java.util.List;
+import java.util.function.Function;
 
 @Mapper(componentModel = "spring")
 public interface CartMapper extends MapperUtils {
@@ -13,4 +21,50 @@ public interface CartMapper extends MapperUtils {
     @Mapping(target = "userId", source = "id.userId")
     @Mapping(target = "productId", source = "id.productId")
     Cart toDto(CartEntity entity);
+
+    Cart toDto(CartLine line);
+
+    /**
+     * Maps a priced cart line to a line of a cart summary.
+     *
+     * @param line the priced cart line
+     * @return the summary line
+     */
+    default CartSummaryLine toSummaryLine(PricedCartLine line) {
+        return CartSummaryLine.builder()
+                .productId(line.productId())
+                .productName(line.productName())
+                .quantity(line.quantity())
+                .unitPrice(map(line.price()))
+                .vatPercentage(line.vatPercentage())
+                .netPrice(map(line.netPrice()))
+                .vat(map(line.vat()))
+                .total(map(line.total()))
+                .stock(line.stock())
+                .inStock(line.inStock())
+                .build();
+    }
+
+    /**
+     * Maps the priced lines of a cart to a cart summary, adding up its totals.
+     *
+     * @param userId the ID of the user the cart belongs to
+     * @param lines the priced lines of the cart
+     * @return the cart summary
+     */
+    default CartSummary toSummary(Long userId, List<PricedCartLine> lines) {
+        return CartSummary.builder()
+                .userId(userId)
+                .lines(lines.stream().map(this::toSummaryLine).toList())
+                .itemCount(lines.stream().mapToInt(PricedCartLine::quantity).sum())
+                .netTotal(map(sum(lines, PricedCartLine::netPrice)))
+                .vatTotal(map(sum(lines, PricedCartLine::vat)))
+                .total(map(sum(lines, PricedCartLine::total)))
+                .allInStock(lines.stream().allMatch(PricedCartLine::inStock))
+                .build();
+    }
+
+    private static Money sum(List<PricedCartLine> lines, Function<PricedCartLine, Money> amount) {
+        return lines.stream().map(amount).reduce(Money.ZERO, Money::plus);
+    }
 }
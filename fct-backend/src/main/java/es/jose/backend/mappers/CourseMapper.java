@@ -22,12 +22,14 @@ public interface CourseMapper extends MapperUtils {
     @Mapping(target = "category", ignore = true)
     @Mapping(target = "imgNames", ignore = true)
     @Mapping(target = "courseUsers", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     CourseEntity toEntity(AddCourseRequest addCourseRequest);
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "category", ignore = true)
     @Mapping(target = "imgNames", ignore = true)
     @Mapping(target = "courseUsers", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     void updateEntity(UpdateCourseRequest updateCourseRequest, @MappingTarget CourseEntity entity);
 }
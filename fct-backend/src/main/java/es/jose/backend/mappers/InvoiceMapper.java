@@ -22,6 +22,8 @@ public interface InvoiceMapper extends MapperUtils {
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "lineItems", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "checkoutId", ignore = true)
+    @Mapping(target = "version", ignore = true)
     @Mapping(target = "totalPrice", constant = "0")
     InvoiceEntity toEntity(AddInvoiceRequest invoice);
 
@@ -30,6 +32,8 @@ public interface InvoiceMapper extends MapperUtils {
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "lineItems", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "checkoutId", ignore = true)
+    @Mapping(target = "version", ignore = true)
     @Mapping(target = "totalPrice", ignore = true)
     void updateEntity(UpdateInvoiceRequest dto, @MappingTarget InvoiceEntity entity);
 }
@@ -1,5 +1,7 @@
 package es.jose.backend.mappers.util;
 
+import es.jose.backend.utils.Money;
+
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -44,4 +46,24 @@ public interface MapperUtils {
     default OffsetDateTime map(LocalDateTime dateTime) {
         return dateTime.atOffset(ZoneOffset.UTC);
     }
+
+    /**
+     * Maps an amount of money to the double sent to clients.
+     *
+     * @param money the amount
+     * @return the amount as a double, or null if it is null
+     */
+    default Double map(Money money) {
+        return money == null ? null : money.toDouble();
+    }
+
+    /**
+     * Maps an amount sent by a client to money, rounded half up to the cent.
+     *
+     * @param amount the amount
+     * @return the amount as money, or null if it is null
+     */
+    default Money map(Double amount) {
+        return Money.of(amount);
+    }
 }
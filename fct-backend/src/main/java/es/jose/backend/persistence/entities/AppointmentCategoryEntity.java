@@ -1,5 +1,7 @@
 package es.jose.backend.persistence.entities;
 
+import es.jose.backend.utils.Money;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -35,8 +37,8 @@ public class AppointmentCategoryEntity {
     @Column(name = "name", unique = true)
     private String name;
 
-    @Column(name = "quote_per_hour", nullable = false)
-    private Double quotePerHour;
+    @Column(name = "quote_per_hour", nullable = false, precision = 10, scale = 2)
+    private Money quotePerHour;
 
     // --- Manually Implemented equals() and hashCode() for robustness ---
     @Override
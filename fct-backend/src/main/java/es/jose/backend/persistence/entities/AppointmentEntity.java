@@ -1,13 +1,17 @@
 package es.jose.backend.persistence.entities;
 
+import es.jose.backend.utils.Money;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -20,20 +24,30 @@ import lombok.Setter;
 import lombok.ToString;
 
 import org.openapitools.model.AppointmentStatusEnum;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "appointments")
+@Table(
+        name = "appointments",
+        indexes = {
+            @Index(name = "idx_appointments_date_id", columnList = "date, id"),
+            @Index(name = "idx_appointments_user_date", columnList = "user_id, date"),
+            @Index(name = "idx_appointments_series_date", columnList = "series_id, date")
+        })
 @Getter
 @Setter
 @ToString
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public final class AppointmentEntity implements LineItemable {
+@EntityListeners(AuditingEntityListener.class)
+public non-sealed class AppointmentEntity implements LineItemable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -42,6 +56,9 @@ public final class AppointmentEntity implements LineItemable {
     @Column(name = "date", nullable = false)
     private LocalDate date;
 
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+
     @Column(name = "duration", nullable = false)
     private Integer duration;
 
@@ -51,11 +68,19 @@ public final class AppointmentEntity implements LineItemable {
     private AppointmentStatusEnum status = AppointmentStatusEnum.WAITING;
 
     @Column(name = "price", nullable = false, precision = 10, scale = 2)
-    private BigDecimal price;
+    private Money price;
 
     @Column(name = "description", nullable = false, length = 500)
     private String description;
 
+    /** When the reminder of the appointment was sent, or null if it has not been sent yet. */
+    @Column(name = "reminder_sent_at")
+    private LocalDateTime reminderSentAt;
+
+    @Column(name = "updated_at")
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
+
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     @ToString.Exclude
@@ -66,6 +91,11 @@ public final class AppointmentEntity implements LineItemable {
     @ToString.Exclude
     private AppointmentCategoryEntity category;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "series_id")
+    @ToString.Exclude
+    private AppointmentSeriesEntity series;
+
     // --- Manually Implemented equals() and hashCode() for robustness ---
     @Override
     public boolean equals(Object o) {
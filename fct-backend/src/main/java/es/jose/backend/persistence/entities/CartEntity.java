@@ -5,10 +5,13 @@ import es.jose.backend.persistence.entities.keys.CartKey;
 import jakarta.persistence.Column;
 import jakarta.persistence.EmbeddedId;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.MapsId;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,8 +20,14 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
 @Entity
 @Table(name = "carts")
+@EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
 @ToString
@@ -29,16 +38,34 @@ public class CartEntity {
 
     @EmbeddedId private CartKey id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("userId")
     @JoinColumn(name = "user_id")
+    @ToString.Exclude
     private UserEntity user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @MapsId("productId")
     @JoinColumn(name = "product_id")
+    @ToString.Exclude
     private ProductEntity product;
 
     @Column(name = "quantity", nullable = false)
     private Integer quantity;
+
+    /**
+     * When the line was last added to or changed, so that carts nobody has touched for a long
+     * time can be expired. Also set by the batch writes that bypass JPA.
+     */
+    @Column(name = "touched_at", nullable = false)
+    @LastModifiedDate
+    private LocalDateTime touchedAt;
+
+    /**
+     * Incremented on every change, so that a change made from a stale copy of the row fails
+     * instead of overwriting a concurrent one.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
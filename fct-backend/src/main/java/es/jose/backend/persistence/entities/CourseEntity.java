@@ -1,9 +1,12 @@
 package es.jose.backend.persistence.entities;
 
+import es.jose.backend.utils.Money;
+
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -20,7 +23,11 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -34,7 +41,8 @@ import java.util.Set;
 @Accessors(chain = true)
 @NoArgsConstructor
 @AllArgsConstructor
-public final class CourseEntity implements LineItemable {
+@EntityListeners(AuditingEntityListener.class)
+public non-sealed class CourseEntity implements LineItemable {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -46,8 +54,8 @@ public final class CourseEntity implements LineItemable {
     @Column(name = "end_date", nullable = false)
     private LocalDate endDate;
 
-    @Column(name = "enrollment_price", nullable = false)
-    private Double enrollmentPrice;
+    @Column(name = "enrollment_price", nullable = false, precision = 10, scale = 2)
+    private Money enrollmentPrice;
 
     @JoinColumn(name = "category_id", nullable = false)
     @ManyToOne(fetch = FetchType.LAZY)
@@ -65,4 +73,8 @@ public final class CourseEntity implements LineItemable {
     @OneToMany(mappedBy = "course")
     @Builder.Default
     private Set<CourseUserEntity> courseUsers = new HashSet<>();
+
+    @Column(name = "updated_at")
+    @LastModifiedDate
+    private LocalDateTime updatedAt;
 }
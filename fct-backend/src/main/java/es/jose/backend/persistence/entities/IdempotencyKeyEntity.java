@@ -0,0 +1,84 @@
+package es.jose.backend.persistence.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * An idempotency key sent with a request that creates a resource, and the response it got, so
+ * that a retry of the request is answered with the same response instead of creating the resource
+ * again. The key and the request are only stored as fixed-size hashes.
+ */
+@Entity
+@Table(
+        name = "idempotency_keys",
+        indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@ToString(exclude = "responseBody")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKeyEntity {
+
+    /** The unique identifier for the key. */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * SHA-256 hash of the operation, the user and the key sent by the client. Unique, so that a
+     * concurrent duplicate waits for the first request to commit or roll back.
+     */
+    @Column(name = "key_hash", nullable = false, unique = true, length = 32)
+    private byte[] keyHash;
+
+    /** SHA-256 hash of the body of the first request sent with the key. */
+    @Column(name = "request_hash", nullable = false, length = 32)
+    private byte[] requestHash;
+
+    /** The HTTP status of the response. Only null until the request completes. */
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    /** The Location header of the response, if any. */
+    @Column(name = "response_location")
+    private String responseLocation;
+
+    /** The body of the response, as JSON. */
+    @Lob
+    @Column(name = "response_body")
+    private String responseBody;
+
+    /** When the key stops being remembered, and a request with it is executed again. */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IdempotencyKeyEntity that = (IdempotencyKeyEntity) o;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? Objects.hashCode(id) : getClass().hashCode();
+    }
+}
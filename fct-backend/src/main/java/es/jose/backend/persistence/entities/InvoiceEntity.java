@@ -1,5 +1,7 @@
 package es.jose.backend.persistence.entities;
 
+import es.jose.backend.utils.Money;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -10,12 +12,12 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
-import jakarta.persistence.PostUpdate;
-import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -29,7 +31,6 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Objects;
@@ -41,7 +42,12 @@ import java.util.Set;
  * update timestamps.
  */
 @Entity
-@Table(name = "invoices")
+@Table(
+        name = "invoices",
+        indexes = {
+            @Index(name = "idx_invoices_created_at_id", columnList = "created_at, id"),
+            @Index(name = "idx_invoices_user_created_at", columnList = "user_id, created_at")
+        })
 @Getter
 @Setter
 @ToString(exclude = {"lineItems", "user"})
@@ -60,6 +66,13 @@ public class InvoiceEntity {
     @Column(name = "payment_method", nullable = false)
     private String paymentMethod;
 
+    /**
+     * The client-generated ID of the checkout that created this invoice, if any. Unique, so a
+     * retried checkout finds its invoice instead of creating another one.
+     */
+    @Column(name = "checkout_id", unique = true, length = 36)
+    private String checkoutId;
+
     /** The user associated with this invoice. Cannot be null. */
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
@@ -74,40 +87,34 @@ public class InvoiceEntity {
     /**
      * A set of line items associated with this invoice. CascadeType.ALL ensures operations like
      * persist, merge, remove are cascaded. orphanRemoval = true removes line items when they are
-     * unlinked from the invoice. FetchType.EAGER means line items are loaded eagerly with the
-     * invoice. Initializes as an empty HashSet.
+     * unlinked from the invoice. FetchType.LAZY keeps listings from loading them; the queries that
+     * need them fetch them explicitly. Initializes as an empty HashSet.
      */
     @Builder.Default
     @OneToMany(
             mappedBy = "invoice",
             cascade = CascadeType.ALL,
             orphanRemoval = true,
-            fetch = FetchType.EAGER)
+            fetch = FetchType.LAZY)
     private Set<LineItemEntity> lineItems = new HashSet<>();
 
     /**
-     * The total price of the invoice, calculated as the sum of subtotals of all line items.
-     * Defaults to BigDecimal.ZERO.
+     * The total price of the invoice, the sum of subtotals of all line items. It is kept
+     * incrementally by the database as line items are added and removed, never recomputed from the
+     * collection. Defaults to Money.ZERO.
      */
     @Column(name = "total_price", nullable = false, precision = 10, scale = 2)
     @Builder.Default
-    private BigDecimal totalPrice = BigDecimal.ZERO;
+    private Money totalPrice = Money.ZERO;
 
     /**
-     * Updates the total price of the invoice based on the sum of subtotals of its line items. This
-     * method is called before the entity is persisted and after it is updated. If the line items
-     * set is null or empty, totalPrice is set to BigDecimal.ZERO.
+     * Incremented on every change, so that a change made from a stale copy of the invoice fails
+     * instead of overwriting a concurrent one. Statements that update invoices in bulk increment it
+     * themselves.
      */
-    @PrePersist
-    @PostUpdate
-    public void updateTotalPrice() {
-        this.totalPrice =
-                (this.lineItems == null || this.lineItems.isEmpty())
-                        ? BigDecimal.ZERO
-                        : this.lineItems.stream()
-                                .map(LineItemEntity::getSubtotal)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 
     // --- Auditing Fields managed by Spring Data JPA ---
 
@@ -1,5 +1,7 @@
 package es.jose.backend.persistence.entities;
 
+import es.jose.backend.utils.Money;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
@@ -25,7 +27,6 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.io.Serializable;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.stream.Stream;
@@ -53,7 +54,7 @@ public class LineItemEntity implements Serializable {
 
     /** The calculated subtotal for this line item (quantity * priceAtPurchase). */
     @Column(name = "subtotal", nullable = false, precision = 10, scale = 2)
-    private BigDecimal subtotal;
+    private Money subtotal;
 
     /** The quantity of the item or service. */
     @Column(name = "quantity", nullable = false)
@@ -61,7 +62,7 @@ public class LineItemEntity implements Serializable {
 
     /** The price of the item or service at the time of purchase. */
     @Column(name = "price_at_purchase", nullable = false, precision = 10, scale = 2)
-    private BigDecimal priceAtPurchase;
+    private Money priceAtPurchase;
 
     /** The invoice to which this line item belongs. Cannot be null. */
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -0,0 +1,77 @@
+package es.jose.backend.persistence.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * A refresh token that was issued, by the {@code jti} claim of the token. Every refresh uses up
+ * the token and issues the next one of its family, the chain of tokens that started with a login,
+ * so a token that is used twice has been stolen and revokes its whole family.
+ */
+@Entity
+@Table(
+        name = "refresh_tokens",
+        indexes = {
+            @Index(name = "idx_refresh_tokens_family_id", columnList = "family_id"),
+            @Index(name = "idx_refresh_tokens_user_id", columnList = "user_id"),
+            @Index(name = "idx_refresh_tokens_expires_at", columnList = "expires_at")
+        })
+@Getter
+@Setter
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenEntity {
+
+    /** The {@code jti} claim of the token. */
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+
+    /** The {@code jti} of the token issued at the login the token descends from. */
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    /** The user the token was issued to. Not a foreign key, so users can be deleted. */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /** When the token expires, after which its row is deleted. */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    /** When the token was exchanged for the next one, or null if it has not been yet. */
+    @Column(name = "used_at")
+    private LocalDateTime usedAt;
+
+    /** When the token was revoked, or null if it has not been. */
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RefreshTokenEntity that = (RefreshTokenEntity) o;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? Objects.hashCode(id) : getClass().hashCode();
+    }
+}
@@ -0,0 +1,94 @@
+package es.jose.backend.persistence.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import org.openapitools.model.LineItemTypeEnum;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * The revenue of the paid invoices of a day, for one type of line item and, for products, one
+ * product category. Rows are kept up to date as invoices are paid, so revenue reports read a row
+ * per day instead of every invoice and line item. They can always be rebuilt from the invoices.
+ */
+@Entity
+@Table(
+        name = "revenue_daily_rollups",
+        uniqueConstraints =
+                @UniqueConstraint(
+                        name = "uk_revenue_daily_rollups_date_type_category",
+                        columnNames = {"revenue_date", "item_type", "category_id"}))
+@Getter
+@Setter
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueDailyRollupEntity {
+
+    /** Value of {@link #categoryId} for line items that are not for a product. */
+    public static final long NO_CATEGORY = 0L;
+
+    /** The unique identifier for the row. */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** The day the invoices were created. */
+    @Column(name = "revenue_date", nullable = false)
+    private LocalDate revenueDate;
+
+    /** Whether the line items are for appointments, products or courses. */
+    @Column(name = "item_type", nullable = false, length = 16)
+    @Enumerated(EnumType.STRING)
+    private LineItemTypeEnum itemType;
+
+    /**
+     * The product category of the line items, or {@link #NO_CATEGORY} for appointments and
+     * courses. Not nullable, so that the unique constraint applies to every row.
+     */
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    /** The sum of the subtotals of the line items. */
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    /** The sum of the quantities of the line items. */
+    @Column(name = "quantity", nullable = false)
+    private Long quantity;
+
+    /** The number of line items. */
+    @Column(name = "line_items", nullable = false)
+    private Long lineItems;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RevenueDailyRollupEntity that = (RevenueDailyRollupEntity) o;
+        return id != null && Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? Objects.hashCode(id) : getClass().hashCode();
+    }
+}
@@ -0,0 +1,58 @@
+package es.jose.backend.persistence.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * A lease on a scheduled job, so that when the application runs as several instances only the
+ * one holding the lease runs the job. A lease that is not released expires on its own, so an
+ * instance that dies while running the job does not keep the others from running it.
+ */
+@Entity
+@Table(name = "scheduler_locks")
+@Getter
+@Setter
+@ToString
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulerLockEntity {
+
+    /** The name of the job. */
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    /** The instance that last took the lease. */
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+
+    /** When the lease expires, or expired. */
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SchedulerLockEntity that = (SchedulerLockEntity) o;
+        return name != null && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name != null ? Objects.hashCode(name) : getClass().hashCode();
+    }
+}
@@ -0,0 +1,17 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.AppointmentEntity;
+
+import java.util.List;
+
+/** Bulk writes for appointments that bypass the per-entity persist cycle of JPA. */
+public interface AppointmentBatchRepository {
+
+    /**
+     * Inserts the given appointments using JDBC batches. The appointments must reference already
+     * persisted users, categories and series; their generated ids are not set back on them.
+     *
+     * @param appointments The appointments to insert.
+     */
+    void insertAll(List<AppointmentEntity> appointments);
+}
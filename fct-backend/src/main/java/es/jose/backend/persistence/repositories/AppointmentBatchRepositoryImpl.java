@@ -0,0 +1,56 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.AppointmentEntity;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link AppointmentBatchRepository}. Appointment ids are generated by an
+ * identity column, which keeps Hibernate from batching their inserts, so the rows are written
+ * directly with a batched prepared statement instead.
+ */
+@RequiredArgsConstructor
+class AppointmentBatchRepositoryImpl implements AppointmentBatchRepository {
+
+    private static final int BATCH_SIZE = 50;
+    private static final String INSERT_SQL =
+            "INSERT INTO appointments (date, start_time, duration, status, price, description,"
+                    + " user_id, category_id, series_id, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?,"
+                    + " ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<AppointmentEntity> appointments) {
+        final var now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                INSERT_SQL,
+                appointments,
+                BATCH_SIZE,
+                (ps, a) -> {
+                    ps.setDate(1, Date.valueOf(a.getDate()));
+                    ps.setTime(2, Time.valueOf(a.getStartTime()));
+                    ps.setInt(3, a.getDuration());
+                    ps.setString(4, a.getStatus().name());
+                    ps.setBigDecimal(5, a.getPrice().toBigDecimal());
+                    ps.setString(6, a.getDescription());
+                    ps.setLong(7, a.getUser().getId());
+                    ps.setLong(8, a.getCategory().getId());
+                    if (a.getSeries() != null) {
+                        ps.setLong(9, a.getSeries().getId());
+                    } else {
+                        ps.setNull(9, Types.BIGINT);
+                    }
+                    ps.setTimestamp(10, now);
+                });
+    }
+}
@@ -1,14 +1,275 @@
 package es.jose.backend.persistence.repositories;
 
 import es.jose.backend.persistence.entities.AppointmentEntity;
+import es.jose.backend.services.calendar.AppointmentCalendarEntry;
+import es.jose.backend.services.calendar.FeedStamp;
+import es.jose.backend.services.scheduling.TimeSlot;
+import es.jose.backend.utils.Money;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.openapitools.model.AppointmentStatusEnum;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface AppointmentRepository extends JpaRepository<AppointmentEntity, Long> {
+public interface AppointmentRepository
+        extends JpaRepository<AppointmentEntity, Long>, AppointmentBatchRepository {
+
+    /**
+     * Reads a page of the appointments of a date range, ordered by date and id, starting right
+     * after the given position. The position is checked as a lower bound on the date plus a tie-break
+     * on the id, so the scan seeks straight to it on the {@code (date, id)} index instead of
+     * skipping over the rows of the previous pages.
+     *
+     * @param afterDate Date of the last appointment already read, or the first day of the range.
+     * @param afterId Id of the last appointment already read, or 0 to start at {@code afterDate}.
+     * @param to Last day of the range.
+     * @param status Status to filter by, or null for any status.
+     * @param limit Maximum number of appointments to read.
+     * @return The appointments of the page.
+     */
+    @Query(
+            "SELECT a FROM AppointmentEntity a WHERE a.date >= :afterDate AND a.date <= :to AND"
+                    + " (a.date > :afterDate OR a.id > :afterId) AND (:status IS NULL OR a.status"
+                    + " = :status) ORDER BY a.date, a.id")
+    List<AppointmentEntity> findPageByDateRange(
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterId") Long afterId,
+            @Param("to") LocalDate to,
+            @Param("status") AppointmentStatusEnum status,
+            Limit limit);
+
+    /**
+     * Same as {@link #findPageByDateRange} restricted to the appointments of a user, which is
+     * served by the {@code (user_id, date)} index.
+     *
+     * @param userId Id of the user.
+     * @param afterDate Date of the last appointment already read, or the first day of the range.
+     * @param afterId Id of the last appointment already read, or 0 to start at {@code afterDate}.
+     * @param to Last day of the range.
+     * @param status Status to filter by, or null for any status.
+     * @param limit Maximum number of appointments to read.
+     * @return The appointments of the page.
+     */
+    @Query(
+            "SELECT a FROM AppointmentEntity a WHERE a.user.id = :userId AND a.date >= :afterDate"
+                    + " AND a.date <= :to AND (a.date > :afterDate OR a.id > :afterId) AND"
+                    + " (:status IS NULL OR a.status = :status) ORDER BY a.date, a.id")
+    List<AppointmentEntity> findPageByUserIdAndDateRange(
+            @Param("userId") Long userId,
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterId") Long afterId,
+            @Param("to") LocalDate to,
+            @Param("status") AppointmentStatusEnum status,
+            Limit limit);
+
+    /**
+     * Finds the distinct days that have appointments.
+     *
+     * @return The days in ascending order.
+     */
+    @Query("SELECT DISTINCT a.date FROM AppointmentEntity a ORDER BY a.date")
+    List<LocalDate> findDistinctDates();
+
+    /**
+     * Finds the time taken by the appointments of a day, skipping those with the given status.
+     *
+     * @param date The day to look up.
+     * @param excluded Status of the appointments that do not take up time.
+     * @return The booked slots of the day.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.scheduling.TimeSlot(a.date, a.startTime,"
+                    + " a.duration) FROM AppointmentEntity a WHERE a.date = :date AND a.status"
+                    + " <> :excluded")
+    List<TimeSlot> findBookedSlotsByDate(
+            @Param("date") LocalDate date, @Param("excluded") AppointmentStatusEnum excluded);
+
+    List<AppointmentEntity> findBySeriesIdOrderByDateAscIdAsc(Long seriesId);
+
+    /**
+     * Finds the time taken by the appointments of a series from the given day on, skipping those
+     * with the given status.
+     *
+     * @param seriesId Id of the series.
+     * @param from First day to look up.
+     * @param excluded Status of the appointments that do not take up time.
+     * @return The booked slots of the series.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.scheduling.TimeSlot(a.date, a.startTime,"
+                    + " a.duration) FROM AppointmentEntity a WHERE a.series.id = :seriesId AND"
+                    + " a.date >= :from AND a.status <> :excluded ORDER BY a.date")
+    List<TimeSlot> findBookedSlotsBySeries(
+            @Param("seriesId") Long seriesId,
+            @Param("from") LocalDate from,
+            @Param("excluded") AppointmentStatusEnum excluded);
+
+    /**
+     * Applies the same changes to every appointment of a series from the given day on, skipping
+     * those with the given status, in a single statement. Appointments whose time changes are
+     * reminded again; the reminder is reset first, while the old time is still in place.
+     *
+     * @param seriesId Id of the series.
+     * @param from First day to update.
+     * @param excluded Status of the appointments to leave untouched.
+     * @param description New description.
+     * @param startTime New start time.
+     * @param duration New duration.
+     * @param price New price.
+     * @return The number of appointments updated.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+            "UPDATE AppointmentEntity a SET a.reminderSentAt = CASE WHEN a.startTime <>"
+                    + " :startTime OR a.duration <> :duration THEN NULL ELSE a.reminderSentAt END,"
+                    + " a.description = :description, a.startTime = :startTime, a.duration ="
+                    + " :duration, a.price = :price, a.updatedAt = LOCAL_DATETIME WHERE"
+                    + " a.series.id = :seriesId AND a.date >= :from AND a.status <> :excluded")
+    int updateUpcomingBySeries(
+            @Param("seriesId") Long seriesId,
+            @Param("from") LocalDate from,
+            @Param("excluded") AppointmentStatusEnum excluded,
+            @Param("description") String description,
+            @Param("startTime") LocalTime startTime,
+            @Param("duration") Integer duration,
+            @Param("price") Money price);
+
+    /**
+     * Sets the status of every appointment of a series from the given day on in a single
+     * statement.
+     *
+     * @param seriesId Id of the series.
+     * @param from First day to update.
+     * @param status New status.
+     * @return The number of appointments updated.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+            "UPDATE AppointmentEntity a SET a.status = :status, a.updatedAt = LOCAL_DATETIME"
+                    + " WHERE a.series.id = :seriesId AND a.date >= :from AND a.status <>"
+                    + " :status")
+    int updateUpcomingStatusBySeries(
+            @Param("seriesId") Long seriesId,
+            @Param("from") LocalDate from,
+            @Param("status") AppointmentStatusEnum status);
+
+    /**
+     * Reads a page of the appointments of a day that still need a reminder, ordered by id and
+     * starting right after the given one. Users and categories are fetched along so the reminders
+     * can be rendered without further queries.
+     *
+     * @param date The day of the appointments.
+     * @param afterId Id of the last appointment already read, or 0 to start from the beginning.
+     * @param excluded Status of the appointments that get no reminder.
+     * @param limit Maximum number of appointments to read.
+     * @return The appointments of the page.
+     */
+    @Query(
+            "SELECT a FROM AppointmentEntity a JOIN FETCH a.user JOIN FETCH a.category WHERE"
+                    + " a.date = :date AND a.id > :afterId AND a.status <> :excluded AND"
+                    + " a.reminderSentAt IS NULL ORDER BY a.id")
+    List<AppointmentEntity> findPendingReminders(
+            @Param("date") LocalDate date,
+            @Param("afterId") Long afterId,
+            @Param("excluded") AppointmentStatusEnum excluded,
+            Limit limit);
+
+    /**
+     * Records that the reminders of the given appointments have been sent.
+     *
+     * @param ids Ids of the appointments.
+     * @param sentAt When the reminders were sent.
+     * @return The number of appointments updated.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE AppointmentEntity a SET a.reminderSentAt = :sentAt WHERE a.id IN :ids")
+    int markRemindersSent(@Param("ids") List<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * Summarizes the appointments of a date range, to version a calendar feed.
+     *
+     * @param from First day of the range.
+     * @param to Last day of the range.
+     * @return The number of appointments and their latest modification.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.calendar.FeedStamp(COUNT(a), MAX(a.updatedAt))"
+                    + " FROM AppointmentEntity a WHERE a.date BETWEEN :from AND :to")
+    FeedStamp findFeedStamp(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Summarizes the appointments of a user in a date range, to version a calendar feed.
+     *
+     * @param userId Id of the user.
+     * @param from First day of the range.
+     * @param to Last day of the range.
+     * @return The number of appointments and their latest modification.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.calendar.FeedStamp(COUNT(a), MAX(a.updatedAt))"
+                    + " FROM AppointmentEntity a WHERE a.user.id = :userId AND a.date BETWEEN"
+                    + " :from AND :to")
+    FeedStamp findFeedStampByUserId(
+            @Param("userId") Long userId,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    /**
+     * Streams the calendar entries of the appointments of a date range. Only the columns needed
+     * for the calendar are read, and rows are fetched from the database as the stream is consumed.
+     * Must be consumed and closed within a transaction.
+     *
+     * @param from First day of the range.
+     * @param to Last day of the range.
+     * @return The calendar entries, ordered by date and id.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(
+            "SELECT new es.jose.backend.services.calendar.AppointmentCalendarEntry(a.id, a.date,"
+                    + " a.startTime, a.duration, a.status, a.description, c.name, a.updatedAt) FROM"
+                    + " AppointmentEntity a JOIN a.category c WHERE a.date BETWEEN :from AND :to"
+                    + " ORDER BY a.date, a.id")
+    Stream<AppointmentCalendarEntry> streamCalendarEntries(
+            @Param("from") LocalDate from, @Param("to") LocalDate to);
 
-    List<AppointmentEntity> findByUserId(Long userId);
+    /**
+     * Same as {@link #streamCalendarEntries} restricted to the appointments of a user.
+     *
+     * @param userId Id of the user.
+     * @param from First day of the range.
+     * @param to Last day of the range.
+     * @return The calendar entries, ordered by date and id.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(
+            "SELECT new es.jose.backend.services.calendar.AppointmentCalendarEntry(a.id, a.date,"
+                    + " a.startTime, a.duration, a.status, a.description, c.name, a.updatedAt) FROM"
+                    + " AppointmentEntity a JOIN a.category c WHERE a.user.id = :userId AND a.date"
+                    + " BETWEEN :from AND :to ORDER BY a.date, a.id")
+    Stream<AppointmentCalendarEntry> streamCalendarEntriesByUserId(
+            @Param("userId") Long userId,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
 }
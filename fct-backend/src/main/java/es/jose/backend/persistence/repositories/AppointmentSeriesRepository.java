@@ -0,0 +1,10 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.AppointmentSeriesEntity;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AppointmentSeriesRepository
+        extends JpaRepository<AppointmentSeriesEntity, Long> {}
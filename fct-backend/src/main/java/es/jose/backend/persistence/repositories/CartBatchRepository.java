@@ -0,0 +1,40 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.keys.CartKey;
+import es.jose.backend.services.cart.CartLine;
+
+import java.util.List;
+
+/** Bulk writes for cart lines that bypass the per-entity persist cycle of JPA. */
+public interface CartBatchRepository {
+
+    /**
+     * Adds the quantity of each given cart line to the line in the table, inserting the lines
+     * that are not in the table yet, using a JDBC batch of native upserts. The users and products
+     * must exist.
+     *
+     * @param lines The cart lines, with the quantity to add.
+     * @throws org.springframework.dao.OptimisticLockingFailureException if a concurrent
+     *     transaction inserted one of the lines first and the database could not merge them;
+     *     retrying the transaction adds to the line it inserted.
+     */
+    void addAllQuantities(List<CartLine> lines);
+
+    /**
+     * Sets the quantity of the given cart lines using a JDBC batch of native upserts, inserting
+     * the lines that are not in the table yet. The users and products must exist.
+     *
+     * @param lines The cart lines to write.
+     * @throws org.springframework.dao.OptimisticLockingFailureException if a concurrent
+     *     transaction inserted one of the lines first and the database could not merge them.
+     */
+    void saveAllLines(List<CartLine> lines);
+
+    /**
+     * Deletes the given cart lines using JDBC batches. Lines that are not in the table are
+     * ignored.
+     *
+     * @param ids The ids of the cart lines to delete.
+     */
+    void deleteAllLines(List<CartKey> ids);
+}
@@ -0,0 +1,130 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.keys.CartKey;
+import es.jose.backend.services.cart.CartLine;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link CartBatchRepository}. A line is added or written in a single
+ * statement, whether or not it exists yet: {@code INSERT ... ON DUPLICATE KEY UPDATE} on MariaDB
+ * and {@code MERGE} on H2, picked from the database the first time it is needed. Lines are written
+ * in key order, so that concurrent batches lock them in the same order.
+ *
+ * <p>MariaDB merges concurrent inserts of the same line. H2 does not, so there the second insert
+ * fails on the primary key and is reported as a lost optimistic lock, to be retried.
+ */
+@RequiredArgsConstructor
+class CartBatchRepositoryImpl implements CartBatchRepository {
+
+    private static final int BATCH_SIZE = 50;
+    private static final String DELETE_SQL =
+            "DELETE FROM carts WHERE user_id = ? AND product_id = ?";
+    private static final Comparator<CartLine> BY_KEY =
+            Comparator.comparing(CartLine::userId).thenComparing(CartLine::productId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Upserts upserts;
+
+    @Override
+    public void addAllQuantities(List<CartLine> lines) {
+        upsert(upserts().addSql, lines);
+    }
+
+    @Override
+    public void saveAllLines(List<CartLine> lines) {
+        upsert(upserts().saveSql, lines);
+    }
+
+    @Override
+    public void deleteAllLines(List<CartKey> ids) {
+        jdbcTemplate.batchUpdate(
+                DELETE_SQL,
+                ids,
+                BATCH_SIZE,
+                (ps, id) -> {
+                    ps.setLong(1, id.getUserId());
+                    ps.setLong(2, id.getProductId());
+                });
+    }
+
+    private void upsert(String sql, List<CartLine> lines) {
+        final var now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.batchUpdate(
+                    sql,
+                    lines.stream().sorted(BY_KEY).toList(),
+                    BATCH_SIZE,
+                    (ps, line) -> {
+                        ps.setLong(1, line.userId());
+                        ps.setLong(2, line.productId());
+                        ps.setInt(3, line.quantity());
+                        ps.setTimestamp(4, now);
+                    });
+        } catch (DuplicateKeyException e) {
+            throw new OptimisticLockingFailureException("Cart lines were added concurrently", e);
+        }
+    }
+
+    private Upserts upserts() {
+        var result = upserts;
+        if (result == null) {
+            final var database =
+                    jdbcTemplate.execute(
+                            (ConnectionCallback<String>)
+                                    connection ->
+                                            connection.getMetaData().getDatabaseProductName());
+            result = "H2".equalsIgnoreCase(database) ? Upserts.H2 : Upserts.MARIADB;
+            upserts = result;
+        }
+        return result;
+    }
+
+    /**
+     * The upserts of a database, binding the user ID, product ID, quantity and time of the change
+     * in that order.
+     */
+    private enum Upserts {
+        MARIADB(
+                mariaDbUpsert("quantity + VALUES(quantity)"),
+                mariaDbUpsert("VALUES(quantity)")),
+        H2(h2Merge("c.quantity + s.quantity"), h2Merge("s.quantity"));
+
+        private final String addSql;
+        private final String saveSql;
+
+        Upserts(String addSql, String saveSql) {
+            this.addSql = addSql;
+            this.saveSql = saveSql;
+        }
+
+        private static String mariaDbUpsert(String quantity) {
+            return "INSERT INTO carts (user_id, product_id, quantity, version, touched_at) VALUES"
+                    + " (?, ?, ?, 0, ?) ON DUPLICATE KEY UPDATE quantity = "
+                    + quantity
+                    + ", version = version + 1, touched_at = VALUES(touched_at)";
+        }
+
+        private static String h2Merge(String quantity) {
+            return "MERGE INTO carts c USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT),"
+                    + " CAST(? AS INTEGER), CAST(? AS TIMESTAMP))) s (user_id, product_id,"
+                    + " quantity, touched_at) ON c.user_id = s.user_id AND c.product_id ="
+                    + " s.product_id WHEN MATCHED THEN UPDATE SET quantity = "
+                    + quantity
+                    + ", version = c.version + 1, touched_at = s.touched_at WHEN NOT MATCHED THEN"
+                    + " INSERT (user_id, product_id, quantity, version, touched_at) VALUES"
+                    + " (s.user_id, s.product_id, s.quantity, 0, s.touched_at)";
+        }
+    }
+}
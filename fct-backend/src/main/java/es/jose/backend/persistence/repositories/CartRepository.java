@@ -3,12 +3,116 @@ package es.jose.backend.persistence.repositories;
 import es.jose.backend.persistence.entities.CartEntity;
 import es.jose.backend.persistence.entities.UserEntity;
 import es.jose.backend.persistence.entities.keys.CartKey;
+import es.jose.backend.services.cart.CartLine;
+import es.jose.backend.services.cart.PricedCartLine;
+import es.jose.backend.services.checkout.CheckoutLine;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface CartRepository extends JpaRepository<CartEntity, CartKey> {
+public interface CartRepository extends JpaRepository<CartEntity, CartKey>, CartBatchRepository {
 
     List<CartEntity> findAllByUser(UserEntity user);
+
+    /**
+     * Reads the cart of a user without loading the user or the products, ordered by product id.
+     *
+     * @param userId Id of the user.
+     * @return The lines of the cart.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.cart.CartLine(c.id.userId, c.id.productId,"
+                    + " c.quantity) FROM CartEntity c WHERE c.id.userId = :userId ORDER BY"
+                    + " c.id.productId")
+    List<CartLine> findLinesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Reads the quantity of a product in the cart of a user.
+     *
+     * @param userId Id of the user.
+     * @param productId Id of the product.
+     * @return The quantity, if the product is in the cart.
+     */
+    @Query(
+            "SELECT c.quantity FROM CartEntity c WHERE c.id.userId = :userId AND c.id.productId ="
+                    + " :productId")
+    Optional<Integer> findQuantityById(
+            @Param("userId") Long userId, @Param("productId") Long productId);
+
+    /**
+     * Reads the cart of a user along with the price and VAT of each product in a single query,
+     * ordered by product id.
+     *
+     * @param userId Id of the user.
+     * @return The lines of the cart.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.checkout.CheckoutLine(p.id, c.quantity, p.price,"
+                    + " pc.vatPercentage) FROM CartEntity c JOIN c.product p JOIN"
+                    + " p.productCategory pc WHERE c.id.userId = :userId ORDER BY p.id")
+    List<CheckoutLine> findCheckoutLinesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Reads the cart of a user along with the name, price, VAT and stock of each product in a
+     * single query, ordered by product id.
+     *
+     * @param userId Id of the user.
+     * @return The lines of the cart.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.cart.PricedCartLine(p.id, p.name, c.quantity,"
+                    + " p.price, pc.vatPercentage, p.stock) FROM CartEntity c JOIN c.product p"
+                    + " JOIN p.productCategory pc WHERE c.id.userId = :userId ORDER BY p.id")
+    List<PricedCartLine> findPricedLinesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Finds the users whose carts have not been touched since the given time, in order of user
+     * id, starting after a given user so that a sweep can page through them.
+     *
+     * @param afterUserId Id of the last user of the previous page, or 0 for the first page.
+     * @param idleSince Carts last touched before this time are idle.
+     * @param limit The maximum number of users to return.
+     * @return The ids of the users.
+     */
+    @Query(
+            "SELECT c.id.userId FROM CartEntity c WHERE c.id.userId > :afterUserId GROUP BY"
+                    + " c.id.userId HAVING MAX(c.touchedAt) < :idleSince ORDER BY c.id.userId")
+    List<Long> findIdleUserIds(
+            @Param("afterUserId") Long afterUserId,
+            @Param("idleSince") LocalDateTime idleSince,
+            Limit limit);
+
+    /**
+     * Deletes, in a single statement, the cart lines of the given users that have not been
+     * touched since the given time. Lines touched in the meantime are kept.
+     *
+     * @param userIds Ids of the users.
+     * @param idleSince Lines last touched before this time are deleted.
+     * @return The number of lines deleted.
+     */
+    @Modifying
+    @Query(
+            "DELETE FROM CartEntity c WHERE c.id.userId IN :userIds AND c.touchedAt <"
+                    + " :idleSince")
+    int deleteIdleLines(
+            @Param("userIds") Collection<Long> userIds,
+            @Param("idleSince") LocalDateTime idleSince);
+
+    /**
+     * Empties the cart of a user in a single statement.
+     *
+     * @param userId Id of the user.
+     * @return The number of products removed from the cart.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CartEntity c WHERE c.id.userId = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
 }
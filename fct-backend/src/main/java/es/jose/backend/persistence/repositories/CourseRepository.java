@@ -1,11 +1,22 @@
 package es.jose.backend.persistence.repositories;
 
 import es.jose.backend.persistence.entities.CourseEntity;
+import es.jose.backend.services.calendar.CourseCalendarEntry;
+import es.jose.backend.services.calendar.FeedStamp;
 
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+import org.openapitools.model.UserCourseEnrollmentStatusEnum;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface CourseRepository extends JpaRepository<CourseEntity, Long> {
@@ -26,4 +37,81 @@ public interface CourseRepository extends JpaRepository<CourseEntity, Long> {
      * @return A Set of CourseEntity instances associated with the user.
      */
     // List<CourseEntity> findByUsersContaining(UserEntity user);
+
+    /**
+     * Summarizes the courses that overlap a date range, to version a calendar feed.
+     *
+     * @param from First day of the range.
+     * @param to Last day of the range.
+     * @return The number of courses and their latest modification.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.calendar.FeedStamp(COUNT(c), MAX(c.updatedAt))"
+                    + " FROM CourseEntity c WHERE c.endDate >= :from AND c.startDate <= :to")
+    FeedStamp findFeedStamp(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Summarizes the courses a user is enrolled in that overlap a date range, to version a
+     * calendar feed.
+     *
+     * @param userId Id of the user.
+     * @param status Enrollment status of the courses to include.
+     * @param from First day of the range.
+     * @param to Last day of the range.
+     * @return The number of courses and their latest modification.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.calendar.FeedStamp(COUNT(c), MAX(c.updatedAt))"
+                    + " FROM CourseUserEntity cu JOIN cu.course c WHERE cu.user.id = :userId AND"
+                    + " cu.status = :status AND c.endDate >= :from AND c.startDate <= :to")
+    FeedStamp findFeedStampByUserId(
+            @Param("userId") Long userId,
+            @Param("status") UserCourseEnrollmentStatusEnum status,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
+
+    /**
+     * Streams the calendar entries of the courses that overlap a date range. Must be consumed and
+     * closed within a transaction.
+     *
+     * @param from First day of the range.
+     * @param to Last day of the range.
+     * @return The calendar entries, ordered by start date and id.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(
+            "SELECT new es.jose.backend.services.calendar.CourseCalendarEntry(c.id, c.startDate,"
+                    + " c.endDate, c.description, cc.name, c.updatedAt) FROM CourseEntity c JOIN"
+                    + " c.category cc WHERE c.endDate >= :from AND c.startDate <= :to ORDER BY"
+                    + " c.startDate, c.id")
+    Stream<CourseCalendarEntry> streamCalendarEntries(
+            @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Same as {@link #streamCalendarEntries} restricted to the courses a user is enrolled in.
+     *
+     * @param userId Id of the user.
+     * @param status Enrollment status of the courses to include.
+     * @param from First day of the range.
+     * @param to Last day of the range.
+     * @return The calendar entries, ordered by start date and id.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(
+            "SELECT new es.jose.backend.services.calendar.CourseCalendarEntry(c.id, c.startDate,"
+                    + " c.endDate, c.description, cc.name, c.updatedAt) FROM CourseUserEntity cu"
+                    + " JOIN cu.course c JOIN c.category cc WHERE cu.user.id = :userId AND"
+                    + " cu.status = :status AND c.endDate >= :from AND c.startDate <= :to ORDER BY"
+                    + " c.startDate, c.id")
+    Stream<CourseCalendarEntry> streamCalendarEntriesByUserId(
+            @Param("userId") Long userId,
+            @Param("status") UserCourseEnrollmentStatusEnum status,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to);
 }
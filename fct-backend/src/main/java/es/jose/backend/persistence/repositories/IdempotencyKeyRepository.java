@@ -0,0 +1,42 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.IdempotencyKeyEntity;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, Long> {
+
+    Optional<IdempotencyKeyEntity> findByKeyHash(byte[] keyHash);
+
+    /**
+     * Deletes, in a single statement, the keys that expired before the given time.
+     *
+     * @param now The current time.
+     * @return The number of keys deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKeyEntity k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    /**
+     * Deletes a key if it has expired, so that its request can be executed again.
+     *
+     * @param id Id of the key.
+     * @param now The current time.
+     * @return The number of keys deleted, 0 if it has not expired or no longer exists.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKeyEntity k WHERE k.id = :id AND k.expiresAt < :now")
+    int deleteIfExpired(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
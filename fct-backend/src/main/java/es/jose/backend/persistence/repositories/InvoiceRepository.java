@@ -1,12 +1,98 @@
 package es.jose.backend.persistence.repositories;
 
+import es.jose.backend.persistence.entities.InvoiceEntity;
+import es.jose.backend.services.invoicing.InvoiceTotalMismatch;
+import es.jose.backend.utils.Money;
+
+import org.openapitools.model.InvoiceStatusEnum;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import es.jose.backend.persistence.entities.InvoiceEntity;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface InvoiceRepository extends JpaRepository<InvoiceEntity, Long>, JpaSpecificationExecutor<InvoiceEntity> {
+public interface InvoiceRepository
+        extends JpaRepository<InvoiceEntity, Long>, JpaSpecificationExecutor<InvoiceEntity> {
+
+    /**
+     * Finds an invoice along with its user and line items in a single query, for rendering it.
+     *
+     * @param id Id of the invoice.
+     * @return The invoice, if it exists.
+     */
+    @EntityGraph(attributePaths = {"user", "lineItems"})
+    Optional<InvoiceEntity> findWithLineItemsById(Long id);
+
+    Optional<InvoiceEntity> findByCheckoutId(String checkoutId);
+
+    /**
+     * Finds the IDs of the invoices created within a period, in order of creation.
+     *
+     * @param from Start of the period, inclusive.
+     * @param to End of the period, exclusive.
+     * @param status Status of the invoices, or null for any status.
+     * @return The IDs of the invoices.
+     */
+    @Query(
+            "SELECT i.id FROM InvoiceEntity i WHERE i.createdAt >= :from AND i.createdAt < :to"
+                    + " AND (:status IS NULL OR i.status = :status) ORDER BY i.createdAt, i.id")
+    List<Long> findIdsCreatedBetween(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("status") InvoiceStatusEnum status);
+
+    /**
+     * Adds an amount to the total of an invoice in a single statement, so the total is kept up to
+     * date without loading the invoice or its line items, and concurrent changes are not lost. The
+     * version of the invoice is bumped, so a concurrent update of the loaded invoice fails instead
+     * of writing back a stale total.
+     *
+     * @param id Id of the invoice.
+     * @param amount Amount to add, negative to subtract.
+     * @return The number of invoices updated, 0 if the invoice does not exist.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(
+            "UPDATE InvoiceEntity i SET i.totalPrice = i.totalPrice + :amount, i.updatedAt ="
+                    + " LOCAL_DATETIME, i.version = i.version + 1 WHERE i.id = :id")
+    int addToTotalPrice(@Param("id") Long id, @Param("amount") Money amount);
+
+    /**
+     * Finds, in a single grouped query, every invoice whose stored total differs from the sum of
+     * the subtotals of its line items.
+     *
+     * @return The mismatching invoices.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.invoicing.InvoiceTotalMismatch(i.id, i.totalPrice,"
+                    + " COALESCE(SUM(li.subtotal), 0)) FROM InvoiceEntity i LEFT JOIN i.lineItems"
+                    + " li GROUP BY i.id, i.totalPrice HAVING i.totalPrice <>"
+                    + " COALESCE(SUM(li.subtotal), 0)")
+    List<InvoiceTotalMismatch> findTotalMismatches();
 
+    /**
+     * Sets the total of the given invoices back to the sum of the subtotals of their line items,
+     * bumping their versions and their modification time, so that PDFs cached for the wrong total
+     * are no longer served.
+     *
+     * @param ids Ids of the invoices.
+     * @return The number of invoices updated.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+            "UPDATE InvoiceEntity i SET i.totalPrice = (SELECT COALESCE(SUM(li.subtotal), 0) FROM"
+                    + " LineItemEntity li WHERE li.invoice.id = i.id), i.updatedAt ="
+                    + " LOCAL_DATETIME, i.version = i.version + 1 WHERE i.id IN :ids")
+    int recalculateTotalPrices(@Param("ids") Collection<Long> ids);
 }
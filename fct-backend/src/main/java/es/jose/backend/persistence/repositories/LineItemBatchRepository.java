@@ -0,0 +1,17 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.LineItemEntity;
+
+import java.util.List;
+
+/** Bulk writes for line items that bypass the per-entity persist cycle of JPA. */
+public interface LineItemBatchRepository {
+
+    /**
+     * Inserts the given product line items using JDBC batches. The line items must reference an
+     * already persisted invoice and product; their generated ids are not set back on them.
+     *
+     * @param lineItems The line items to insert.
+     */
+    void insertAll(List<LineItemEntity> lineItems);
+}
@@ -0,0 +1,44 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.LineItemEntity;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link LineItemBatchRepository}. Line item ids are generated by an
+ * identity column, which keeps Hibernate from batching their inserts, so the rows are written
+ * directly with a batched prepared statement instead.
+ */
+@RequiredArgsConstructor
+class LineItemBatchRepositoryImpl implements LineItemBatchRepository {
+
+    private static final int BATCH_SIZE = 50;
+    private static final String INSERT_SQL =
+            "INSERT INTO line_items (subtotal, quantity, price_at_purchase, invoice_id, product_id,"
+                    + " created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<LineItemEntity> lineItems) {
+        final var now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                INSERT_SQL,
+                lineItems,
+                BATCH_SIZE,
+                (ps, li) -> {
+                    ps.setBigDecimal(1, li.getSubtotal().toBigDecimal());
+                    ps.setInt(2, li.getQuantity());
+                    ps.setBigDecimal(3, li.getPriceAtPurchase().toBigDecimal());
+                    ps.setLong(4, li.getInvoice().getId());
+                    ps.setLong(5, li.getProduct().getId());
+                    ps.setTimestamp(6, now);
+                });
+    }
+}
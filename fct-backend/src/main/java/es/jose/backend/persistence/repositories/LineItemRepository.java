@@ -8,7 +8,8 @@ import org.springframework.stereotype.Repository;
 import es.jose.backend.persistence.entities.LineItemEntity;
 
 @Repository
-public interface LineItemRepository extends JpaRepository<LineItemEntity, Long> {
+public interface LineItemRepository
+        extends JpaRepository<LineItemEntity, Long>, LineItemBatchRepository {
 
     List<LineItemEntity> findAllByInvoiceId(Long invoiceId);
 
@@ -7,7 +7,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.List;
 
-public interface ProductRepository extends JpaRepository<ProductEntity, Long> {
+public interface ProductRepository
+        extends JpaRepository<ProductEntity, Long>, ProductStockRepository {
 
     List<ProductEntity> findAllByProductCategory(ProductCategoryEntity productCategory);
 
@@ -0,0 +1,19 @@
+package es.jose.backend.persistence.repositories;
+
+import java.util.List;
+import java.util.SortedMap;
+
+/** Bulk stock updates for products that bypass the per-entity persist cycle of JPA. */
+public interface ProductStockRepository {
+
+    /**
+     * Takes the given quantities out of the stock of their products using a JDBC batch. Each
+     * product is only updated if it has enough stock, so stock never goes negative and no row has
+     * to be read and locked beforehand.
+     *
+     * @param quantities The quantity to take out of each product, by product id. Updating in id
+     *     order keeps concurrent checkouts from deadlocking on each other's rows.
+     * @return The ids of the products that did not have enough stock, and were not updated.
+     */
+    List<Long> decrementStock(SortedMap<Long, Integer> quantities);
+}
@@ -0,0 +1,51 @@
+package es.jose.backend.persistence.repositories;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+/** JDBC implementation of {@link ProductStockRepository}. */
+@RequiredArgsConstructor
+class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final int BATCH_SIZE = 50;
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock = stock - ?, updated_at = ? WHERE id = ? AND stock >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> decrementStock(SortedMap<Long, Integer> quantities) {
+        final var now = Timestamp.valueOf(LocalDateTime.now());
+        final var entries = List.copyOf(quantities.entrySet());
+        final var counts =
+                jdbcTemplate.batchUpdate(
+                        DECREMENT_SQL,
+                        entries,
+                        BATCH_SIZE,
+                        (ps, entry) -> {
+                            ps.setInt(1, entry.getValue());
+                            ps.setTimestamp(2, now);
+                            ps.setLong(3, entry.getKey());
+                            ps.setInt(4, entry.getValue());
+                        });
+
+        final var outOfStock = new ArrayList<Long>();
+        var index = 0;
+        for (var batch : counts) {
+            for (var count : batch) {
+                if (count == 0) {
+                    outOfStock.add(entries.get(index).getKey());
+                }
+                index++;
+            }
+        }
+        return outOfStock;
+    }
+}
@@ -0,0 +1,93 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.RefreshTokenEntity;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshTokenEntity, String> {
+
+    /**
+     * Registers an issued token. Inserted natively, since saving an entity with an assigned id
+     * would first look it up.
+     *
+     * @param id The {@code jti} of the token.
+     * @param familyId The {@code jti} of the first token of its family.
+     * @param userId The user the token was issued to.
+     * @param expiresAt When the token expires.
+     * @return 1, the number of tokens registered.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            value =
+                    "INSERT INTO refresh_tokens (id, family_id, user_id, expires_at) VALUES (:id,"
+                            + " :familyId, :userId, :expiresAt)",
+            nativeQuery = true)
+    int create(
+            @Param("id") String id,
+            @Param("familyId") String familyId,
+            @Param("userId") Long userId,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Uses up a token in a single statement by its primary key, if it has not been used, revoked
+     * or expired, so that two refreshes with the same token cannot both succeed.
+     *
+     * @param id The {@code jti} of the token.
+     * @param now The current time.
+     * @return 1 if the token was used up, 0 if it could not be used.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "UPDATE RefreshTokenEntity t SET t.usedAt = :now WHERE t.id = :id AND t.usedAt IS NULL"
+                    + " AND t.revokedAt IS NULL AND t.expiresAt > :now")
+    int use(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /**
+     * Revokes every token of a family.
+     *
+     * @param familyId The {@code jti} of the first token of the family.
+     * @param now The current time.
+     * @return The number of tokens revoked.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "UPDATE RefreshTokenEntity t SET t.revokedAt = :now WHERE t.familyId = :familyId AND"
+                    + " t.revokedAt IS NULL")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
+
+    /**
+     * Revokes every token of a user.
+     *
+     * @param userId The user.
+     * @param now The current time.
+     * @return The number of tokens revoked.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "UPDATE RefreshTokenEntity t SET t.revokedAt = :now WHERE t.userId = :userId AND"
+                    + " t.revokedAt IS NULL")
+    int revokeUser(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * Deletes, in a single statement, the tokens that expired before the given time.
+     *
+     * @param now The current time.
+     * @return The number of tokens deleted.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshTokenEntity t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
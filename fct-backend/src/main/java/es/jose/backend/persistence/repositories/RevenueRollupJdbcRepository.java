@@ -0,0 +1,55 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.services.reporting.RevenueRollupDelta;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Grouped reads of invoice revenue and writes to the daily revenue rollups, in plain SQL so that
+ * the sums are computed by the database instead of loading line items.
+ */
+public interface RevenueRollupJdbcRepository {
+
+    /**
+     * Adds up the line items of an invoice, whatever its status, by the rollup row they belong to.
+     *
+     * @param invoiceId The ID of the invoice.
+     * @return One delta per rollup row, empty if the invoice has no line items.
+     */
+    List<RevenueRollupDelta> findInvoiceRevenue(Long invoiceId);
+
+    /**
+     * Finds what a line item adds to the rollups, if its invoice is paid.
+     *
+     * @param lineItemId The ID of the line item.
+     * @return The delta of the line item, empty if its invoice is not paid.
+     */
+    List<RevenueRollupDelta> findPaidLineItemRevenue(Long lineItemId);
+
+    /**
+     * Adds the given amounts to their rollup rows, creating the rows that do not exist yet. Each
+     * row is changed with a single relative update, so concurrent payments are not lost, and rows
+     * are updated in key order so that they do not deadlock on each other.
+     *
+     * @param deltas The amounts to add.
+     */
+    void addToRollups(List<RevenueRollupDelta> deltas);
+
+    /**
+     * Recomputes the rollups of a period from the paid invoices created in it, with a single
+     * grouped {@code INSERT ... SELECT}.
+     *
+     * @param from The first day to rebuild.
+     * @param to The last day to rebuild.
+     * @return The number of rollup rows written.
+     */
+    int rebuildRollups(LocalDate from, LocalDate to);
+
+    /**
+     * Recomputes every rollup from the paid invoices.
+     *
+     * @return The number of rollup rows written.
+     */
+    int rebuildAllRollups();
+}
@@ -0,0 +1,138 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.services.reporting.RevenueRollupDelta;
+
+import lombok.RequiredArgsConstructor;
+
+import org.openapitools.model.InvoiceStatusEnum;
+import org.openapitools.model.LineItemTypeEnum;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link RevenueRollupJdbcRepository}. The statements only use SQL that
+ * MariaDB and H2 share, so a row is created by an insert after an update that matched nothing,
+ * and updated again if a concurrent transaction inserted it first.
+ */
+@RequiredArgsConstructor
+class RevenueRollupJdbcRepositoryImpl implements RevenueRollupJdbcRepository {
+
+    private static final String DATE = "CAST(i.created_at AS DATE)";
+    private static final String ITEM_TYPE =
+            "CASE WHEN li.product_id IS NOT NULL THEN 'PRODUCT'"
+                    + " WHEN li.course_id IS NOT NULL THEN 'COURSE' ELSE 'APPOINTMENT' END";
+    private static final String CATEGORY = "COALESCE(p.product_category_id, 0)";
+    private static final String GROUPED_SELECT =
+            "SELECT "
+                    + DATE
+                    + ", "
+                    + ITEM_TYPE
+                    + ", "
+                    + CATEGORY
+                    + ", SUM(li.subtotal), SUM(li.quantity), COUNT(*) FROM invoices i"
+                    + " JOIN line_items li ON li.invoice_id = i.id"
+                    + " LEFT JOIN products p ON p.id = li.product_id WHERE %s GROUP BY "
+                    + DATE
+                    + ", "
+                    + ITEM_TYPE
+                    + ", "
+                    + CATEGORY;
+    private static final String INSERT_SELECT =
+            "INSERT INTO revenue_daily_rollups (revenue_date, item_type, category_id, revenue,"
+                    + " quantity, line_items) "
+                    + GROUPED_SELECT;
+    private static final String PAID = "i.status = '" + InvoiceStatusEnum.PAID.name() + "'";
+    private static final String UPDATE_SQL =
+            "UPDATE revenue_daily_rollups SET revenue = revenue + ?, quantity = quantity + ?,"
+                    + " line_items = line_items + ? WHERE revenue_date = ? AND item_type = ?"
+                    + " AND category_id = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO revenue_daily_rollups (revenue_date, item_type, category_id, revenue,"
+                    + " quantity, line_items) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final RowMapper<RevenueRollupDelta> DELTA_MAPPER =
+            (rs, rowNum) ->
+                    new RevenueRollupDelta(
+                            rs.getDate(1).toLocalDate(),
+                            LineItemTypeEnum.valueOf(rs.getString(2)),
+                            rs.getLong(3),
+                            rs.getBigDecimal(4),
+                            rs.getLong(5),
+                            rs.getLong(6));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<RevenueRollupDelta> findInvoiceRevenue(Long invoiceId) {
+        return jdbcTemplate.query(
+                GROUPED_SELECT.formatted("i.id = ?"), DELTA_MAPPER, invoiceId);
+    }
+
+    @Override
+    public List<RevenueRollupDelta> findPaidLineItemRevenue(Long lineItemId) {
+        return jdbcTemplate.query(
+                GROUPED_SELECT.formatted("li.id = ? AND " + PAID), DELTA_MAPPER, lineItemId);
+    }
+
+    @Override
+    public void addToRollups(List<RevenueRollupDelta> deltas) {
+        deltas.stream()
+                .filter(delta -> delta.lineItems() != 0)
+                .sorted(RevenueRollupDelta.BY_ROW)
+                .forEach(this::addToRollup);
+    }
+
+    private void addToRollup(RevenueRollupDelta delta) {
+        if (update(delta) > 0) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.update(
+                    INSERT_SQL,
+                    Date.valueOf(delta.revenueDate()),
+                    delta.itemType().name(),
+                    delta.categoryId(),
+                    delta.revenue(),
+                    delta.quantity(),
+                    delta.lineItems());
+        } catch (DuplicateKeyException e) {
+            update(delta);
+        }
+    }
+
+    private int update(RevenueRollupDelta delta) {
+        return jdbcTemplate.update(
+                UPDATE_SQL,
+                delta.revenue(),
+                delta.quantity(),
+                delta.lineItems(),
+                Date.valueOf(delta.revenueDate()),
+                delta.itemType().name(),
+                delta.categoryId());
+    }
+
+    @Override
+    public int rebuildRollups(LocalDate from, LocalDate to) {
+        jdbcTemplate.update(
+                "DELETE FROM revenue_daily_rollups WHERE revenue_date >= ? AND revenue_date <= ?",
+                Date.valueOf(from),
+                Date.valueOf(to));
+        return jdbcTemplate.update(
+                INSERT_SELECT.formatted(PAID + " AND i.created_at >= ? AND i.created_at < ?"),
+                Timestamp.valueOf(from.atStartOfDay()),
+                Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+    }
+
+    @Override
+    public int rebuildAllRollups() {
+        jdbcTemplate.update("DELETE FROM revenue_daily_rollups");
+        return jdbcTemplate.update(INSERT_SELECT.formatted(PAID));
+    }
+}
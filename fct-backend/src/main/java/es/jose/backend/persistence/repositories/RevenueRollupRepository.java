@@ -0,0 +1,66 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.RevenueDailyRollupEntity;
+import es.jose.backend.services.reporting.DailyRevenue;
+import es.jose.backend.services.reporting.LineItemTypeTotals;
+import es.jose.backend.services.reporting.ProductCategoryTotals;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RevenueRollupRepository
+        extends JpaRepository<RevenueDailyRollupEntity, Long>, RevenueRollupJdbcRepository {
+
+    /**
+     * Adds up the rollups of a period by day.
+     *
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @return The revenue of each day that has any, in order.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.reporting.DailyRevenue(r.revenueDate,"
+                    + " SUM(r.revenue), SUM(r.quantity), SUM(r.lineItems)) FROM"
+                    + " RevenueDailyRollupEntity r WHERE r.revenueDate BETWEEN :from AND :to"
+                    + " GROUP BY r.revenueDate HAVING SUM(r.lineItems) > 0 ORDER BY r.revenueDate")
+    List<DailyRevenue> sumByDay(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Adds up the product rollups of a period by product category.
+     *
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @return The revenue of each category that has any, highest first.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.reporting.ProductCategoryTotals(r.categoryId,"
+                    + " c.name, SUM(r.revenue), SUM(r.quantity), SUM(r.lineItems)) FROM"
+                    + " RevenueDailyRollupEntity r LEFT JOIN ProductCategoryEntity c ON c.id ="
+                    + " r.categoryId WHERE r.itemType = org.openapitools.model.LineItemTypeEnum.PRODUCT"
+                    + " AND r.revenueDate BETWEEN :from AND :to GROUP BY r.categoryId, c.name"
+                    + " HAVING SUM(r.lineItems) > 0 ORDER BY SUM(r.revenue) DESC, r.categoryId")
+    List<ProductCategoryTotals> sumByProductCategory(
+            @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Adds up the rollups of a period by line item type.
+     *
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @return The revenue of each type that has any, highest first.
+     */
+    @Query(
+            "SELECT new es.jose.backend.services.reporting.LineItemTypeTotals(r.itemType,"
+                    + " SUM(r.revenue), SUM(r.quantity), SUM(r.lineItems)) FROM"
+                    + " RevenueDailyRollupEntity r WHERE r.revenueDate BETWEEN :from AND :to"
+                    + " GROUP BY r.itemType HAVING SUM(r.lineItems) > 0"
+                    + " ORDER BY SUM(r.revenue) DESC, r.itemType")
+    List<LineItemTypeTotals> sumByLineItemType(
+            @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
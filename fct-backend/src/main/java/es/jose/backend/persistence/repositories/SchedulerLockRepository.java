@@ -0,0 +1,77 @@
+package es.jose.backend.persistence.repositories;
+
+import es.jose.backend.persistence.entities.SchedulerLockEntity;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLockEntity, String> {
+
+    /**
+     * Takes the lease on a job in a single statement, if it has expired or is already held by
+     * the given instance.
+     *
+     * @param name Name of the job.
+     * @param owner The instance taking the lease.
+     * @param now The current time.
+     * @param until When the lease expires.
+     * @return 1 if the lease was taken, 0 if another instance holds it or there is no row yet.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "UPDATE SchedulerLockEntity l SET l.lockedBy = :owner, l.lockedUntil = :until WHERE"
+                    + " l.name = :name AND (l.lockedUntil <= :now OR l.lockedBy = :owner)")
+    int acquire(
+            @Param("name") String name,
+            @Param("owner") String owner,
+            @Param("now") LocalDateTime now,
+            @Param("until") LocalDateTime until);
+
+    /**
+     * Creates the lease on a job held by the given instance. Inserted natively, since saving an
+     * entity with an assigned id would merge it into a lease another instance holds.
+     *
+     * @param name Name of the job.
+     * @param owner The instance taking the lease.
+     * @param until When the lease expires.
+     * @return 1, the number of leases created.
+     * @throws org.springframework.dao.DataIntegrityViolationException if the lease exists.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            value =
+                    "INSERT INTO scheduler_locks (name, locked_by, locked_until) VALUES (:name,"
+                            + " :owner, :until)",
+            nativeQuery = true)
+    int create(
+            @Param("name") String name,
+            @Param("owner") String owner,
+            @Param("until") LocalDateTime until);
+
+    /**
+     * Releases the lease on a job, if the given instance still holds it.
+     *
+     * @param name Name of the job.
+     * @param owner The instance releasing the lease.
+     * @param now The current time.
+     * @return 1 if the lease was released, 0 if the instance no longer held it.
+     */
+    @Transactional
+    @Modifying
+    @Query(
+            "UPDATE SchedulerLockEntity l SET l.lockedUntil = :now WHERE l.name = :name AND"
+                    + " l.lockedBy = :owner")
+    int release(
+            @Param("name") String name,
+            @Param("owner") String owner,
+            @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,187 @@
+package es.jose.backend.security;
+
+import es.jose.backend.config.PasswordHashingProperties;
+import es.jose.backend.exceptions.PasswordHashingBusyException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Password encoder that hashes and verifies passwords on a small pool of its own, so that a burst of
+ * logins or HTTP Basic requests waits for that pool, or is rejected once its queue is full, instead
+ * of running bcrypt on every request thread at once and starving the rest of the API.
+ *
+ * <p>Passwords that matched are remembered for a short while by an HMAC of the stored hash and the
+ * password under a key drawn at startup, so clients sending the same credentials on every request
+ * are verified once. The password itself is never kept, and a changed password has a different
+ * stored hash, so it is verified again.
+ *
+ * <p>Reports the time spent hashing as {@code security.password.hashing}, the time spent waiting
+ * for a free thread as {@code security.password.waiting}, the passwords waiting as {@code
+ * security.password.queue}, rejections as {@code security.password.rejected} and passwords found
+ * verified as {@code security.password.verified.hits}.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final PasswordHashingProperties properties;
+    private final ThreadPoolExecutor executor;
+    private final SecretKeySpec verifiedKey;
+
+    private final ConcurrentHashMap<String, Instant> verified = new ConcurrentHashMap<>();
+
+    private final Timer hashing;
+    private final Timer waiting;
+    private final Counter rejected;
+    private final Counter verifiedHits;
+
+    public BoundedPasswordEncoder(
+            PasswordEncoder delegate,
+            PasswordHashingProperties properties,
+            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.properties = properties;
+
+        final var poolSize =
+                properties.poolSize() > 0
+                        ? properties.poolSize()
+                        : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor =
+                new ThreadPoolExecutor(
+                        poolSize,
+                        poolSize,
+                        0,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(properties.queueCapacity()),
+                        Thread.ofPlatform().name("password-hashing-", 0).daemon().factory());
+
+        final var key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.verifiedKey = new SecretKeySpec(key, "HmacSHA256");
+
+        this.hashing = meterRegistry.timer("security.password.hashing");
+        this.waiting = meterRegistry.timer("security.password.waiting");
+        this.rejected = meterRegistry.counter("security.password.rejected");
+        this.verifiedHits = meterRegistry.counter("security.password.verified.hits");
+        Gauge.builder("security.password.queue", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+
+        final var key = verifiedKey(rawPassword, encodedPassword);
+        final var now = Instant.now();
+        final var verifiedUntil = verified.get(key);
+        if (verifiedUntil != null && now.isBefore(verifiedUntil)) {
+            verifiedHits.increment();
+            return true;
+        }
+
+        final boolean matches = hash(() -> delegate.matches(rawPassword, encodedPassword));
+        if (matches) {
+            remember(key, now);
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs a hash on the pool and waits for it.
+     *
+     * @throws PasswordHashingBusyException if the queue of the pool is full.
+     */
+    private <T> T hash(Supplier<T> task) {
+        final var submitted = System.nanoTime();
+        try {
+            return executor.submit(
+                            () -> {
+                                waiting.record(
+                                        System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                                return hashing.record(task);
+                            })
+                    .get();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException();
+        }
+    }
+
+    /**
+     * Remembers a verified password. When memory is full, expired ones are dropped first and then a
+     * tenth of the rest; dropped passwords are just verified again.
+     */
+    private void remember(String key, Instant now) {
+        if (verified.size() >= properties.verifiedMaxEntries()) {
+            verified.values().removeIf(until -> !now.isBefore(until));
+
+            final var target =
+                    properties.verifiedMaxEntries()
+                            - Math.max(1, properties.verifiedMaxEntries() / 10);
+            final var keys = verified.keySet().iterator();
+            while (verified.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        verified.put(key, now.plus(properties.verifiedTtl()));
+    }
+
+    private String verifiedKey(CharSequence rawPassword, String encodedPassword) {
+        try {
+            final var mac = Mac.getInstance("HmacSHA256");
+            mac.init(verifiedKey);
+            mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return HexFormat.of()
+                    .formatHex(mac.doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package es.jose.backend.security;
+
+import es.jose.backend.config.JwtCacheProperties;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decoder that remembers the tokens it has already decoded, so that a client sending the same token
+ * on every request only pays for parsing it and verifying its RSA signature once. Tokens are kept
+ * by the SHA-256 digest of their value, never the value itself, until shortly before they expire;
+ * tokens that fail to decode are not kept. Revoked tokens are rejected before the cache is looked
+ * at, whether they were cached or not.
+ *
+ * <p>Tokens are revoked one by one on logout, and all the tokens of a subject at once when its user
+ * is deleted. Revocations are checked even when caching is disabled.
+ */
+@RequiredArgsConstructor
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final JwtCacheProperties properties;
+
+    /** How long the longest-lived token is valid, and so how long a revoked subject is kept. */
+    private final Duration maxTokenLifetime;
+
+    private final ConcurrentHashMap<String, Jwt> decoded = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Instant> revoked = new ConcurrentHashMap<>();
+
+    /** When the tokens of a subject were revoked; tokens issued until then are rejected. */
+    private final ConcurrentHashMap<String, Instant> revokedSubjects = new ConcurrentHashMap<>();
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        final var key = digest(token);
+        if (revoked.containsKey(key)) {
+            throw new BadJwtException("The token has been revoked");
+        }
+
+        final var cached = decoded.get(key);
+        if (cached != null) {
+            if (isFresh(cached, Instant.now())) {
+                return checkSubject(cached);
+            }
+            decoded.remove(key, cached);
+        }
+
+        final var jwt = checkSubject(delegate.decode(token));
+        if (properties.enabled() && isFresh(jwt, Instant.now())) {
+            remember(key, jwt);
+        }
+        return jwt;
+    }
+
+    /**
+     * Rejects a token from now on, even though its signature is valid and it has not expired. The
+     * token is remembered until it expires, after which the decoder rejects it anyway; a token that
+     * cannot be decoded is rejected already and is not remembered.
+     *
+     * @param token the encoded token.
+     */
+    public void revoke(String token) {
+        final var key = digest(token);
+        final var jwt = decoded.remove(key);
+        final var expiresAt = jwt != null ? jwt.getExpiresAt() : expiryOf(token);
+        if (expiresAt == null) {
+            return;
+        }
+
+        final var now = Instant.now();
+        revoked.values().removeIf(expiry -> expiry.isBefore(now));
+        revoked.put(key, expiresAt);
+    }
+
+    /**
+     * Rejects every token of a subject issued until now, even though their signature is valid and
+     * they have not expired. Issue times only have seconds, so tokens issued within the same second
+     * are rejected too. The subject is remembered for as long as those tokens could be valid.
+     *
+     * @param subject the subject of the tokens.
+     */
+    public void revokeSubject(String subject) {
+        final var now = Instant.now();
+        revokedSubjects.values().removeIf(at -> at.plus(maxTokenLifetime).isBefore(now));
+        revokedSubjects.put(subject, now);
+    }
+
+    private Jwt checkSubject(Jwt jwt) {
+        final var revokedAt =
+                jwt.getSubject() != null ? revokedSubjects.get(jwt.getSubject()) : null;
+        if (revokedAt != null
+                && (jwt.getIssuedAt() == null || !jwt.getIssuedAt().isAfter(revokedAt))) {
+            throw new BadJwtException("The token has been revoked");
+        }
+        return jwt;
+    }
+
+    /** Whether the token can still be served from the cache at the given instant. */
+    private boolean isFresh(Jwt jwt, Instant now) {
+        return jwt.getExpiresAt() != null
+                && now.isBefore(jwt.getExpiresAt().minus(properties.expiryMargin()));
+    }
+
+    /**
+     * Keeps a decoded token. When memory is full, expired tokens are dropped first and then
+     * arbitrary ones, a tenth of the cache at a time so that a full cache is not scanned on every
+     * miss; dropped tokens are just decoded again.
+     */
+    private void remember(String key, Jwt jwt) {
+        if (decoded.size() >= properties.maxEntries()) {
+            final var now = Instant.now();
+            decoded.values().removeIf(cached -> !isFresh(cached, now));
+
+            final var target = properties.maxEntries() - Math.max(1, properties.maxEntries() / 10);
+            final var keys = decoded.keySet().iterator();
+            while (decoded.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        decoded.put(key, jwt);
+    }
+
+    /** The expiry of a token that may not be valid, or null if it cannot be decoded at all. */
+    private Instant expiryOf(String token) {
+        try {
+            return delegate.decode(token).getExpiresAt();
+        } catch (JwtException e) {
+            return null;
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            return HexFormat.of()
+                    .formatHex(
+                            MessageDigest.getInstance("SHA-256")
+                                    .digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
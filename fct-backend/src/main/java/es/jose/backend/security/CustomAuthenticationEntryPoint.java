@@ -1,9 +1,11 @@
 package es.jose.backend.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import es.jose.backend.exceptions.PasswordHashingBusyException;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.AuthenticationException;
@@ -28,13 +30,20 @@ public class CustomAuthenticationEntryPoint implements AuthenticationEntryPoint
     public void commence(HttpServletRequest request, HttpServletResponse response,
             AuthenticationException authException) throws IOException, ServletException {
 
-        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        // The credentials were not checked at all, so the client should retry them shortly.
+        HttpStatus status = authException instanceof PasswordHashingBusyException
+                ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.UNAUTHORIZED;
+        if (status == HttpStatus.SERVICE_UNAVAILABLE) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        }
+        response.setStatus(status.value());
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
 
         Map<String, Object> errorDetails = new LinkedHashMap<>();
         errorDetails.put("timestamp", OffsetDateTime.now().toString());
-        errorDetails.put("status", HttpStatus.UNAUTHORIZED.value());
-        errorDetails.put("error", "Unauthorized");
+        errorDetails.put("status", status.value());
+        errorDetails.put("error", status.getReasonPhrase());
         errorDetails.put("message", authException.getMessage() != null ? authException.getMessage()
                 : "Authentication failed: Invalid credentials or token");
         errorDetails.put("path", request.getRequestURI());
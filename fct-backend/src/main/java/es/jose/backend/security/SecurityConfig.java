@@ -6,9 +6,15 @@ import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
 
+import es.jose.backend.config.JwtCacheProperties;
+import es.jose.backend.config.PasswordHashingProperties;
+import es.jose.backend.config.RefreshTokenProperties;
 import es.jose.backend.config.RsaKeyConfigProperties;
+import es.jose.backend.exceptions.PasswordHashingBusyException;
 import es.jose.backend.services.security.UserSecurityService;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.context.annotation.Bean;
@@ -17,7 +23,6 @@ import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
-import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -26,17 +31,19 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
@@ -48,6 +55,10 @@ public class SecurityConfig {
     private final UserDetailsService userDetailsService;
     private final UserSecurityService userSecurityService;
     private final RsaKeyConfigProperties rsaKeyConfigProperties;
+    private final JwtCacheProperties jwtCacheProperties;
+    private final RefreshTokenProperties refreshTokenProperties;
+    private final PasswordHashingProperties passwordHashingProperties;
+    private final MeterRegistry meterRegistry;
     private final CustomAuthenticationEntryPoint customAuthenticationEntryPoint;
 
     private static final String BASE_PATH = "/api/v1";
@@ -110,6 +121,10 @@ public class SecurityConfig {
         configuration.setAllowedMethods(List.of("*")); // Add allowed methods
         configuration.setAllowedHeaders(
                 List.of("*")); // Add allowed headers, or specify them as needed
+        configuration.setExposedHeaders(
+                List.of(
+                        "X-Next-Cursor",
+                        "X-Total-Count")); // Let clients read the pagination headers
         configuration.setAllowCredentials(true); // Enable sending credentials (cookies, etc.)
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -166,13 +181,34 @@ public class SecurityConfig {
                                                         .jwtAuthenticationConverter(
                                                                 jwtAuthenticationConverter())))
                 .userDetailsService(userDetailsService)
-                .httpBasic(Customizer.withDefaults())
+                .httpBasic(
+                        basic -> basic.authenticationEntryPoint(basicAuthenticationEntryPoint()))
                 .build();
     }
 
+    /**
+     * Asks for Basic credentials as usual, except when they could not be verified because too many
+     * are being verified already, which is answered as the other authentication errors are.
+     */
+    private AuthenticationEntryPoint basicAuthenticationEntryPoint() {
+        final var basic = new BasicAuthenticationEntryPoint();
+        basic.setRealmName("Realm");
+        return (request, response, e) -> {
+            if (e instanceof PasswordHashingBusyException) {
+                customAuthenticationEntryPoint.commence(request, response, e);
+            } else {
+                basic.commence(request, response, e);
+            }
+        };
+    }
+
+    /** Exposed as what it is, so that logouts and deleted users can revoke tokens through it. */
     @Bean
-    JwtDecoder jwtDecoder() {
-        return NimbusJwtDecoder.withPublicKey(rsaKeyConfigProperties.publicKey()).build();
+    CachingJwtDecoder jwtDecoder() {
+        return new CachingJwtDecoder(
+                NimbusJwtDecoder.withPublicKey(rsaKeyConfigProperties.publicKey()).build(),
+                jwtCacheProperties,
+                Duration.ofDays(refreshTokenProperties.expirationDays()));
     }
 
     @Bean
@@ -188,7 +224,10 @@ public class SecurityConfig {
 
     @Bean
     PasswordEncoder passwordEncoder() {
-        return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        return new BoundedPasswordEncoder(
+                PasswordEncoderFactories.createDelegatingPasswordEncoder(),
+                passwordHashingProperties,
+                meterRegistry);
     }
 
     @Bean
@@ -4,6 +4,7 @@ import es.jose.backend.exceptions.appointmentCategory.AppointmentCategoryNotFoun
 import es.jose.backend.mappers.AppointmentCategoryMapper;
 import es.jose.backend.persistence.entities.AppointmentCategoryEntity;
 import es.jose.backend.persistence.repositories.AppointmentCategoryRepository;
+import es.jose.backend.utils.Money;
 
 import lombok.RequiredArgsConstructor;
 
@@ -103,7 +104,12 @@ public class AppointmentCategoryServiceImpl implements AppointmentCategoryServic
         return appointmentCategoryRepository
                 .findById(id)
                 .map(entity -> data.name().map(entity::setName).orElse(entity))
-                .map(entity -> data.quotePerHour().map(entity::setQuotePerHour).orElse(entity))
+                .map(
+                        entity ->
+                                data.quotePerHour()
+                                        .map(Money::of)
+                                        .map(entity::setQuotePerHour)
+                                        .orElse(entity))
                 .map(appointmentCategoryRepository::save)
                 .map(appointmentCategoryMapper::toDto)
                 .orElseThrow(() -> new AppointmentCategoryNotFoundException("id", id.toString()));
@@ -1,10 +1,16 @@
 package es.jose.backend.services;
 
 import es.jose.backend.persistence.entities.AppointmentEntity;
+import es.jose.backend.services.pagination.KeysetPage;
 
 import org.openapitools.model.AddAppointmentRequest;
+import org.openapitools.model.AddAppointmentSeriesRequest;
 import org.openapitools.model.Appointment;
+import org.openapitools.model.AppointmentSeries;
+import org.openapitools.model.AppointmentSlot;
+import org.openapitools.model.AppointmentStatusEnum;
 import org.openapitools.model.UpdateAppointmentRequest;
+import org.openapitools.model.UpdateAppointmentSeriesRequest;
 import org.openapitools.model.UpdateAppointmentStatusRequest;
 
 import java.time.LocalDate;
@@ -18,12 +24,24 @@ import java.util.Optional;
 public interface AppointmentService {
 
     /**
-     * Retrieves a list of all appointments, optionally filtered by user ID.
+     * Retrieves a page of the appointments of a date range, ordered by date and ID, optionally
+     * filtered by user ID and status. When no range is given it defaults to the current month.
      *
      * @param userId Optional ID of the user whose appointments to retrieve.
-     * @return a list of Appointment DTOs.
+     * @param status Optional status of the appointments to retrieve.
+     * @param from Optional first day of the range.
+     * @param to Optional last day of the range.
+     * @param cursor Optional cursor returned with the previous page.
+     * @param limit Maximum number of appointments in the page.
+     * @return a page of Appointment DTOs.
      */
-    List<Appointment> getAllAppointments(Optional<Long> userId);
+    KeysetPage<Appointment> getAllAppointments(
+            Optional<Long> userId,
+            Optional<AppointmentStatusEnum> status,
+            Optional<LocalDate> from,
+            Optional<LocalDate> to,
+            Optional<String> cursor,
+            int limit);
 
     /**
      * Retrieves a specific appointment by its unique identifier.
@@ -41,6 +59,16 @@ public interface AppointmentService {
      */
     AppointmentEntity getAppointmentEntityById(Long id);
 
+    /**
+     * Retrieves the free time slots of a day for an appointment of the given category and duration.
+     *
+     * @param date The day to check.
+     * @param categoryId The ID of the appointment category, used to quote each slot.
+     * @param duration The duration of the appointment in minutes.
+     * @return a list of AppointmentSlot DTOs in ascending order.
+     */
+    List<AppointmentSlot> getAvailableSlots(LocalDate date, Long categoryId, Integer duration);
+
     /**
      * Creates a new appointment based on the provided request.
      *
@@ -80,4 +108,37 @@ public interface AppointmentService {
      * @param id The ID of the appointment to delete.
      */
     void deleteAppointment(Long id);
+
+    /**
+     * Retrieves an appointment series by its unique identifier, along with its appointments.
+     *
+     * @param id The ID of the series to retrieve.
+     * @return the AppointmentSeries DTO corresponding to the given ID.
+     */
+    AppointmentSeries getAppointmentSeriesById(Long id);
+
+    /**
+     * Creates a recurring series of appointments, expanding its recurrence rule into one
+     * appointment per occurrence.
+     *
+     * @param series The AddAppointmentSeriesRequest describing the series.
+     * @return the created AppointmentSeries DTO.
+     */
+    AppointmentSeries createAppointmentSeries(AddAppointmentSeriesRequest series);
+
+    /**
+     * Applies the same changes to every upcoming, not declined appointment of a series.
+     *
+     * @param id The ID of the series to update.
+     * @param data The UpdateAppointmentSeriesRequest containing the changes.
+     * @return the updated AppointmentSeries DTO.
+     */
+    AppointmentSeries updateAppointmentSeries(Long id, UpdateAppointmentSeriesRequest data);
+
+    /**
+     * Declines every upcoming appointment of a series.
+     *
+     * @param id The ID of the series to cancel.
+     */
+    void cancelAppointmentSeries(Long id);
 }
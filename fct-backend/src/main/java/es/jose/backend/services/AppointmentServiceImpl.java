@@ -1,53 +1,131 @@
 package es.jose.backend.services;
 
 import es.jose.backend.exceptions.appointment.AppointmentNotFoundException;
+import es.jose.backend.exceptions.appointment.AppointmentSeriesNotFoundException;
+import es.jose.backend.exceptions.appointment.AppointmentSlotUnavailableException;
+import es.jose.backend.exceptions.appointment.InvalidAppointmentRangeException;
+import es.jose.backend.exceptions.appointment.InvalidAppointmentSeriesException;
 import es.jose.backend.mappers.AppointmentMapper;
+import es.jose.backend.persistence.entities.AppointmentCategoryEntity;
 import es.jose.backend.persistence.entities.AppointmentEntity;
+import es.jose.backend.persistence.entities.AppointmentSeriesEntity;
 import es.jose.backend.persistence.repositories.AppointmentRepository;
+import es.jose.backend.persistence.repositories.AppointmentSeriesRepository;
+import es.jose.backend.services.pagination.DateKeysetCursor;
+import es.jose.backend.services.pagination.KeysetPage;
+import es.jose.backend.services.scheduling.AppointmentRecurrence;
+import es.jose.backend.services.scheduling.AppointmentSlotScheduler;
+import es.jose.backend.services.scheduling.TimeSlot;
+import es.jose.backend.utils.Money;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.openapitools.model.AddAppointmentRequest;
+import org.openapitools.model.AddAppointmentSeriesRequest;
 import org.openapitools.model.Appointment;
+import org.openapitools.model.AppointmentSeries;
+import org.openapitools.model.AppointmentSlot;
+import org.openapitools.model.AppointmentStatusEnum;
 import org.openapitools.model.UpdateAppointmentRequest;
+import org.openapitools.model.UpdateAppointmentSeriesRequest;
 import org.openapitools.model.UpdateAppointmentStatusRequest;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Service implementation for managing appointments. Provides methods for retrieving, creating,
  * updating, changing status, and deleting appointments. Interacts with the AppointmentRepository,
- * UserService, and AppointmentCategoryService.
+ * UserService, and AppointmentCategoryService, and books the time of every appointment through
+ * the AppointmentSlotScheduler so that no two appointments overlap.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class AppointmentServiceImpl implements AppointmentService {
 
+    /** Upper bound on the occurrences of a series, matching the maximum count of the API. */
+    private static final int MAX_SERIES_OCCURRENCES = 52;
+    private static final int MINUTES_PER_HOUR = 60;
+
     private final UserService userService;
     private final AppointmentMapper appointmentMapper;
     private final AppointmentRepository appointmentRepository;
+    private final AppointmentSeriesRepository appointmentSeriesRepository;
+    private final AppointmentSlotScheduler appointmentSlotScheduler;
     private final AppointmentCategoryService appointmentCategoryService;
 
     /**
-     * Retrieves a list of all appointments, optionally filtered by user ID.
+     * Retrieves a page of the appointments of a date range, ordered by date and ID, optionally
+     * filtered by user ID and status. A missing start defaults to the first day of the month of the
+     * end (or of the current month), and a missing end to the last day of the month of the start,
+     * so that the query always stays bounded.
      *
      * @param userId Optional ID of the user whose appointments to retrieve.
-     * @return a list of Appointment DTOs.
+     * @param status Optional status of the appointments to retrieve.
+     * @param from Optional first day of the range.
+     * @param to Optional last day of the range.
+     * @param cursor Optional cursor returned with the previous page.
+     * @param limit Maximum number of appointments in the page.
+     * @return a page of Appointment DTOs.
+     * @throws InvalidAppointmentRangeException if the range ends before it starts.
+     * @throws es.jose.backend.exceptions.InvalidCursorException if the cursor is malformed.
      */
     @Override
-    public List<Appointment> getAllAppointments(Optional<Long> userId) {
-        return userId
-                .map(appointmentRepository::findByUserId)
-                .orElseGet(appointmentRepository::findAll)
-                .stream()
-                .map(appointmentMapper::toDto)
-                .toList();
+    @Transactional(readOnly = true)
+    public KeysetPage<Appointment> getAllAppointments(
+            Optional<Long> userId,
+            Optional<AppointmentStatusEnum> status,
+            Optional<LocalDate> from,
+            Optional<LocalDate> to,
+            Optional<String> cursor,
+            int limit) {
+        final var start =
+                from.orElseGet(
+                        () -> YearMonth.from(to.orElseGet(LocalDate::now)).atDay(1));
+        final var end = to.orElseGet(() -> YearMonth.from(start).atEndOfMonth());
+        if (end.isBefore(start)) {
+            throw new InvalidAppointmentRangeException(start, end);
+        }
+
+        final var after =
+                cursor.map(DateKeysetCursor::decode)
+                        .filter(c -> !c.date().isBefore(start))
+                        .orElseGet(() -> DateKeysetCursor.startOf(start));
+
+        // One row more than requested tells whether a following page exists.
+        final var rows =
+                userId.map(
+                                id ->
+                                        appointmentRepository.findPageByUserIdAndDateRange(
+                                                id,
+                                                after.date(),
+                                                after.id(),
+                                                end,
+                                                status.orElse(null),
+                                                Limit.of(limit + 1)))
+                        .orElseGet(
+                                () ->
+                                        appointmentRepository.findPageByDateRange(
+                                                after.date(),
+                                                after.id(),
+                                                end,
+                                                status.orElse(null),
+                                                Limit.of(limit + 1)));
+
+        return KeysetPage.of(
+                        rows,
+                        limit,
+                        a -> new DateKeysetCursor(a.getDate(), a.getId()).encode())
+                .map(appointmentMapper::toDto);
     }
 
     /**
@@ -79,16 +157,51 @@ public class AppointmentServiceImpl implements AppointmentService {
                 .orElseThrow(() -> new AppointmentNotFoundException("id", id.toString()));
     }
 
+    /**
+     * Retrieves the free time slots of a day for an appointment of the given category and
+     * duration, each quoted with the price the appointment would have.
+     *
+     * @param date The day to check.
+     * @param categoryId The ID of the appointment category, used to quote each slot.
+     * @param duration The duration of the appointment in minutes.
+     * @return a list of AppointmentSlot DTOs in ascending order.
+     * @throws es.jose.backend.exceptions.appointmentCategory.AppointmentCategoryNotFoundException
+     *     if the category is not found.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<AppointmentSlot> getAvailableSlots(
+            LocalDate date, Long categoryId, Integer duration) {
+        final var price =
+                calculatePrice(
+                        appointmentCategoryService.getAppointmentCategoryEntityById(categoryId),
+                        duration);
+
+        return appointmentSlotScheduler.getAvailableSlots(date, duration).stream()
+                .map(
+                        slot ->
+                                AppointmentSlot.builder()
+                                        .date(slot.date())
+                                        .startTime(slot.startTime())
+                                        .endTime(slot.endTime())
+                                        .price(price.toDouble())
+                                        .build())
+                .toList();
+    }
+
     /**
      * Creates a new appointment based on the provided request. Retrieves the associated user and
-     * appointment category entities, calculates the price, and saves the new appointment entity.
+     * appointment category entities, books the requested time slot (or the first free one of the
+     * day when no start time is given), calculates the price, and saves the new appointment entity.
      *
      * @param appointment The AddAppointmentRequest containing the details for the new appointment.
      * @return the created Appointment DTO.
      * @throws AppointmentNotFoundException if the user or appointment category specified in the
      *     request is not found.
+     * @throws AppointmentSlotUnavailableException if the requested time slot is not available.
      */
     @Override
+    @Transactional
     public Appointment createAppointment(AddAppointmentRequest appointment) {
         var entity = appointmentMapper.toEntity(appointment);
 
@@ -97,60 +210,152 @@ public class AppointmentServiceImpl implements AppointmentService {
                 appointmentCategoryService.getAppointmentCategoryEntityById(
                         appointment.categoryId());
 
-        var durationInMinutes = BigDecimal.valueOf(appointment.duration() / 60D);
-        var quotePerHour = BigDecimal.valueOf(category.getQuotePerHour());
-        var price = durationInMinutes.multiply(quotePerHour);
-        log.info("quotePerHour: {}", quotePerHour);
-        log.info("duration: {}", appointment.duration());
-        log.info("duration in minutes: {}", durationInMinutes);
-        log.info("price: {}", price);
+        var slot =
+                reserveSlot(
+                        appointment.date(),
+                        orEmpty(appointment.startTime()),
+                        appointment.duration());
 
         entity.setUser(user);
         entity.setCategory(category);
-        entity.setPrice(price);
+        entity.setStartTime(slot.startTime());
+        entity.setPrice(calculatePrice(category, appointment.duration()));
 
         return appointmentMapper.toDto(appointmentRepository.save(entity));
     }
 
+    /**
+     * Books the requested slot, or the first free slot of the day if no start time is given. The
+     * booking is undone if the current transaction rolls back.
+     *
+     * @param date The day of the appointment.
+     * @param startTime The requested start time, if any.
+     * @param duration The duration of the appointment in minutes.
+     * @return the booked slot.
+     * @throws AppointmentSlotUnavailableException if the slot (or the whole day) is not available.
+     */
+    private TimeSlot reserveSlot(LocalDate date, Optional<LocalTime> startTime, int duration) {
+        final Optional<TimeSlot> reserved;
+        if (startTime.isPresent()) {
+            final var requested = new TimeSlot(date, startTime.get(), duration);
+            reserved =
+                    appointmentSlotScheduler.tryReserve(requested)
+                            ? Optional.of(requested)
+                            : Optional.empty();
+        } else {
+            reserved = appointmentSlotScheduler.reserveFirstAvailable(date, duration);
+        }
+
+        final var slot =
+                reserved.orElseThrow(
+                        () ->
+                                new AppointmentSlotUnavailableException(
+                                        startTime.map(time -> date + " " + time)
+                                                .orElse(date.toString())));
+        appointmentSlotScheduler.releaseOnRollback(List.of(slot));
+        return slot;
+    }
+
+    /**
+     * Calculates the price of an appointment from its category's hourly quote.
+     *
+     * @param category The category of the appointment.
+     * @param duration The duration of the appointment in minutes.
+     * @return the price of the appointment.
+     */
+    private Money calculatePrice(AppointmentCategoryEntity category, int duration) {
+        return category.getQuotePerHour().times(duration, MINUTES_PER_HOUR);
+    }
+
     /**
      * Updates an existing appointment identified by its unique identifier. Finds the existing
-     * entity, updates its properties based on the request DTO, saves it, and returns the updated
-     * DTO.
+     * entity, updates its properties based on the request DTO, moves its booking if its time
+     * changed, saves it, and returns the updated DTO.
      *
      * @param id The ID of the appointment to update.
      * @param data The UpdateAppointmentRequest containing the updated details for the appointment.
      * @return the updated Appointment DTO.
      * @throws AppointmentNotFoundException if no appointment is found with the given ID.
+     * @throws AppointmentSlotUnavailableException if the new time slot is not available.
      */
     @Override
+    @Transactional
     public Appointment updateAppointment(Long id, UpdateAppointmentRequest data) {
         return appointmentRepository
                 .findById(id)
                 .map(
                         a -> {
+                            final var before = slotOf(a);
                             appointmentMapper.updateEntity(data, a);
+                            orEmpty(data.startTime()).ifPresent(a::setStartTime);
+                            final var after = slotOf(a);
+                            if (!after.equals(before)) {
+                                // The client is reminded again of the new time.
+                                a.setReminderSentAt(null);
+                                if (a.getStatus() != AppointmentStatusEnum.DECLINED) {
+                                    moveBooking(before, after);
+                                }
+                            }
                             return appointmentRepository.save(a);
                         })
                 .map(appointmentMapper::toDto)
                 .orElseThrow(() -> new AppointmentNotFoundException("id", id.toString()));
     }
 
+    /**
+     * Moves the booking of an appointment to its new slot. The move is reverted if the current
+     * transaction rolls back.
+     *
+     * @param from The slot the appointment was booked on.
+     * @param to The slot the appointment is now booked on.
+     * @throws AppointmentSlotUnavailableException if the new slot is not available.
+     */
+    private void moveBooking(TimeSlot from, TimeSlot to) {
+        if (from.equals(to)) {
+            return;
+        }
+
+        if (!appointmentSlotScheduler.reschedule(from, to)) {
+            throw new AppointmentSlotUnavailableException(to.date() + " " + to.startTime());
+        }
+        appointmentSlotScheduler.revertOnRollback(from, to);
+    }
+
     /**
      * Changes the status of an existing appointment identified by its unique identifier. Finds the
      * existing entity, updates its status based on the request DTO, saves it, and returns the
-     * updated DTO.
+     * updated DTO. Declining an appointment frees its time slot, and bringing a declined
+     * appointment back books it again.
      *
      * @param id The ID of the appointment whose status to change.
      * @param data The UpdateAppointmentStatusRequest containing the new status.
      * @return the updated Appointment DTO with the new status.
      * @throws AppointmentNotFoundException if no appointment is found with the given ID.
+     * @throws AppointmentSlotUnavailableException if a declined appointment is brought back and
+     *     its time slot has been taken in the meantime.
      */
     @Override
+    @Transactional
     public Appointment changeAppointmentStatus(Long id, UpdateAppointmentStatusRequest data) {
         return appointmentRepository
                 .findById(id)
                 .map(
                         appointment -> {
+                            final var wasDeclined =
+                                    appointment.getStatus() == AppointmentStatusEnum.DECLINED;
+                            final var isDeclined = data.status() == AppointmentStatusEnum.DECLINED;
+                            final var slot = slotOf(appointment);
+
+                            if (!wasDeclined && isDeclined) {
+                                appointmentSlotScheduler.releaseAfterCommit(slot);
+                            } else if (wasDeclined && !isDeclined) {
+                                if (!appointmentSlotScheduler.tryReserve(slot)) {
+                                    throw new AppointmentSlotUnavailableException(
+                                            slot.date() + " " + slot.startTime());
+                                }
+                                appointmentSlotScheduler.releaseOnRollback(List.of(slot));
+                            }
+
                             appointment.setStatus(data.status());
                             return appointment;
                         })
@@ -160,31 +365,220 @@ public class AppointmentServiceImpl implements AppointmentService {
     }
 
     /**
-     * Retrieves a list of all distinct dates on which appointments are scheduled. Fetches all
-     * appointments and extracts the distinct dates.
+     * Retrieves a list of all distinct dates on which appointments are scheduled. The dates are
+     * read straight off the date index rather than by loading every appointment.
      *
      * @return a list of LocalDate representing days with appointments.
      */
     @Override
     public List<LocalDate> getAllDaysWithAppointments() {
-        return getAllAppointments(Optional.empty()).stream()
-                .map(Appointment::date)
-                .distinct()
-                .toList();
+        return appointmentRepository.findDistinctDates();
     }
 
     /**
-     * Deletes an appointment identified by its unique identifier.
+     * Deletes an appointment identified by its unique identifier, freeing its time slot.
      *
      * @param id The ID of the appointment to delete.
      * @throws AppointmentNotFoundException if no appointment is found with the given ID.
      */
     @Override
+    @Transactional
     public void deleteAppointment(Long id) {
-        if (appointmentRepository.existsById(id)) {
-            appointmentRepository.deleteById(id);
-            return;
+        final var appointment =
+                appointmentRepository
+                        .findById(id)
+                        .orElseThrow(() -> new AppointmentNotFoundException("id", id.toString()));
+
+        appointmentRepository.delete(appointment);
+        if (appointment.getStatus() != AppointmentStatusEnum.DECLINED) {
+            appointmentSlotScheduler.releaseAfterCommit(slotOf(appointment));
         }
-        throw new AppointmentNotFoundException("id", id.toString());
+    }
+
+    /**
+     * Gets the time slot taken by an appointment.
+     *
+     * @param appointment The appointment.
+     * @return the slot of the appointment.
+     */
+    private static TimeSlot slotOf(AppointmentEntity appointment) {
+        return new TimeSlot(
+                appointment.getDate(), appointment.getStartTime(), appointment.getDuration());
+    }
+
+    /**
+     * Retrieves an appointment series by its unique identifier, along with its appointments.
+     *
+     * @param id The ID of the series to retrieve.
+     * @return the AppointmentSeries DTO corresponding to the given ID.
+     * @throws AppointmentSeriesNotFoundException if no series is found with the given ID.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public AppointmentSeries getAppointmentSeriesById(Long id) {
+        return toSeriesDto(getAppointmentSeriesEntityById(id));
+    }
+
+    /**
+     * Creates a recurring series of appointments. The user, the category and the price are
+     * resolved once for the whole series, every occurrence is booked with the scheduler, and all
+     * the appointments are then written with batched inserts within the same transaction.
+     *
+     * @param request The AddAppointmentSeriesRequest describing the series.
+     * @return the created AppointmentSeries DTO.
+     * @throws InvalidAppointmentSeriesException if the recurrence rule has no end or too many
+     *     occurrences.
+     * @throws AppointmentSlotUnavailableException if the slot of any occurrence is not available.
+     */
+    @Override
+    @Transactional
+    public AppointmentSeries createAppointmentSeries(AddAppointmentSeriesRequest request) {
+        final var dates =
+                AppointmentRecurrence.occurrences(
+                                request.recurrence(),
+                                request.startDate(),
+                                orEmpty(request.until()),
+                                orEmpty(request.count()),
+                                MAX_SERIES_OCCURRENCES)
+                        .orElseThrow(
+                                () -> new InvalidAppointmentSeriesException(MAX_SERIES_OCCURRENCES));
+
+        final var user = userService.getUserEntityById(request.userId());
+        final var category =
+                appointmentCategoryService.getAppointmentCategoryEntityById(request.categoryId());
+        final var price = calculatePrice(category, request.duration());
+
+        final var reserved = new ArrayList<TimeSlot>(dates.size());
+        appointmentSlotScheduler.releaseOnRollback(reserved);
+        for (var date : dates) {
+            final var slot = new TimeSlot(date, request.startTime(), request.duration());
+            if (!appointmentSlotScheduler.tryReserve(slot)) {
+                throw new AppointmentSlotUnavailableException(date + " " + request.startTime());
+            }
+            reserved.add(slot);
+        }
+
+        final var series = appointmentMapper.toSeriesEntity(request);
+        series.setUser(user);
+        series.setCategory(category);
+        appointmentSeriesRepository.save(series);
+
+        appointmentRepository.insertAll(
+                dates.stream()
+                        .map(
+                                date ->
+                                        AppointmentEntity.builder()
+                                                .date(date)
+                                                .startTime(series.getStartTime())
+                                                .duration(series.getDuration())
+                                                .description(series.getDescription())
+                                                .price(price)
+                                                .user(user)
+                                                .category(category)
+                                                .series(series)
+                                                .build())
+                        .toList());
+
+        return toSeriesDto(series);
+    }
+
+    /**
+     * Applies the same changes to every upcoming, not declined appointment of a series. Each
+     * occurrence whose time changes is moved in the scheduler, and the rows are then updated with
+     * a single statement.
+     *
+     * @param id The ID of the series to update.
+     * @param data The UpdateAppointmentSeriesRequest containing the changes.
+     * @return the updated AppointmentSeries DTO.
+     * @throws AppointmentSeriesNotFoundException if no series is found with the given ID.
+     * @throws AppointmentSlotUnavailableException if the new slot of any occurrence is not
+     *     available.
+     */
+    @Override
+    @Transactional
+    public AppointmentSeries updateAppointmentSeries(
+            Long id, UpdateAppointmentSeriesRequest data) {
+        final var series = getAppointmentSeriesEntityById(id);
+        orEmpty(data.description()).ifPresent(series::setDescription);
+        orEmpty(data.startTime()).ifPresent(series::setStartTime);
+        orEmpty(data.duration()).ifPresent(series::setDuration);
+
+        final var today = LocalDate.now();
+        appointmentRepository
+                .findBookedSlotsBySeries(id, today, AppointmentStatusEnum.DECLINED)
+                .forEach(
+                        slot ->
+                                moveBooking(
+                                        slot,
+                                        new TimeSlot(
+                                                slot.date(),
+                                                series.getStartTime(),
+                                                series.getDuration())));
+
+        appointmentRepository.updateUpcomingBySeries(
+                id,
+                today,
+                AppointmentStatusEnum.DECLINED,
+                series.getDescription(),
+                series.getStartTime(),
+                series.getDuration(),
+                calculatePrice(series.getCategory(), series.getDuration()));
+
+        return toSeriesDto(getAppointmentSeriesEntityById(id));
+    }
+
+    /**
+     * Declines every upcoming appointment of a series with a single statement, freeing their time
+     * slots once the transaction commits. Past appointments are kept as they are.
+     *
+     * @param id The ID of the series to cancel.
+     * @throws AppointmentSeriesNotFoundException if no series is found with the given ID.
+     */
+    @Override
+    @Transactional
+    public void cancelAppointmentSeries(Long id) {
+        getAppointmentSeriesEntityById(id);
+
+        final var today = LocalDate.now();
+        final var slots =
+                appointmentRepository.findBookedSlotsBySeries(
+                        id, today, AppointmentStatusEnum.DECLINED);
+        appointmentRepository.updateUpcomingStatusBySeries(
+                id, today, AppointmentStatusEnum.DECLINED);
+        slots.forEach(appointmentSlotScheduler::releaseAfterCommit);
+    }
+
+    /**
+     * Retrieves an appointment series entity by its unique identifier.
+     *
+     * @param id The ID of the series.
+     * @return the AppointmentSeriesEntity corresponding to the given ID.
+     * @throws AppointmentSeriesNotFoundException if no series is found with the given ID.
+     */
+    private AppointmentSeriesEntity getAppointmentSeriesEntityById(Long id) {
+        return appointmentSeriesRepository
+                .findById(id)
+                .orElseThrow(() -> new AppointmentSeriesNotFoundException("id", id.toString()));
+    }
+
+    /**
+     * Maps a series to its DTO along with its appointments.
+     *
+     * @param series The series to map.
+     * @return the AppointmentSeries DTO.
+     */
+    private AppointmentSeries toSeriesDto(AppointmentSeriesEntity series) {
+        return appointmentMapper.toSeriesDto(
+                series, appointmentRepository.findBySeriesIdOrderByDateAscIdAsc(series.getId()));
+    }
+
+    /**
+     * Treats an optional field missing from a request DTO the same as an empty one.
+     *
+     * @param value The optional field, possibly null.
+     * @return the field, or an empty Optional if it is null.
+     */
+    private static <T> Optional<T> orEmpty(Optional<T> value) {
+        return value == null ? Optional.empty() : value;
     }
 }
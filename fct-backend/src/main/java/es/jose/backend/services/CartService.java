@@ -1,6 +1,7 @@
 package es.jose.backend.services;
 
 import org.openapitools.model.Cart;
+import org.openapitools.model.CartSummary;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,6 +20,14 @@ public interface CartService {
      */
     List<Cart> getAllCarts(Optional<Long> userId);
 
+    /**
+     * Gets the cart of a user priced at the current prices, with the stock of each product.
+     *
+     * @param userId The user's ID.
+     * @return The priced cart and its totals.
+     */
+    CartSummary getCartSummary(Long userId);
+
     /**
      * Adds a {@code Product} to the user's cart.
      *
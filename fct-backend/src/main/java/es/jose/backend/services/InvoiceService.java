@@ -1,13 +1,16 @@
 package es.jose.backend.services;
 
 import es.jose.backend.persistence.entities.InvoiceEntity;
+import es.jose.backend.services.invoicing.InvoiceTotalMismatch;
+import es.jose.backend.services.pdf.InvoicePdf;
 
 import org.openapitools.model.AddInvoiceRequest;
 import org.openapitools.model.Invoice;
 import org.openapitools.model.InvoiceStatusEnum;
 import org.openapitools.model.UpdateInvoiceRequest;
 import org.openapitools.model.UpdateInvoiceStatusRequest;
-import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,49 +22,58 @@ import java.util.Optional;
 public interface InvoiceService {
 
     /**
-     * Retrieves a list of all invoices, optionally filtered by user ID, status, or associated line
+     * Retrieves a page of invoices, optionally filtered by user ID, status, or associated line
      * item ID.
      *
      * @param userId Optional ID of the user whose invoices to retrieve.
      * @param status Optional status of the invoices to retrieve.
      * @param lineItemId Optional ID of a line item to filter invoices by (invoices containing this
      *     line item).
-     * @return a list of Invoice DTOs.
+     * @param pageable The page to retrieve and its sort order.
+     * @return a page of Invoice DTOs.
      */
-    List<Invoice> getAllInvoices(
-            Optional<Long> userId, Optional<InvoiceStatusEnum> status, Optional<Long> lineItemId);
+    Page<Invoice> getAllInvoices(
+            Optional<Long> userId,
+            Optional<InvoiceStatusEnum> status,
+            Optional<Long> lineItemId,
+            Pageable pageable);
 
     /**
-     * Retrieves a list of all invoices.
+     * Retrieves a page of all invoices.
      *
-     * @return a list of all Invoice DTOs.
+     * @param pageable The page to retrieve and its sort order.
+     * @return a page of Invoice DTOs.
      */
-    default List<Invoice> getAllInvoices() {
-        return getAllInvoices(Optional.empty(), Optional.empty(), Optional.empty());
+    default Page<Invoice> getAllInvoices(Pageable pageable) {
+        return getAllInvoices(Optional.empty(), Optional.empty(), Optional.empty(), pageable);
     }
 
     /**
-     * Retrieves a list of all invoices for a specific user.
+     * Retrieves a page of the invoices of a specific user.
      *
      * @param userId The ID of the user whose invoices to retrieve.
-     * @return a list of Invoice DTOs for the given user ID.
+     * @param pageable The page to retrieve and its sort order.
+     * @return a page of Invoice DTOs for the given user ID.
      */
-    default List<Invoice> getAllInvoicesByUserId(Long userId) {
-        return getAllInvoices(Optional.of(userId), Optional.empty(), Optional.empty());
+    default Page<Invoice> getAllInvoicesByUserId(Long userId, Pageable pageable) {
+        return getAllInvoices(Optional.of(userId), Optional.empty(), Optional.empty(), pageable);
     }
 
     /**
-     * Retrieves a list of all invoices with a specific status.
+     * Retrieves a page of the invoices with a specific status.
      *
      * @param status The status of the invoices to retrieve.
-     * @return a list of Invoice DTOs with the given status.
+     * @param pageable The page to retrieve and its sort order.
+     * @return a page of Invoice DTOs with the given status.
      */
-    default List<Invoice> getAllInvoicesByStatus(InvoiceStatusEnum status) {
-        return getAllInvoices(Optional.empty(), Optional.of(status), Optional.empty());
+    default Page<Invoice> getAllInvoicesByStatus(InvoiceStatusEnum status, Pageable pageable) {
+        return getAllInvoices(Optional.empty(), Optional.of(status), Optional.empty(), pageable);
     }
 
     /**
-     * Retrieves a list of all paid invoices.
+     * Retrieves a list of all paid invoices. Revenue figures should come from {@link
+     * es.jose.backend.services.reporting.RevenueReportService} instead, which adds them up in the
+     * database.
      *
      * @return a list of Invoice DTOs with the status PAID.
      */
@@ -76,12 +88,12 @@ public interface InvoiceService {
     Invoice getInvoiceById(Long id);
 
     /**
-     * Retrieves a specific invoice by its unique identifier and returns it as a PDF Resource.
+     * Retrieves a specific invoice by its unique identifier as a PDF to be streamed.
      *
      * @param id The ID of the invoice to retrieve.
-     * @return the invoice as a PDF Resource.
+     * @return the invoice as a PDF.
      */
-    Resource getInvoiceByIdAsPDF(Long id);
+    InvoicePdf getInvoiceByIdAsPDF(Long id);
 
     /**
      * Retrieves a specific Invoice entity by its unique identifier.
@@ -123,4 +135,12 @@ public interface InvoiceService {
      * @param id The ID of the invoice to delete.
      */
     void deleteInvoice(Long id);
+
+    /**
+     * Checks the stored total of every invoice against the sum of the subtotals of its line items
+     * and repairs the ones that differ.
+     *
+     * @return the invoices whose totals were repaired.
+     */
+    List<InvoiceTotalMismatch> reconcileInvoiceTotals();
 }
@@ -5,11 +5,18 @@ import es.jose.backend.mappers.InvoiceMapper;
 import es.jose.backend.persistence.entities.InvoiceEntity;
 import es.jose.backend.persistence.entities.LineItemEntity;
 import es.jose.backend.persistence.repositories.InvoiceRepository;
+import es.jose.backend.services.concurrency.OptimisticRetry;
+import es.jose.backend.services.invoicing.InvoiceTotalMismatch;
+import es.jose.backend.services.pdf.InvoicePdf;
+import es.jose.backend.services.pdf.InvoicePdfCache;
+import es.jose.backend.services.pdf.InvoicePdfPrerenderer;
+import es.jose.backend.services.pdf.InvoicePdfRenderer;
+import es.jose.backend.services.reporting.RevenueRollupService;
 import es.jose.backend.utils.ThymeleafUtils;
 
-import jakarta.persistence.criteria.Join;
-import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,8 +26,8 @@ import org.openapitools.model.Invoice;
 import org.openapitools.model.InvoiceStatusEnum;
 import org.openapitools.model.UpdateInvoiceRequest;
 import org.openapitools.model.UpdateInvoiceStatusRequest;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -43,26 +50,34 @@ public class InvoiceServiceImpl implements InvoiceService {
     private final InvoiceMapper invoiceMapper;
     private final InvoiceRepository invoiceRepository;
     private final ThymeleafUtils thymeleafUtils;
+    private final InvoicePdfCache invoicePdfCache;
+    private final InvoicePdfRenderer invoicePdfRenderer;
+    private final InvoicePdfPrerenderer invoicePdfPrerenderer;
+    private final RevenueRollupService revenueRollupService;
+    private final OptimisticRetry optimisticRetry;
 
     /**
-     * Retrieves a list of all invoices, optionally filtered by user ID, status, or associated line
-     * item ID.
+     * Retrieves a page of invoices, optionally filtered by user ID, status, or associated line
+     * item ID. Line items are not loaded, and the line item filter is an {@code EXISTS} subquery,
+     * so a page costs one query plus its count no matter how many lines its invoices have.
      *
      * @param userId Optional ID of the user whose invoices to retrieve.
      * @param status Optional status of the invoices to retrieve.
      * @param lineItemableId Optional ID of a line itemable entity (Appointment, Product, Course) to
      *     filter invoices by (invoices containing a line item linked to this entity).
-     * @return a list of Invoice DTOs.
+     * @param pageable The page to retrieve and its sort order.
+     * @return a page of Invoice DTOs.
      */
     @Override
     @Transactional(readOnly = true)
-    public List<Invoice> getAllInvoices(
+    public Page<Invoice> getAllInvoices(
             Optional<Long> userId,
             Optional<InvoiceStatusEnum> status,
-            Optional<Long> lineItemableId) {
+            Optional<Long> lineItemableId,
+            Pageable pageable) {
         Specification<InvoiceEntity> spec =
                 (root, query, cb) -> {
-                    var predicates = new ArrayList<>();
+                    var predicates = new ArrayList<Predicate>();
 
                     userId.ifPresent(
                             id -> predicates.add(cb.equal(root.get("user").get("id"), id)));
@@ -70,28 +85,34 @@ public class InvoiceServiceImpl implements InvoiceService {
 
                     lineItemableId.ifPresent(
                             id -> {
-                                // Join with lineItems
-                                Join<InvoiceEntity, LineItemEntity> lineItemJoin =
-                                        root.join("lineItems", JoinType.INNER);
-
-                                // Create a disjunction (OR) for the different possible relations
-                                Predicate appointmentPredicate =
-                                        cb.equal(lineItemJoin.get("appointment").get("id"), id);
-                                // Predicate productPredicate =
-                                //         cb.equal(lineItemJoin.get("product").get("id"), id);
-                                // Uncomment when course is implemented
-                                // Predicate coursePredicate =
-                                // cb.equal(lineItemJoin.get("course").get("id"), id);
-
-                                // Add the OR condition to the predicates list
-                                predicates.add(cb.or(appointmentPredicate /*,
-                                                productPredicate, coursePredicate*/));
+                                // A semi-join, so invoices with several matching lines are
+                                // returned once
+                                Subquery<Long> lineItems = query.subquery(Long.class);
+                                Root<LineItemEntity> lineItem = lineItems.from(LineItemEntity.class);
+
+                                // The line item is linked to exactly one of them
+                                lineItems
+                                        .select(lineItem.get("id"))
+                                        .where(
+                                                cb.equal(lineItem.get("invoice"), root),
+                                                cb.or(
+                                                        cb.equal(
+                                                                lineItem.get("appointment")
+                                                                        .get("id"),
+                                                                id),
+                                                        cb.equal(
+                                                                lineItem.get("product").get("id"),
+                                                                id),
+                                                        cb.equal(
+                                                                lineItem.get("course").get("id"),
+                                                                id)));
+                                predicates.add(cb.exists(lineItems));
                             });
 
                     return cb.and(predicates.toArray(new Predicate[0]));
                 };
 
-        return invoiceRepository.findAll(spec).stream().map(invoiceMapper::toDto).toList();
+        return invoiceRepository.findAll(spec, pageable).map(invoiceMapper::toDto);
     }
 
     /**
@@ -128,21 +149,54 @@ public class InvoiceServiceImpl implements InvoiceService {
     }
 
     /**
-     * Retrieves a specific invoice by its unique identifier and returns it as a PDF Resource.
+     * Retrieves a specific invoice by its unique identifier as a PDF to be streamed. The PDF is
+     * read from the cache when it was rendered from the current version of the invoice. If it is
+     * being rendered in the background, that render is waited for rather than duplicated.
+     * Otherwise the invoice is loaded now, and rendered straight into the stream it is written to
+     * while it is cached. No transaction is held open while waiting.
      *
      * @param id The ID of the invoice to retrieve.
-     * @return the invoice as a PDF Resource.
+     * @return the invoice as a PDF.
      * @throws InvoiceNotFoundException if no invoice is found with the given ID.
-     * @throws RuntimeException if there is an error generating the PDF.
      */
     @Override
-    @Transactional(readOnly = true)
-    public Resource getInvoiceByIdAsPDF(Long id) {
-        return invoiceRepository
-                .findById(id)
-                .map(thymeleafUtils::parseThymeleafTemplateAsPDF)
-                .map(ByteArrayResource::new)
-                .orElseThrow(() -> new InvoiceNotFoundException("id", id.toString()));
+    public InvoicePdf getInvoiceByIdAsPDF(Long id) {
+        final var version = InvoicePdfCache.versionOf(getInvoiceEntityById(id));
+
+        return invoicePdfCache
+                .get(id, version)
+                .or(
+                        () -> {
+                            invoicePdfPrerenderer.awaitInFlight(id);
+                            return invoicePdfCache.get(id, version);
+                        })
+                .map(InvoicePdf::of)
+                .orElseGet(() -> renderedPDF(id, version));
+    }
+
+    /**
+     * Prepares the PDF of an invoice to be rendered as it is written, caching it under the given
+     * version.
+     *
+     * @param id The ID of the invoice to render.
+     * @param version The version of the invoice being rendered.
+     * @return the invoice as a PDF of unknown size.
+     */
+    private InvoicePdf renderedPDF(Long id, long version) {
+        final var context =
+                invoiceRepository
+                        .findWithLineItemsById(id)
+                        .map(thymeleafUtils::invoiceContext)
+                        .orElseThrow(() -> new InvoiceNotFoundException("id", id.toString()));
+
+        return new InvoicePdf(
+                -1,
+                out -> {
+                    try (var pending = invoicePdfCache.open(id, version, out)) {
+                        invoicePdfRenderer.render(context, pending.stream());
+                        pending.commit();
+                    }
+                });
     }
 
     /**
@@ -180,7 +234,9 @@ public class InvoiceServiceImpl implements InvoiceService {
     }
 
     /**
-     * Updates the status of an existing invoice identified by its unique identifier.
+     * Updates the status of an existing invoice identified by its unique identifier. Paying an
+     * invoice adds it to the revenue rollups, and un-paying it takes it out. Retried from a fresh
+     * read if the invoice changed concurrently, for instance when a line item was added to it.
      *
      * @param id The ID of the invoice whose status to update.
      * @param invoice The UpdateInvoiceStatusRequest containing the new status.
@@ -188,23 +244,34 @@ public class InvoiceServiceImpl implements InvoiceService {
      * @throws InvoiceNotFoundException if no invoice is found with the given ID.
      */
     @Override
-    @Transactional
     public Invoice updateInvoiceStatus(Long id, UpdateInvoiceStatusRequest invoice) {
-        return invoiceRepository
-                .findById(id)
-                .map(
-                        entity -> {
-                            entity.setStatus(invoice.status());
-                            return entity;
-                        })
-                .map(invoiceRepository::save)
-                .map(invoiceMapper::toDto)
-                .orElseThrow(() -> new InvoiceNotFoundException("id", id.toString()));
+        return optimisticRetry.execute(
+                tx ->
+                        invoiceRepository
+                                .findById(id)
+                                .map(
+                                        entity -> {
+                                            revenueRollupService.invoiceStatusChanged(
+                                                    id, entity.getStatus(), invoice.status());
+                                            entity.setStatus(invoice.status());
+                                            invoicePdfCache.evict(id);
+                                            if (invoice.status() == InvoiceStatusEnum.PAID) {
+                                                // The download usually follows the payment
+                                                // right away.
+                                                invoicePdfPrerenderer.prerenderAfterCommit(id);
+                                            }
+                                            return entity;
+                                        })
+                                .map(invoiceRepository::saveAndFlush)
+                                .map(invoiceMapper::toDto)
+                                .orElseThrow(
+                                        () -> new InvoiceNotFoundException("id", id.toString())));
     }
 
     /**
      * Updates an existing invoice identified by its unique identifier. Maps the update request to
-     * the existing entity and saves the changes.
+     * the existing entity and saves the changes, retrying from a fresh read if the invoice changed
+     * concurrently.
      *
      * @param id The ID of the invoice to update.
      * @param data The UpdateInvoiceRequest containing the updated details for the invoice.
@@ -212,34 +279,77 @@ public class InvoiceServiceImpl implements InvoiceService {
      * @throws InvoiceNotFoundException if no invoice is found with the given ID.
      */
     @Override
-    @Transactional
     public Invoice updateInvoice(Long id, UpdateInvoiceRequest data) {
-        return invoiceRepository
-                .findById(id)
-                .map(
-                        i -> {
-                            invoiceMapper.updateEntity(data, i);
-                            return i;
-                        })
-                .map(invoiceRepository::save)
-                .map(invoiceMapper::toDto)
-                .orElseThrow(() -> new InvoiceNotFoundException("id", id.toString()));
+        return optimisticRetry.execute(
+                tx ->
+                        invoiceRepository
+                                .findById(id)
+                                .map(
+                                        i -> {
+                                            final var previousStatus = i.getStatus();
+                                            invoiceMapper.updateEntity(data, i);
+                                            revenueRollupService.invoiceStatusChanged(
+                                                    id, previousStatus, i.getStatus());
+                                            invoicePdfCache.evict(id);
+                                            return i;
+                                        })
+                                .map(invoiceRepository::saveAndFlush)
+                                .map(invoiceMapper::toDto)
+                                .orElseThrow(
+                                        () -> new InvoiceNotFoundException("id", id.toString())));
     }
 
     /**
-     * Deletes an invoice identified by its unique identifier.
+     * Deletes an invoice identified by its unique identifier, taking it out of the revenue rollups
+     * if it was paid. Retried from a fresh read if the invoice changed concurrently.
      *
      * @param id The ID of the invoice to delete.
      * @throws InvoiceNotFoundException if no invoice is found with the given ID.
      */
     @Override
-    @Transactional
     public void deleteInvoice(Long id) {
-        if (invoiceRepository.existsById(id)) {
-            invoiceRepository.deleteById(id);
-            return;
+        optimisticRetry.execute(
+                tx -> {
+                    final var invoice =
+                            invoiceRepository
+                                    .findById(id)
+                                    .orElseThrow(
+                                            () ->
+                                                    new InvoiceNotFoundException(
+                                                            "id", id.toString()));
+
+                    revenueRollupService.invoiceDeleting(id, invoice.getStatus());
+                    invoiceRepository.delete(invoice);
+                    invoiceRepository.flush();
+                    invoicePdfCache.evict(id);
+                    return null;
+                });
+    }
+
+    /**
+     * Checks the stored total of every invoice against the sum of the subtotals of its line items
+     * in a single grouped query, and repairs the ones that differ in a single update. Totals are
+     * kept incrementally, so a mismatch means a line item was changed outside the service.
+     *
+     * @return the invoices whose totals were repaired.
+     */
+    @Override
+    @Transactional
+    public List<InvoiceTotalMismatch> reconcileInvoiceTotals() {
+        final var mismatches = invoiceRepository.findTotalMismatches();
+        if (mismatches.isEmpty()) {
+            return mismatches;
         }
 
-        throw new InvoiceNotFoundException("id", id.toString());
+        mismatches.forEach(
+                mismatch ->
+                        log.warn(
+                                "Invoice {} total is {} but its line items add up to {}",
+                                mismatch.invoiceId(),
+                                mismatch.storedTotal(),
+                                mismatch.lineItemsTotal()));
+        invoiceRepository.recalculateTotalPrices(
+                mismatches.stream().map(InvoiceTotalMismatch::invoiceId).toList());
+        return mismatches;
     }
 }
@@ -1,5 +1,6 @@
 package es.jose.backend.services;
 
+import es.jose.backend.exceptions.invoice.InvoiceNotFoundException;
 import es.jose.backend.exceptions.lineItem.LineItemNotFoundException;
 import es.jose.backend.mappers.LineItemMapper;
 import es.jose.backend.persistence.entities.AppointmentEntity;
@@ -9,6 +10,8 @@ import es.jose.backend.persistence.entities.LineItemable;
 import es.jose.backend.persistence.entities.ProductEntity;
 import es.jose.backend.persistence.repositories.InvoiceRepository;
 import es.jose.backend.persistence.repositories.LineItemRepository;
+import es.jose.backend.services.pdf.InvoicePdfCache;
+import es.jose.backend.services.reporting.RevenueRollupService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,9 +19,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.openapitools.model.AddLineItemRequest;
 import org.openapitools.model.LineItem;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -26,7 +28,7 @@ import java.util.stream.Stream;
 /**
  * Service implementation for managing LineItem entities. Provides operations for retrieving,
  * creating, and deleting line items. Handles the logic for linking line items to Appointments,
- * Products, or Courses and updating the associated Invoice's total price.
+ * Products, or Courses and keeping the associated Invoice's total price up to date.
  */
 @Slf4j
 @Service
@@ -35,11 +37,12 @@ public class LineItemServiceImpl implements LineItemService {
 
     private final CourseService courseService;
     private final LineItemMapper lineItemMapper;
-    private final InvoiceService invoiceService;
     private final ProductService productService;
     private final InvoiceRepository invoiceRepository;
     private final LineItemRepository lineItemRepository;
     private final AppointmentService appointmentService;
+    private final InvoicePdfCache invoicePdfCache;
+    private final RevenueRollupService revenueRollupService;
 
     /**
      * Retrieves all existing line items. Optionally, filters by invoice ID.
@@ -75,14 +78,22 @@ public class LineItemServiceImpl implements LineItemService {
     /**
      * Creates a new line item based on the provided request. Links the line item to the specified
      * invoice and the related object (Appointment, Product, or Course). Calculates the subtotal and
-     * updates the associated invoice's total price.
+     * adds it to the associated invoice's total price. The invoice is only referenced, never
+     * loaded, so the cost does not grow with the number of line items it already has.
      *
      * @param lineItem the request object containing details for the new line item.
      * @return the created LineItem DTO.
+     * @throws InvoiceNotFoundException if the invoice is not found.
      */
     @Override
+    @Transactional
     public LineItem createLineItem(final AddLineItemRequest lineItem) {
-        final var invoice = invoiceService.getInvoiceEntityById(lineItem.invoiceId());
+        final var invoiceId = lineItem.invoiceId();
+        if (!invoiceRepository.existsById(invoiceId)) {
+            throw new InvoiceNotFoundException("id", invoiceId.toString());
+        }
+
+        final var invoice = invoiceRepository.getReferenceById(invoiceId);
         final var lineItemObject = getLineItemObject(lineItem);
 
         LineItemEntity entity = lineItemMapper.toEntity(lineItem);
@@ -93,7 +104,9 @@ public class LineItemServiceImpl implements LineItemService {
 
         entity = lineItemRepository.save(entity);
 
-        updateInvoice(entity);
+        invoiceRepository.addToTotalPrice(invoiceId, entity.getSubtotal());
+        revenueRollupService.lineItemAdded(entity.getId());
+        invoicePdfCache.evict(invoiceId);
 
         return lineItemMapper.toDto(entity);
     }
@@ -163,18 +176,18 @@ public class LineItemServiceImpl implements LineItemService {
             }
             case CourseEntity course -> {
                 log.info("Adding course: {}", course);
-                entity.setSubtotal(BigDecimal.valueOf(course.getEnrollmentPrice()));
-                entity.setPriceAtPurchase(BigDecimal.valueOf(course.getEnrollmentPrice()));
+                entity.setSubtotal(course.getEnrollmentPrice());
+                entity.setPriceAtPurchase(course.getEnrollmentPrice());
                 yield entity;
             }
             case ProductEntity product -> {
                 log.info("Adding product: {}", product);
 
-                var tax = product.getProductCategory().getVatPercentage() * product.getPrice();
-
                 entity.setSubtotal(
-                        BigDecimal.valueOf((product.getPrice() + tax) * entity.getQuantity()));
-                entity.setPriceAtPurchase(BigDecimal.valueOf(product.getPrice()));
+                        product.getPrice()
+                                .times(entity.getQuantity())
+                                .plusTax(product.getProductCategory().getVatPercentage()));
+                entity.setPriceAtPurchase(product.getPrice());
                 yield entity;
             }
             default -> null;
@@ -182,30 +195,25 @@ public class LineItemServiceImpl implements LineItemService {
     }
 
     /**
-     * Updates the associated invoice's total price by adding the new line item's subtotal. Also
-     * updates the invoice's `updatedAt` timestamp and saves the invoice.
-     *
-     * @param entity the newly created or updated LineItemEntity.
-     */
-    private void updateInvoice(LineItemEntity entity) {
-        final var invoice = entity.getInvoice();
-        invoice.setUpdatedAt(LocalDateTime.now());
-        invoice.setTotalPrice(invoice.getTotalPrice().add(entity.getSubtotal()));
-        invoiceRepository.save(invoice);
-    }
-
-    /**
-     * Deletes a line item by its ID.
+     * Deletes a line item by its ID and subtracts its subtotal from the associated invoice's total
+     * price.
      *
      * @param lineItemId the ID of the line item to delete.
      * @throws LineItemNotFoundException if no line item is found with the given ID.
      */
     @Override
+    @Transactional
     public void deleteLineItem(Long lineItemId) {
-        if (lineItemRepository.findById(lineItemId).isPresent()) {
-            lineItemRepository.deleteById(lineItemId);
-        }
-
-        throw new LineItemNotFoundException("id", lineItemId.toString());
+        final var entity =
+                lineItemRepository
+                        .findById(lineItemId)
+                        .orElseThrow(
+                                () -> new LineItemNotFoundException("id", lineItemId.toString()));
+
+        revenueRollupService.lineItemDeleting(lineItemId);
+        lineItemRepository.delete(entity);
+        invoiceRepository.addToTotalPrice(
+                entity.getInvoice().getId(), entity.getSubtotal().negate());
+        invoicePdfCache.evict(entity.getInvoice().getId());
     }
 }
@@ -5,6 +5,9 @@ import es.jose.backend.exceptions.user.UserNotFoundException;
 import es.jose.backend.mappers.UserMapper;
 import es.jose.backend.persistence.entities.UserEntity;
 import es.jose.backend.persistence.repositories.UserRepository;
+import es.jose.backend.security.CachingJwtDecoder;
+import es.jose.backend.services.security.RefreshTokenService;
+import es.jose.backend.services.security.UserSecurityService;
 
 import lombok.RequiredArgsConstructor;
 
@@ -32,6 +35,9 @@ public class UserServiceImpl implements UserService {
     private final UserMapper userMapper;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserSecurityService userSecurityService;
+    private final RefreshTokenService refreshTokenService;
+    private final CachingJwtDecoder jwtDecoder;
 
     /**
      * Retrieves a list of all users, optionally filtered by username or email.
@@ -163,6 +169,7 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public User updateUser(Long id, UpdateUserRequest user) {
+        userSecurityService.evictAfterCommit(id);
         return userRepository
                 .findById(id)
                 .map(
@@ -176,7 +183,8 @@ public class UserServiceImpl implements UserService {
     }
 
     /**
-     * Deletes a user identified by their unique identifier.
+     * Deletes a user identified by their unique identifier and revokes their refresh and access
+     * tokens.
      *
      * @param id The ID of the user to delete.
      * @throws UserNotFoundException if no user is found with the given ID.
@@ -184,8 +192,14 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public void deleteUser(Long id) {
-        if (userRepository.existsById(id)) userRepository.deleteById(id);
-        else throw new UserNotFoundException("id", id.toString());
+        userSecurityService.evictAfterCommit(id);
+        final var user =
+                userRepository
+                        .findById(id)
+                        .orElseThrow(() -> new UserNotFoundException("id", id.toString()));
+        userRepository.deleteById(id);
+        refreshTokenService.revokeAll(id);
+        jwtDecoder.revokeSubject(user.getUsername());
     }
 
     /**
@@ -199,6 +213,7 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public User activateUserById(Long id) {
+        userSecurityService.evictAfterCommit(id);
         return userRepository
                 .findById(id)
                 .map(
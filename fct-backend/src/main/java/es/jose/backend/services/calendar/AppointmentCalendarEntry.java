@@ -0,0 +1,29 @@
+package es.jose.backend.services.calendar;
+
+import org.openapitools.model.AppointmentStatusEnum;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * The columns of an appointment needed to write it as a calendar event.
+ *
+ * @param id the id of the appointment.
+ * @param date the day of the appointment.
+ * @param startTime the time the appointment starts at.
+ * @param duration the duration of the appointment in minutes.
+ * @param status the status of the appointment.
+ * @param description the description of the appointment.
+ * @param category the name of the category of the appointment.
+ * @param updatedAt when the appointment was last modified, if known.
+ */
+public record AppointmentCalendarEntry(
+        Long id,
+        LocalDate date,
+        LocalTime startTime,
+        Integer duration,
+        AppointmentStatusEnum status,
+        String description,
+        String category,
+        LocalDateTime updatedAt) {}
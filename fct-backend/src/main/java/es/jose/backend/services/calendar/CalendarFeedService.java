@@ -0,0 +1,40 @@
+package es.jose.backend.services.calendar;
+
+import java.io.OutputStream;
+
+/**
+ * Service interface for the iCalendar feeds of appointments and courses. A feed is versioned
+ * separately from writing it, so conditional requests can be answered without reading its events.
+ */
+public interface CalendarFeedService {
+
+    /**
+     * Gets the version of the feed of a user.
+     *
+     * @param userId The ID of the user.
+     * @return the version of the feed.
+     */
+    CalendarFeedVersion getUserFeedVersion(Long userId);
+
+    /**
+     * Writes the feed of a user: their appointments and the courses they are enrolled in.
+     *
+     * @param userId The ID of the user.
+     * @param out The stream to write the feed to.
+     */
+    void writeUserFeed(Long userId, OutputStream out);
+
+    /**
+     * Gets the version of the staff feed.
+     *
+     * @return the version of the feed.
+     */
+    CalendarFeedVersion getStaffFeedVersion();
+
+    /**
+     * Writes the staff feed: every appointment and course.
+     *
+     * @param out The stream to write the feed to.
+     */
+    void writeStaffFeed(OutputStream out);
+}
@@ -0,0 +1,122 @@
+package es.jose.backend.services.calendar;
+
+import es.jose.backend.config.CalendarFeedProperties;
+import es.jose.backend.persistence.repositories.AppointmentRepository;
+import es.jose.backend.persistence.repositories.CourseRepository;
+import es.jose.backend.services.UserService;
+
+import lombok.RequiredArgsConstructor;
+
+import org.openapitools.model.UserCourseEnrollmentStatusEnum;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * Service implementation for the iCalendar feeds. Every feed covers a bounded window around the
+ * current date. Its events are read through projected queries that are streamed straight into the
+ * response, so neither entities nor the whole calendar are ever held in memory. Each query is
+ * drained and closed before the next one is opened, as the driver would otherwise buffer the
+ * result set still being read.
+ */
+@Service
+@RequiredArgsConstructor
+public class CalendarFeedServiceImpl implements CalendarFeedService {
+
+    private static final UserCourseEnrollmentStatusEnum ENROLLED =
+            UserCourseEnrollmentStatusEnum.ENROLLED;
+
+    private final UserService userService;
+    private final CourseRepository courseRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final CalendarFeedProperties properties;
+
+    /**
+     * Gets the version of the feed of a user.
+     *
+     * @param userId The ID of the user.
+     * @return the version of the feed.
+     * @throws es.jose.backend.exceptions.user.UserNotFoundException if the user is not found.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CalendarFeedVersion getUserFeedVersion(Long userId) {
+        userService.getUserEntityById(userId);
+
+        final var from = windowStart();
+        final var to = windowEnd();
+        return CalendarFeedVersion.of(
+                from,
+                appointmentRepository.findFeedStampByUserId(userId, from, to),
+                courseRepository.findFeedStampByUserId(userId, ENROLLED, from, to));
+    }
+
+    /**
+     * Writes the feed of a user: their appointments and the courses they are enrolled in.
+     *
+     * @param userId The ID of the user.
+     * @param out The stream to write the feed to.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void writeUserFeed(Long userId, OutputStream out) {
+        final var from = windowStart();
+        final var to = windowEnd();
+        try (var calendar = new ICalendarWriter(out, properties.timeZone(), "Agenda")) {
+            try (var appointments =
+                    appointmentRepository.streamCalendarEntriesByUserId(userId, from, to)) {
+                appointments.forEach(calendar::appointment);
+            }
+            try (var courses =
+                    courseRepository.streamCalendarEntriesByUserId(userId, ENROLLED, from, to)) {
+                courses.forEach(calendar::course);
+            }
+        }
+    }
+
+    /**
+     * Gets the version of the staff feed.
+     *
+     * @return the version of the feed.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CalendarFeedVersion getStaffFeedVersion() {
+        final var from = windowStart();
+        final var to = windowEnd();
+        return CalendarFeedVersion.of(
+                from,
+                appointmentRepository.findFeedStamp(from, to),
+                courseRepository.findFeedStamp(from, to));
+    }
+
+    /**
+     * Writes the staff feed: every appointment and course.
+     *
+     * @param out The stream to write the feed to.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void writeStaffFeed(OutputStream out) {
+        final var from = windowStart();
+        final var to = windowEnd();
+        try (var calendar = new ICalendarWriter(out, properties.timeZone(), "Agenda del equipo")) {
+            try (var appointments = appointmentRepository.streamCalendarEntries(from, to)) {
+                appointments.forEach(calendar::appointment);
+            }
+            try (var courses = courseRepository.streamCalendarEntries(from, to)) {
+                courses.forEach(calendar::course);
+            }
+        }
+    }
+
+    private LocalDate windowStart() {
+        return LocalDate.now().minusDays(properties.pastDays());
+    }
+
+    private LocalDate windowEnd() {
+        return LocalDate.now().plusDays(properties.futureDays());
+    }
+}
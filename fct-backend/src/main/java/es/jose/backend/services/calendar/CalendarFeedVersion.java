@@ -0,0 +1,55 @@
+package es.jose.backend.services.calendar;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Version of a calendar feed, used to answer conditional requests without writing the feed.
+ *
+ * @param eTag the entity tag of the feed, quoted.
+ * @param lastModified the latest modification among the events of the feed, in epoch
+ *     milliseconds, if known.
+ */
+public record CalendarFeedVersion(String eTag, Optional<Long> lastModified) {
+
+    /**
+     * Builds the version of a feed from the stamps of its appointments and courses. The first day
+     * of the window is part of the tag, since the window moves every day. Modification dates are
+     * stored in the time zone of the server.
+     *
+     * @param windowStart the first day of the window of the feed.
+     * @param appointments the stamp of the appointments of the feed.
+     * @param courses the stamp of the courses of the feed.
+     * @return the version of the feed.
+     */
+    static CalendarFeedVersion of(
+            LocalDate windowStart, FeedStamp appointments, FeedStamp courses) {
+        final var lastModified =
+                Stream.of(appointments.lastModified(), courses.lastModified())
+                        .filter(Objects::nonNull)
+                        .max(LocalDateTime::compareTo)
+                        .map(CalendarFeedVersion::epochMilli);
+
+        return new CalendarFeedVersion(
+                "\"%s-a%d.%s-c%d.%s\""
+                        .formatted(
+                                windowStart.toEpochDay(),
+                                appointments.count(),
+                                tagOf(appointments.lastModified()),
+                                courses.count(),
+                                tagOf(courses.lastModified())),
+                lastModified);
+    }
+
+    private static String tagOf(LocalDateTime lastModified) {
+        return lastModified == null ? "0" : Long.toString(epochMilli(lastModified), 36);
+    }
+
+    private static long epochMilli(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
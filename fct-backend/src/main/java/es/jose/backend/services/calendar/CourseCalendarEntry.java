@@ -0,0 +1,22 @@
+package es.jose.backend.services.calendar;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a course needed to write it as a calendar event.
+ *
+ * @param id the id of the course.
+ * @param startDate the first day of the course.
+ * @param endDate the last day of the course.
+ * @param description the description of the course.
+ * @param category the name of the category of the course.
+ * @param updatedAt when the course was last modified, if known.
+ */
+public record CourseCalendarEntry(
+        Long id,
+        LocalDate startDate,
+        LocalDate endDate,
+        String description,
+        String category,
+        LocalDateTime updatedAt) {}
@@ -0,0 +1,12 @@
+package es.jose.backend.services.calendar;
+
+import java.time.LocalDateTime;
+
+/**
+ * Summary of the rows behind a feed. The count catches deletions, which leave no modification
+ * date behind, and the latest modification catches everything else.
+ *
+ * @param count the number of rows.
+ * @param lastModified the latest modification among the rows, or null if unknown.
+ */
+public record FeedStamp(Long count, LocalDateTime lastModified) {}
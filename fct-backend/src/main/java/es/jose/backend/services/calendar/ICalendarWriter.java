@@ -0,0 +1,172 @@
+package es.jose.backend.services.calendar;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes an iCalendar (RFC 5545) document event by event to an output stream, so that a feed
+ * never has to be held in memory as a whole. Appointment times are converted to UTC, and courses
+ * are written as all-day events.
+ */
+final class ICalendarWriter implements AutoCloseable {
+
+    private static final String CRLF = "\r\n";
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final String UID_DOMAIN = "academia-fabiana-perez";
+
+    private static final DateTimeFormatter UTC_DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final Writer writer;
+    private final ZoneId zone;
+    private final Instant now = Instant.now();
+
+    /**
+     * Starts a calendar on the given stream.
+     *
+     * @param out the stream to write to. It is flushed but not closed by {@link #close()}.
+     * @param zone the time zone appointment times are given in.
+     * @param name the display name of the calendar.
+     */
+    ICalendarWriter(OutputStream out, ZoneId zone, String name) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.zone = zone;
+        line("BEGIN:VCALENDAR");
+        line("VERSION:2.0");
+        line("PRODID:-//Academia Fabiana Perez//Agenda//ES");
+        line("CALSCALE:GREGORIAN");
+        line("METHOD:PUBLISH");
+        line("X-WR-CALNAME:" + escape(name));
+    }
+
+    /**
+     * Writes an appointment as an event.
+     *
+     * @param entry the appointment.
+     */
+    void appointment(AppointmentCalendarEntry entry) {
+        final var start = entry.date().atTime(entry.startTime()).atZone(zone).toInstant();
+
+        line("BEGIN:VEVENT");
+        line("UID:appointment-" + entry.id() + "@" + UID_DOMAIN);
+        stamps(entry.updatedAt());
+        line("DTSTART:" + UTC_DATE_TIME.format(start));
+        line("DTEND:" + UTC_DATE_TIME.format(start.plusSeconds(entry.duration() * 60L)));
+        line("SUMMARY:" + escape(entry.category()));
+        line("DESCRIPTION:" + escape(entry.description()));
+        line(
+                "STATUS:"
+                        + switch (entry.status()) {
+                            case ACCEPTED -> "CONFIRMED";
+                            case WAITING -> "TENTATIVE";
+                            case DECLINED -> "CANCELLED";
+                        });
+        line("END:VEVENT");
+    }
+
+    /**
+     * Writes a course as an all-day event spanning its days.
+     *
+     * @param entry the course.
+     */
+    void course(CourseCalendarEntry entry) {
+        line("BEGIN:VEVENT");
+        line("UID:course-" + entry.id() + "@" + UID_DOMAIN);
+        stamps(entry.updatedAt());
+        line("DTSTART;VALUE=DATE:" + DATE.format(entry.startDate()));
+        // The end of an all-day event is exclusive.
+        line("DTEND;VALUE=DATE:" + DATE.format(entry.endDate().plusDays(1)));
+        line("SUMMARY:" + escape(entry.category()));
+        line("DESCRIPTION:" + escape(entry.description()));
+        line("TRANSP:TRANSPARENT");
+        line("END:VEVENT");
+    }
+
+    /** Ends the calendar and flushes what is left in the buffer. */
+    @Override
+    public void close() {
+        line("END:VCALENDAR");
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void stamps(LocalDateTime updatedAt) {
+        line("DTSTAMP:" + UTC_DATE_TIME.format(now));
+        if (updatedAt != null) {
+            line(
+                    "LAST-MODIFIED:"
+                            + UTC_DATE_TIME.format(
+                                    updatedAt.atZone(ZoneId.systemDefault()).toInstant()));
+        }
+    }
+
+    /**
+     * Writes a content line, folding it so that no line exceeds 75 octets. Lines are only broken
+     * between characters, never inside a multi-byte UTF-8 sequence.
+     *
+     * @param content the content line.
+     */
+    private void line(String content) {
+        try {
+            var octets = 0;
+            for (var i = 0; i < content.length(); ) {
+                final int codePoint = content.codePointAt(i);
+                final int size = utf8Length(codePoint);
+                if (octets + size > MAX_LINE_OCTETS) {
+                    writer.write(CRLF);
+                    writer.write(' ');
+                    octets = 1;
+                }
+                writer.write(Character.toChars(codePoint));
+                octets += size;
+                i += Character.charCount(codePoint);
+            }
+            writer.write(CRLF);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        }
+        if (codePoint < 0x800) {
+            return 2;
+        }
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    /**
+     * Escapes a text value.
+     *
+     * @param text the text, possibly null.
+     * @return the escaped text.
+     */
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+
+        return text.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n")
+                .replace("\r", "\\n");
+    }
+}
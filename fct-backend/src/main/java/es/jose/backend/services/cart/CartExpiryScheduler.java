@@ -0,0 +1,41 @@
+package es.jose.backend.services.cart;
+
+import es.jose.backend.config.CartExpiryProperties;
+import es.jose.backend.services.concurrency.SchedulerLock;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically deletes the carts nobody has touched for a long time, on one instance of the
+ * application at a time.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.carts.expiry", name = "enabled", havingValue = "true")
+public class CartExpiryScheduler {
+
+    private static final String JOB_NAME = "cart-expiry";
+
+    private final CartExpiryService cartExpiryService;
+    private final SchedulerLock schedulerLock;
+    private final CartExpiryProperties properties;
+
+    @Scheduled(cron = "${app.carts.expiry.cron}")
+    public void expireIdleCarts() {
+        // The lease outlasts a run, which stops starting batches after its maximum duration.
+        schedulerLock.runExclusively(
+                JOB_NAME,
+                properties.maxDuration().multipliedBy(2),
+                () -> {
+                    final var lines = cartExpiryService.expireIdleCarts();
+                    log.info(
+                            "Expired {} cart lines idle for more than {}", lines, properties.ttl());
+                });
+    }
+}
@@ -0,0 +1,12 @@
+package es.jose.backend.services.cart;
+
+/** Service interface for deleting the carts nobody has touched for a long time. */
+public interface CartExpiryService {
+
+    /**
+     * Deletes the carts that have not been changed for longer than configured, in batches.
+     *
+     * @return the number of cart lines deleted.
+     */
+    int expireIdleCarts();
+}
@@ -0,0 +1,102 @@
+package es.jose.backend.services.cart;
+
+import es.jose.backend.config.CartExpiryProperties;
+import es.jose.backend.persistence.repositories.CartRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Service implementation for deleting the carts nobody has touched for a long time. Idle carts
+ * are found a page of users at a time, in order of user ID, and each page is deleted through the
+ * {@link CartStore} in a statement of its own, with a pause after it. No transaction is held for
+ * longer than one batch, and other writes to the carts get in between batches. A run stops once
+ * it has taken as long as configured and leaves the rest to the next run.
+ *
+ * <p>Reports the cart lines deleted as the {@code carts.expired.lines} counter and the duration of
+ * each run as the {@code carts.expiry.runs} timer.
+ */
+@Slf4j
+@Service
+public class CartExpiryServiceImpl implements CartExpiryService {
+
+    private final CartRepository cartRepository;
+    private final CartStore cartStore;
+    private final CartExpiryProperties properties;
+    private final Counter expiredLines;
+    private final Timer runs;
+
+    public CartExpiryServiceImpl(
+            CartRepository cartRepository,
+            CartStore cartStore,
+            CartExpiryProperties properties,
+            MeterRegistry meterRegistry) {
+        this.cartRepository = cartRepository;
+        this.cartStore = cartStore;
+        this.properties = properties;
+        this.expiredLines =
+                Counter.builder("carts.expired.lines")
+                        .description("Cart lines deleted because their cart was idle")
+                        .register(meterRegistry);
+        this.runs =
+                Timer.builder("carts.expiry.runs")
+                        .description("Runs of the expiry of idle carts")
+                        .register(meterRegistry);
+    }
+
+    @Override
+    public int expireIdleCarts() {
+        return runs.record(this::expire);
+    }
+
+    private int expire() {
+        final var idleSince = LocalDateTime.now().minus(properties.ttl());
+        final var deadline = System.nanoTime() + properties.maxDuration().toNanos();
+        var afterUserId = 0L;
+        var deleted = 0;
+        while (true) {
+            final var userIds =
+                    cartRepository.findIdleUserIds(
+                            afterUserId, idleSince, Limit.of(properties.batchSize()));
+            if (userIds.isEmpty()) {
+                break;
+            }
+
+            final var lines = cartStore.expireIdle(userIds, idleSince);
+            expiredLines.increment(lines);
+            deleted += lines;
+            afterUserId = userIds.getLast();
+
+            if (userIds.size() < properties.batchSize()) {
+                break;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                log.info("Leaving the idle carts after user {} to the next run", afterUserId);
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    /** Waits between batches, returning false if interrupted. */
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.batchPause());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
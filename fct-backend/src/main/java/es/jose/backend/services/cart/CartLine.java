@@ -0,0 +1,10 @@
+package es.jose.backend.services.cart;
+
+/**
+ * A product in the cart of a user, as stored in the {@code carts} table.
+ *
+ * @param userId the ID of the user.
+ * @param productId the ID of the product.
+ * @param quantity the quantity in the cart.
+ */
+public record CartLine(Long userId, Long productId, Integer quantity) {}
@@ -0,0 +1,95 @@
+package es.jose.backend.services.cart;
+
+import org.openapitools.model.Cart;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Where the carts of the users are read from and written to. {@link es.jose.backend.services.CartService} goes through it
+ * for every change to a cart, and checkouts go through it to read a cart in the state the user
+ * last left it.
+ *
+ * @see DatabaseCartStore
+ * @see WriteBehindCartStore
+ */
+public interface CartStore {
+
+    /**
+     * Gets the cart of a user.
+     *
+     * @param userId The user's ID.
+     * @return The products in the cart, ordered by product ID.
+     * @throws es.jose.backend.exceptions.user.UserNotFoundException if the user is not found.
+     */
+    List<Cart> getCart(Long userId);
+
+    /**
+     * Gets the carts of all users.
+     *
+     * @return The products in the carts.
+     */
+    List<Cart> getAllCarts();
+
+    /**
+     * Adds one unit of a product to the cart of a user.
+     *
+     * @param userId The user's ID.
+     * @param productId The product's ID.
+     * @return The product in the cart, with its new quantity.
+     * @throws es.jose.backend.exceptions.user.UserNotFoundException if the user is not found.
+     * @throws jakarta.persistence.EntityNotFoundException if the product is not found.
+     */
+    Cart addProduct(Long userId, Long productId);
+
+    /**
+     * Sets the quantity of a product in the cart of a user.
+     *
+     * @param userId The user's ID.
+     * @param productId The product's ID.
+     * @param quantity The new quantity.
+     * @return The product in the cart, with its new quantity.
+     * @throws jakarta.persistence.EntityNotFoundException if the product is not in the cart.
+     */
+    Cart updateQuantity(Long userId, Long productId, Integer quantity);
+
+    /**
+     * Removes a product from the cart of a user.
+     *
+     * @param userId The user's ID.
+     * @param productId The product's ID.
+     * @throws jakarta.persistence.EntityNotFoundException if the product is not in the cart.
+     */
+    void removeProduct(Long userId, Long productId);
+
+    /**
+     * Makes sure the database holds the cart of a user as the user last left it, for reads that
+     * join it with other tables.
+     *
+     * @param userId The user's ID.
+     * @throws org.springframework.dao.DataAccessException if the changes to the cart could not
+     *     be written.
+     */
+    void flush(Long userId);
+
+    /**
+     * Deletes the cart lines of the given users that have not been touched since the given time.
+     * Carts in use are left alone, even if the database has not seen them change for that long.
+     *
+     * @param userIds The IDs of the users, at most a few hundred.
+     * @param idleSince Lines last touched before this time are deleted.
+     * @return the number of cart lines deleted.
+     */
+    int expireIdle(List<Long> userIds, LocalDateTime idleSince);
+
+    /**
+     * Runs a checkout of the cart of a user. The database holds the cart as the user last left it
+     * while the checkout runs, and the cart is not changed until it finishes.
+     *
+     * @param userId The user's ID.
+     * @param checkout The checkout, which reads and empties the cart in the database.
+     * @return the result of the checkout.
+     */
+    <T> T checkout(Long userId, Supplier<T> checkout);
+}
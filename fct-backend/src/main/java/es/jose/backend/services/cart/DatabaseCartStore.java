@@ -0,0 +1,146 @@
+package es.jose.backend.services.cart;
+
+import es.jose.backend.mappers.CartMapper;
+import es.jose.backend.persistence.entities.keys.CartKey;
+import es.jose.backend.persistence.repositories.CartRepository;
+import es.jose.backend.services.ProductService;
+import es.jose.backend.services.UserService;
+import es.jose.backend.services.concurrency.OptimisticRetry;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import lombok.RequiredArgsConstructor;
+
+import org.openapitools.model.Cart;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Cart store that reads and writes every change straight from and to the database, retrying from
+ * a fresh read when a cart line changed concurrently. Used when the application runs as more than
+ * one instance, where carts cannot be kept in the memory of one of them.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        prefix = "app.carts.write-behind",
+        name = "enabled",
+        havingValue = "false",
+        matchIfMissing = true)
+public class DatabaseCartStore implements CartStore {
+
+    private final CartMapper cartMapper;
+    private final UserService userService;
+    private final ProductService productService;
+    private final CartRepository cartRepository;
+    private final OptimisticRetry optimisticRetry;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Cart> getCart(Long userId) {
+        userService.getUserEntityById(userId);
+        return cartRepository.findLinesByUserId(userId).stream().map(cartMapper::toDto).toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Cart> getAllCarts() {
+        return cartRepository.findAll().stream().map(cartMapper::toDto).toList();
+    }
+
+    /**
+     * Adds one unit of a product to the cart of a user with a single upsert, then reads the new
+     * quantity back in the same transaction. The user and product are only looked up when the
+     * upsert fails, to tell which one is missing. Retried if the upsert lost to a concurrent one,
+     * so concurrent additions are all counted.
+     */
+    @Override
+    public Cart addProduct(Long userId, Long productId) {
+        try {
+            return optimisticRetry.execute(
+                    tx -> {
+                        cartRepository.addAllQuantities(
+                                List.of(new CartLine(userId, productId, 1)));
+                        return cartMapper.toDto(
+                                new CartLine(
+                                        userId,
+                                        productId,
+                                        cartRepository
+                                                .findQuantityById(userId, productId)
+                                                .orElseThrow()));
+                    });
+        } catch (DataIntegrityViolationException e) {
+            productService.getProductEntityById(productId);
+            userService.getUserEntityById(userId);
+            throw e;
+        }
+    }
+
+    /**
+     * Sets the quantity of a product in the cart of a user, retrying from a fresh read if the cart
+     * line changed concurrently.
+     */
+    @Override
+    public Cart updateQuantity(Long userId, Long productId, Integer quantity) {
+        var key = new CartKey(userId, productId);
+        return optimisticRetry.execute(
+                tx ->
+                        cartRepository
+                                .findById(key)
+                                .map(
+                                        entity -> {
+                                            entity.setQuantity(quantity);
+                                            return entity;
+                                        })
+                                .map(cartRepository::saveAndFlush)
+                                .map(cartMapper::toDto)
+                                .orElseThrow(
+                                        () ->
+                                                new EntityNotFoundException(
+                                                        "Cart with id " + key + " not found")));
+    }
+
+    /**
+     * Removes a product from the cart of a user, retrying from a fresh read if the cart line
+     * changed concurrently.
+     */
+    @Override
+    public void removeProduct(Long userId, Long productId) {
+        var key = new CartKey(userId, productId);
+        optimisticRetry.execute(
+                tx -> {
+                    var entity =
+                            cartRepository
+                                    .findById(key)
+                                    .orElseThrow(
+                                            () ->
+                                                    new EntityNotFoundException(
+                                                            "Cart with id " + key + " not found"));
+                    cartRepository.delete(entity);
+                    cartRepository.flush();
+                    return null;
+                });
+    }
+
+    /** Does nothing, since the database always holds the cart. */
+    @Override
+    public void flush(Long userId) {}
+
+    @Override
+    @Transactional
+    public int expireIdle(List<Long> userIds, LocalDateTime idleSince) {
+        return cartRepository.deleteIdleLines(userIds, idleSince);
+    }
+
+    /** Runs the checkout as is, since the database always holds the cart. */
+    @Override
+    public <T> T checkout(Long userId, Supplier<T> checkout) {
+        return checkout.get();
+    }
+}
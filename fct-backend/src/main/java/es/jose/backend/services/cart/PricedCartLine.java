@@ -0,0 +1,58 @@
+package es.jose.backend.services.cart;
+
+import es.jose.backend.utils.Money;
+
+/**
+ * A product in the cart of a user, with what is needed to price it and check its stock.
+ *
+ * @param productId the ID of the product.
+ * @param productName the name of the product.
+ * @param quantity the quantity in the cart.
+ * @param price the unit price of the product, before VAT.
+ * @param vatPercentage the VAT of the product category, as a fraction.
+ * @param stock the units of the product in stock.
+ */
+public record PricedCartLine(
+        Long productId,
+        String productName,
+        Integer quantity,
+        Money price,
+        Double vatPercentage,
+        Integer stock) {
+
+    /**
+     * Gets the price of the line before VAT: the unit price times the quantity.
+     *
+     * @return the net price.
+     */
+    public Money netPrice() {
+        return price.times(quantity);
+    }
+
+    /**
+     * Gets the price of the line with VAT, as a checkout would charge it.
+     *
+     * @return the total, rounded to cents.
+     */
+    public Money total() {
+        return netPrice().plusTax(vatPercentage);
+    }
+
+    /**
+     * Gets the VAT of the line, so that it adds up with the net price to the total.
+     *
+     * @return the VAT.
+     */
+    public Money vat() {
+        return total().plus(netPrice().negate());
+    }
+
+    /**
+     * Checks whether there is enough stock of the product for the line.
+     *
+     * @return whether the stock covers the quantity.
+     */
+    public boolean inStock() {
+        return stock >= quantity;
+    }
+}
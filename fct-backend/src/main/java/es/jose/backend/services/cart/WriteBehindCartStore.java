@@ -0,0 +1,450 @@
+package es.jose.backend.services.cart;
+
+import es.jose.backend.config.CartWriteBehindProperties;
+import es.jose.backend.mappers.CartMapper;
+import es.jose.backend.persistence.entities.keys.CartKey;
+import es.jose.backend.persistence.repositories.CartRepository;
+import es.jose.backend.services.ProductService;
+import es.jose.backend.services.UserService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.openapitools.model.Cart;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Cart store that keeps the carts in use in memory and writes their changes to the database
+ * behind the requests that made them. A cart is read from the database the first time it is used,
+ * after which reads and changes only touch memory. The changes are coalesced per product and
+ * written by a background thread every few hundred milliseconds in a single transaction of JDBC
+ * batches, and once more on shutdown. Carts with nothing left to write are dropped from memory
+ * once they have been idle for a while.
+ *
+ * <p>Carts are spread over a fixed number of locks by user, so changes to different carts rarely
+ * wait for each other. The changes to a cart are written while holding its lock, so that a
+ * checkout always sees every change made before it, and the periodic write takes the locks one at
+ * a time rather than all at once. Locks of several carts are taken in the order of the locks.
+ *
+ * <p>Changes not written yet are only in the memory of this instance, so this store is only
+ * enabled when the application runs as a single instance.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.carts.write-behind", name = "enabled", havingValue = "true")
+public class WriteBehindCartStore implements CartStore {
+
+    private final CartMapper cartMapper;
+    private final UserService userService;
+    private final ProductService productService;
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CartWriteBehindProperties properties;
+
+    private final ConcurrentMap<Long, HotCart> carts = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock[] stripes;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile boolean running;
+    private Thread flusher;
+
+    public WriteBehindCartStore(
+            CartMapper cartMapper,
+            UserService userService,
+            ProductService productService,
+            CartRepository cartRepository,
+            TransactionTemplate transactionTemplate,
+            CartWriteBehindProperties properties) {
+        this.cartMapper = cartMapper;
+        this.userService = userService;
+        this.productService = productService;
+        this.cartRepository = cartRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.stripes = new ReentrantLock[properties.stripes()];
+        for (var i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /** Starts the thread that writes the changes to the carts. */
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = Thread.ofVirtual().name("cart-write-behind").start(this::flushPeriodically);
+    }
+
+    /** Stops the thread that writes the changes to the carts, and writes what is left. */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            flusher.join();
+        }
+        flush();
+    }
+
+    @Override
+    public List<Cart> getCart(Long userId) {
+        return locked(
+                userId,
+                () -> {
+                    final var cart = hotCart(userId);
+                    return cart.lines.entrySet().stream()
+                            .map(line -> cart(userId, line.getKey(), line.getValue()))
+                            .toList();
+                });
+    }
+
+    /** Writes the changes to all carts first, then reads the carts from the database. */
+    @Override
+    public List<Cart> getAllCarts() {
+        flush();
+        return cartRepository.findAll().stream().map(cartMapper::toDto).toList();
+    }
+
+    @Override
+    public Cart addProduct(Long userId, Long productId) {
+        return locked(
+                userId,
+                () -> {
+                    final var cart = hotCart(userId);
+                    if (!cart.lines.containsKey(productId)) {
+                        productService.getProductEntityById(productId);
+                    }
+                    final var quantity = cart.lines.merge(productId, 1, Integer::sum);
+                    markDirty(userId, cart, productId);
+                    return cart(userId, productId, quantity);
+                });
+    }
+
+    @Override
+    public Cart updateQuantity(Long userId, Long productId, Integer quantity) {
+        return locked(
+                userId,
+                () -> {
+                    final var cart = hotCart(userId);
+                    if (cart.lines.replace(productId, quantity) == null) {
+                        throw notInCart(userId, productId);
+                    }
+                    markDirty(userId, cart, productId);
+                    return cart(userId, productId, quantity);
+                });
+    }
+
+    @Override
+    public void removeProduct(Long userId, Long productId) {
+        locked(
+                userId,
+                () -> {
+                    final var cart = hotCart(userId);
+                    if (cart.lines.remove(productId) == null) {
+                        throw notInCart(userId, productId);
+                    }
+                    markDirty(userId, cart, productId);
+                    return null;
+                });
+    }
+
+    /** Writes the changes to the cart of the user, waiting for a write in progress to finish. */
+    @Override
+    public void flush(Long userId) {
+        locked(
+                userId,
+                () -> {
+                    write(collect(List.of(userId)));
+                    return null;
+                });
+    }
+
+    /**
+     * Deletes the idle cart lines of the users whose carts are not in memory, holding their locks
+     * so that none of them is read from the database while the lines are deleted.
+     */
+    @Override
+    public int expireIdle(List<Long> userIds, LocalDateTime idleSince) {
+        final var locks =
+                userIds.stream().map(this::stripeIndex).distinct().sorted().map(i -> stripes[i]);
+        final var held = new ArrayList<ReentrantLock>();
+        try {
+            locks.forEach(
+                    lock -> {
+                        lock.lock();
+                        held.add(lock);
+                    });
+            final var idle = userIds.stream().filter(userId -> !carts.containsKey(userId)).toList();
+            if (idle.isEmpty()) {
+                return 0;
+            }
+            return transactionTemplate.execute(
+                    status -> cartRepository.deleteIdleLines(idle, idleSince));
+        } finally {
+            held.reversed().forEach(ReentrantLock::unlock);
+        }
+    }
+
+    /**
+     * Writes the changes to the cart of the user, then runs the checkout while holding the cart,
+     * so that it cannot change until the checkout finishes. The cart is dropped from memory
+     * afterwards, since the checkout changed it in the database.
+     *
+     * @throws org.springframework.dao.DataAccessException if the changes to the cart could not
+     *     be written.
+     */
+    @Override
+    public <T> T checkout(Long userId, Supplier<T> checkout) {
+        return locked(
+                userId,
+                () -> {
+                    write(collect(List.of(userId)));
+                    try {
+                        return checkout.get();
+                    } finally {
+                        carts.remove(userId);
+                    }
+                });
+    }
+
+    /**
+     * Writes the changes made to the carts since the last time, and drops the carts that have
+     * been idle for longer than configured from memory. When the changes cannot be written they
+     * are kept for the next time, except for carts that refer to a user or product that no longer
+     * exists, which are dropped.
+     *
+     * <p>The carts are written a lock at a time, each group in a transaction of its own while
+     * holding its lock, so that a checkout never runs between taking changes and writing them.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            final var users = new TreeMap<Integer, List<Long>>();
+            for (var userId : dirtyUsers) {
+                users.computeIfAbsent(stripeIndex(userId), i -> new ArrayList<>()).add(userId);
+            }
+            users.forEach(
+                    (index, group) -> {
+                        final var stripe = stripes[index];
+                        stripe.lock();
+                        try {
+                            writeAll(group);
+                        } finally {
+                            stripe.unlock();
+                        }
+                    });
+            evictIdle();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPeriodically() {
+        while (running) {
+            LockSupport.parkNanos(properties.flushInterval().toNanos());
+            if (!running) {
+                return;
+            }
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Could not write the changes to the carts", e);
+            }
+        }
+    }
+
+    private void writeAll(List<Long> users) {
+        try {
+            write(collect(users));
+        } catch (DataIntegrityViolationException e) {
+            // Some cart refers to a user or product deleted since; find it by writing one by one.
+            for (var userId : users) {
+                try {
+                    write(collect(List.of(userId)));
+                } catch (DataIntegrityViolationException ex) {
+                    log.warn("Dropping the unwritable changes to the cart of user {}", userId, ex);
+                    drop(userId);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not write the changes to {} carts, retrying later", users.size(), e);
+        }
+    }
+
+    /** Takes the changes to the carts of the given users, clearing them. */
+    private List<Changes> collect(List<Long> users) {
+        final var changes = new ArrayList<Changes>(users.size());
+        for (var userId : users) {
+            locked(
+                    userId,
+                    () -> {
+                        dirtyUsers.remove(userId);
+                        final var cart = carts.get(userId);
+                        if (cart != null && !cart.dirty.isEmpty()) {
+                            changes.add(new Changes(userId, cart, cart.takeChanges(userId)));
+                        }
+                        return null;
+                    });
+        }
+        return changes;
+    }
+
+    /** Writes changes in one transaction, giving them back to their carts if it fails. */
+    private void write(List<Changes> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        final var saved = new ArrayList<CartLine>();
+        final var deleted = new ArrayList<CartKey>();
+        for (var change : changes) {
+            for (var line : change.lines()) {
+                if (line.quantity() == null) {
+                    deleted.add(new CartKey(line.userId(), line.productId()));
+                } else {
+                    saved.add(line);
+                }
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> {
+                        cartRepository.deleteAllLines(deleted);
+                        cartRepository.saveAllLines(saved);
+                    });
+        } catch (RuntimeException e) {
+            changes.forEach(this::restore);
+            throw e;
+        }
+    }
+
+    private void restore(Changes changes) {
+        locked(
+                changes.userId(),
+                () -> {
+                    // Values are read again on the next write, so only what changed is kept.
+                    if (carts.get(changes.userId()) == changes.cart()) {
+                        changes.lines().forEach(line -> changes.cart().dirty.add(line.productId()));
+                        dirtyUsers.add(changes.userId());
+                    }
+                    return null;
+                });
+    }
+
+    private void drop(Long userId) {
+        locked(
+                userId,
+                () -> {
+                    carts.remove(userId);
+                    dirtyUsers.remove(userId);
+                    return null;
+                });
+    }
+
+    private void evictIdle() {
+        final var idleSince = System.nanoTime() - properties.idleTtl().toNanos();
+        for (var entry : carts.entrySet()) {
+            if (entry.getValue().touchedAt - idleSince < 0) {
+                locked(
+                        entry.getKey(),
+                        () -> {
+                            final var cart = entry.getValue();
+                            if (cart.dirty.isEmpty() && cart.touchedAt - idleSince < 0) {
+                                carts.remove(entry.getKey(), cart);
+                            }
+                            return null;
+                        });
+            }
+        }
+    }
+
+    /** Gets the cart of a user, reading it from the database if it is not in memory. */
+    private HotCart hotCart(Long userId) {
+        var cart = carts.get(userId);
+        if (cart == null) {
+            userService.getUserEntityById(userId);
+            cart = new HotCart(cartRepository.findLinesByUserId(userId));
+            carts.put(userId, cart);
+        }
+        cart.touchedAt = System.nanoTime();
+        return cart;
+    }
+
+    private void markDirty(Long userId, HotCart cart, Long productId) {
+        cart.dirty.add(productId);
+        dirtyUsers.add(userId);
+    }
+
+    private <T> T locked(Long userId, Supplier<T> action) {
+        final var stripe = stripe(userId);
+        stripe.lock();
+        try {
+            return action.get();
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private ReentrantLock stripe(Long userId) {
+        return stripes[stripeIndex(userId)];
+    }
+
+    private int stripeIndex(Long userId) {
+        return Math.floorMod(userId.hashCode(), stripes.length);
+    }
+
+    private static Cart cart(Long userId, Long productId, Integer quantity) {
+        return Cart.builder().userId(userId).productId(productId).quantity(quantity).build();
+    }
+
+    private static EntityNotFoundException notInCart(Long userId, Long productId) {
+        return new EntityNotFoundException(
+                "Cart with id " + new CartKey(userId, productId) + " not found");
+    }
+
+    /**
+     * A cart in memory: its quantities by product, and the products changed since it was last
+     * written. Only read and changed while holding the lock of its user.
+     */
+    private static final class HotCart {
+
+        private final TreeMap<Long, Integer> lines = new TreeMap<>();
+        private final Set<Long> dirty = new HashSet<>();
+        private long touchedAt;
+
+        private HotCart(List<CartLine> lines) {
+            lines.forEach(line -> this.lines.put(line.productId(), line.quantity()));
+        }
+
+        /** The changed lines, with a null quantity for removed products, clearing the changes. */
+        private List<CartLine> takeChanges(Long userId) {
+            final var changes =
+                    dirty.stream()
+                            .map(productId -> new CartLine(userId, productId, lines.get(productId)))
+                            .toList();
+            dirty.clear();
+            return changes;
+        }
+    }
+
+    /** Changes taken from a cart to be written. */
+    private record Changes(Long userId, HotCart cart, List<CartLine> lines) {}
+}
@@ -0,0 +1,32 @@
+package es.jose.backend.services.checkout;
+
+import es.jose.backend.utils.Money;
+
+/**
+ * A product of a cart being checked out, with what is needed to price it.
+ *
+ * @param productId the ID of the product.
+ * @param quantity the quantity in the cart.
+ * @param price the unit price of the product, before VAT.
+ * @param vatPercentage the VAT of the product category, as a fraction.
+ */
+public record CheckoutLine(Long productId, Integer quantity, Money price, Double vatPercentage) {
+
+    /**
+     * Gets the unit price the product is bought at, before VAT.
+     *
+     * @return the unit price.
+     */
+    public Money priceAtPurchase() {
+        return price;
+    }
+
+    /**
+     * Gets the price of the line: the unit price times the quantity, plus VAT.
+     *
+     * @return the subtotal, rounded to cents.
+     */
+    public Money subtotal() {
+        return price.times(quantity).plusTax(vatPercentage);
+    }
+}
@@ -0,0 +1,11 @@
+package es.jose.backend.services.checkout;
+
+import org.openapitools.model.Invoice;
+
+/**
+ * Outcome of a checkout.
+ *
+ * @param invoice the invoice of the checkout.
+ * @param created whether this call created the invoice, or found it from an earlier attempt.
+ */
+public record CheckoutResult(Invoice invoice, boolean created) {}
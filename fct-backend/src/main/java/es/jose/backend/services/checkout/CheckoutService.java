@@ -0,0 +1,17 @@
+package es.jose.backend.services.checkout;
+
+import org.openapitools.model.CheckoutRequest;
+
+/** Service interface for turning the cart of a user into an invoice. */
+public interface CheckoutService {
+
+    /**
+     * Checks out the cart of a user: prices its products, reserves their stock, creates the
+     * invoice with its line items and empties the cart. Calling it again with the same checkout ID
+     * returns the invoice of the first call without checking out again.
+     *
+     * @param request The CheckoutRequest describing the checkout.
+     * @return the invoice of the checkout, and whether this call created it.
+     */
+    CheckoutResult checkout(CheckoutRequest request);
+}
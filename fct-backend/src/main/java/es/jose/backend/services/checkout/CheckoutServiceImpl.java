@@ -0,0 +1,168 @@
+package es.jose.backend.services.checkout;
+
+import es.jose.backend.exceptions.checkout.CartChangedException;
+import es.jose.backend.exceptions.checkout.CheckoutIdInUseException;
+import es.jose.backend.exceptions.checkout.EmptyCartException;
+import es.jose.backend.exceptions.checkout.InsufficientStockException;
+import es.jose.backend.mappers.InvoiceMapper;
+import es.jose.backend.persistence.entities.InvoiceEntity;
+import es.jose.backend.persistence.entities.LineItemEntity;
+import es.jose.backend.persistence.repositories.CartRepository;
+import es.jose.backend.persistence.repositories.InvoiceRepository;
+import es.jose.backend.persistence.repositories.LineItemRepository;
+import es.jose.backend.persistence.repositories.ProductRepository;
+import es.jose.backend.services.UserService;
+import es.jose.backend.services.cart.CartStore;
+import es.jose.backend.utils.Money;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.openapitools.model.CheckoutRequest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service implementation for checkouts. A checkout runs as a single transaction with a fixed
+ * number of statements whatever the size of the cart: one query reads and prices the cart, and the
+ * invoice, the emptied cart, the stock updates and the line items are each written in one
+ * statement or one JDBC batch.
+ *
+ * <p>The checkout ID is stored on the invoice under a unique constraint. A retry finds the invoice
+ * of the first attempt, and a concurrent duplicate blocks on that constraint until the first
+ * attempt commits, then finds its invoice as well.
+ *
+ * <p>Checkouts run through the {@link CartStore}, which makes sure the database holds the cart as
+ * the user last left it and keeps it from changing until the checkout finishes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CheckoutServiceImpl implements CheckoutService {
+
+    private final UserService userService;
+    private final InvoiceMapper invoiceMapper;
+    private final CartRepository cartRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final ProductRepository productRepository;
+    private final LineItemRepository lineItemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CartStore cartStore;
+
+    /**
+     * Checks out the cart of a user, or returns the invoice of an earlier attempt with the same
+     * checkout ID by the same user.
+     *
+     * @param request The CheckoutRequest describing the checkout.
+     * @return the invoice of the checkout, and whether this call created it.
+     * @throws es.jose.backend.exceptions.user.UserNotFoundException if the user is not found.
+     * @throws EmptyCartException if the cart of the user is empty.
+     * @throws CartChangedException if the cart changed while it was being checked out.
+     * @throws InsufficientStockException if a product does not have enough stock.
+     * @throws CheckoutIdInUseException if another user already checked out with the same ID.
+     */
+    @Override
+    public CheckoutResult checkout(CheckoutRequest request) {
+        return cartStore.checkout(request.userId(), () -> checkoutCart(request));
+    }
+
+    private CheckoutResult checkoutCart(CheckoutRequest request) {
+        final var checkoutId = request.checkoutId().toString();
+        try {
+            return transactionTemplate.execute(
+                    status ->
+                            findCheckout(checkoutId, request.userId())
+                                    .orElseGet(() -> performCheckout(request)));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent attempt with the same checkout ID committed first.
+            log.info("Checkout {} was completed by a concurrent request", checkoutId);
+            return transactionTemplate
+                    .execute(status -> findCheckout(checkoutId, request.userId()))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Finds the invoice of an earlier attempt. Checkout IDs are unique across users, so an ID
+     * already used by another user is rejected rather than treated as a retry.
+     */
+    private Optional<CheckoutResult> findCheckout(String checkoutId, Long userId) {
+        return invoiceRepository
+                .findByCheckoutId(checkoutId)
+                .map(
+                        invoice -> {
+                            if (!invoice.getUser().getId().equals(userId)) {
+                                throw new CheckoutIdInUseException(checkoutId);
+                            }
+                            return new CheckoutResult(invoiceMapper.toDto(invoice), false);
+                        });
+    }
+
+    private CheckoutResult performCheckout(CheckoutRequest request) {
+        final var userId = request.userId();
+        final var user = userService.getUserEntityById(userId);
+
+        final var lines = cartRepository.findCheckoutLinesByUserId(userId);
+        if (lines.isEmpty()) {
+            throw new EmptyCartException(userId);
+        }
+
+        // Inserted first, so that a concurrent duplicate waits on its checkout ID before it
+        // touches the cart or the stock.
+        final var invoice =
+                invoiceRepository.saveAndFlush(
+                        InvoiceEntity.builder()
+                                .checkoutId(request.checkoutId().toString())
+                                .user(user)
+                                .paymentMethod(request.paymentMethod())
+                                .totalPrice(
+                                        lines.stream()
+                                                .map(CheckoutLine::subtotal)
+                                                .reduce(Money.ZERO, Money::plus))
+                                .build());
+
+        // A concurrent checkout of the same cart with another ID waits here and removes nothing.
+        if (cartRepository.deleteAllByUserId(userId) != lines.size()) {
+            throw new CartChangedException(userId);
+        }
+
+        final var outOfStock =
+                productRepository.decrementStock(
+                        lines.stream()
+                                .collect(
+                                        Collectors.toMap(
+                                                CheckoutLine::productId,
+                                                CheckoutLine::quantity,
+                                                Integer::sum,
+                                                TreeMap::new)));
+        if (!outOfStock.isEmpty()) {
+            throw new InsufficientStockException(outOfStock);
+        }
+
+        lineItemRepository.insertAll(toLineItems(invoice, lines));
+
+        return new CheckoutResult(invoiceMapper.toDto(invoice), true);
+    }
+
+    private List<LineItemEntity> toLineItems(InvoiceEntity invoice, List<CheckoutLine> lines) {
+        return lines.stream()
+                .map(
+                        line -> {
+                            var product = productRepository.getReferenceById(line.productId());
+                            return LineItemEntity.builder()
+                                    .invoice(invoice)
+                                    .product(product)
+                                    .quantity(line.quantity())
+                                    .priceAtPurchase(line.priceAtPurchase())
+                                    .subtotal(line.subtotal())
+                                    .build();
+                        })
+                .toList();
+    }
+}
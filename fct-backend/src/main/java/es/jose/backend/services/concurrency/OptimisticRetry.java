@@ -0,0 +1,81 @@
+package es.jose.backend.services.concurrency;
+
+import es.jose.backend.config.OptimisticRetryProperties;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs read-modify-write operations on versioned entities in a transaction of their own, and runs
+ * them again in a new transaction when a concurrent write changed the same rows first, or the
+ * database rolled the transaction back to break a deadlock with one. Waits between attempts grow
+ * exponentially and are picked at random up to that bound, so writers that collided do not collide
+ * again on the next attempt.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OptimisticRetry {
+
+    private final TransactionTemplate transactionTemplate;
+    private final OptimisticRetryProperties properties;
+
+    /**
+     * Runs an operation in a new transaction, retrying it when it loses to a concurrent one. When
+     * called within a transaction it joins it and is not retried, since the caller's transaction
+     * is already marked for rollback; the caller retries as a whole instead.
+     *
+     * @param action The operation. It must read the rows it changes, so that a retry sees the
+     *     latest versions, and have no side effects outside the transaction that cannot be
+     *     repeated.
+     * @return the result of the operation.
+     * @throws ConcurrencyFailureException if the last attempt lost to a concurrent transaction.
+     */
+    public <T> T execute(TransactionCallback<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(action);
+        }
+
+        var backoff = properties.initialBackoff();
+        for (var attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(action);
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= properties.maxAttempts()) {
+                    log.warn("Giving up after {} attempts that lost to concurrent writes", attempt);
+                    throw e;
+                }
+                log.debug("Attempt {} lost to a concurrent write, retrying", attempt);
+                sleep(jitter(backoff), e);
+                backoff = min(backoff.multipliedBy(2), properties.maxBackoff());
+            }
+        }
+    }
+
+    /** Picks a wait between zero and the given bound. */
+    private static Duration jitter(Duration backoff) {
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(backoff.toNanos() + 1));
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static void sleep(Duration wait, ConcurrencyFailureException cause) {
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
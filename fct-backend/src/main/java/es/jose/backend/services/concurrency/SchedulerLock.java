@@ -0,0 +1,74 @@
+package es.jose.backend.services.concurrency;
+
+import es.jose.backend.persistence.repositories.SchedulerLockRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Runs scheduled jobs on one instance of the application at a time, by taking a lease on the job
+ * in the {@code scheduler_locks} table. The lease is taken with a conditional update, so of the
+ * instances whose schedules fire at the same time only one gets it, and the others skip the run.
+ * Leases expire after a bound given by the job, so an instance that dies mid-run does not block
+ * the job for good; the bound must be longer than a run can take. Instance clocks are assumed to
+ * be roughly in sync.
+ */
+@Slf4j
+@Component
+public class SchedulerLock {
+
+    private final SchedulerLockRepository schedulerLockRepository;
+    private final String owner;
+
+    public SchedulerLock(SchedulerLockRepository schedulerLockRepository) {
+        this.schedulerLockRepository = schedulerLockRepository;
+        this.owner =
+                ManagementFactory.getRuntimeMXBean().getName()
+                        + "/"
+                        + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Runs a job, unless another instance holds its lease.
+     *
+     * @param name The name of the job, the same on every instance.
+     * @param maxDuration How long the lease lasts if it is not released.
+     * @param job The job.
+     * @return whether the job ran on this instance.
+     */
+    public boolean runExclusively(String name, Duration maxDuration, Runnable job) {
+        if (!tryAcquire(name, maxDuration)) {
+            log.debug("Skipping job {}, which another instance is running", name);
+            return false;
+        }
+
+        try {
+            job.run();
+            return true;
+        } finally {
+            schedulerLockRepository.release(name, owner, LocalDateTime.now());
+        }
+    }
+
+    private boolean tryAcquire(String name, Duration maxDuration) {
+        final var now = LocalDateTime.now();
+        final var until = now.plus(maxDuration);
+        if (schedulerLockRepository.acquire(name, owner, now, until) > 0) {
+            return true;
+        }
+
+        try {
+            return schedulerLockRepository.create(name, owner, until) > 0;
+        } catch (DataIntegrityViolationException e) {
+            // Another instance holds the lease, or created the row first.
+            return false;
+        }
+    }
+}
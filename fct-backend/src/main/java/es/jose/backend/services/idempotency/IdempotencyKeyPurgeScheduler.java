@@ -0,0 +1,24 @@
+package es.jose.backend.services.idempotency;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/** Periodically deletes the idempotency keys that have expired. */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.idempotency", name = "purge-enabled", havingValue = "true")
+public class IdempotencyKeyPurgeScheduler {
+
+    private final IdempotencyService idempotencyService;
+
+    @Scheduled(cron = "${app.idempotency.purge-cron}")
+    public void purgeExpiredKeys() {
+        final var purged = idempotencyService.purgeExpiredKeys();
+        log.debug("Purged {} expired idempotency keys", purged);
+    }
+}
@@ -0,0 +1,44 @@
+package es.jose.backend.services.idempotency;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Service interface for idempotency keys, which let clients retry requests that create resources
+ * without creating them twice.
+ */
+public interface IdempotencyService {
+
+    /**
+     * Executes a request once per idempotency key. The first request with a key is executed, and
+     * its response is stored in the same transaction; later requests with the key get that
+     * response back instead. A duplicate sent while the first request is running waits for it to
+     * commit, or executes itself if the first one fails.
+     *
+     * @param operation Name of the operation, so that the same key can be used for different
+     *     operations.
+     * @param key The idempotency key sent by the client, if any.
+     * @param request The body of the request.
+     * @param responseType The type of the body of the response.
+     * @param action Executes the request. Runs within a transaction.
+     * @param <T> The type of the body of the response.
+     * @return the response of the first request with the key.
+     * @throws es.jose.backend.exceptions.idempotency.IdempotencyKeyReusedException if the key was
+     *     used for a request with a different body.
+     */
+    <T> ResponseEntity<T> execute(
+            String operation,
+            Optional<String> key,
+            Object request,
+            Class<T> responseType,
+            Supplier<ResponseEntity<T>> action);
+
+    /**
+     * Deletes the keys that have expired.
+     *
+     * @return the number of keys deleted.
+     */
+    int purgeExpiredKeys();
+}
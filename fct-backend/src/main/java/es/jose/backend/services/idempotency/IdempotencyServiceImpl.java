@@ -0,0 +1,203 @@
+package es.jose.backend.services.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.jose.backend.config.IdempotencyProperties;
+import es.jose.backend.exceptions.idempotency.IdempotencyKeyReusedException;
+import es.jose.backend.persistence.entities.IdempotencyKeyEntity;
+import es.jose.backend.persistence.repositories.IdempotencyKeyRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Service implementation for idempotency keys. The key is claimed by inserting its row before the
+ * request executes, in the request's own transaction: the unique index on the key makes a
+ * concurrent duplicate wait for that one row, and nothing else, until the first request commits or
+ * rolls back. Completed responses are also kept in memory for a short while, since most retries
+ * follow a timeout within seconds, so those are answered without touching the database.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    /** Header set on responses that were stored by an earlier request with the same key. */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyProperties properties;
+
+    private final ConcurrentHashMap<String, StoredResponse> hotResponses =
+            new ConcurrentHashMap<>();
+
+    @Override
+    public <T> ResponseEntity<T> execute(
+            String operation,
+            Optional<String> key,
+            Object request,
+            Class<T> responseType,
+            Supplier<ResponseEntity<T>> action) {
+        if (key.isEmpty()) {
+            return action.get();
+        }
+
+        final var keyHash = keyHash(operation, key.get());
+        final var hotKey = HexFormat.of().formatHex(keyHash);
+        final var requestHash = sha256(toJson(request).getBytes(StandardCharsets.UTF_8));
+
+        final var hot = hotResponses.get(hotKey);
+        if (hot != null && hot.hotUntil().isAfter(LocalDateTime.now())) {
+            return replay(key.get(), hot, requestHash, responseType);
+        }
+
+        try {
+            final var executed = new StoredResponse[1];
+            final var response =
+                    transactionTemplate.execute(
+                            status -> {
+                                final var entity =
+                                        idempotencyKeyRepository.saveAndFlush(
+                                                IdempotencyKeyEntity.builder()
+                                                        .keyHash(keyHash)
+                                                        .requestHash(requestHash)
+                                                        .expiresAt(
+                                                                LocalDateTime.now()
+                                                                        .plus(properties.ttl()))
+                                                        .build());
+
+                                final var result = action.get();
+                                entity.setResponseStatus(result.getStatusCode().value());
+                                entity.setResponseLocation(
+                                        Optional.ofNullable(result.getHeaders().getLocation())
+                                                .map(URI::toString)
+                                                .orElse(null));
+                                entity.setResponseBody(toJson(result.getBody()));
+                                executed[0] = stored(entity);
+                                return result;
+                            });
+            remember(hotKey, executed[0]);
+            return response;
+        } catch (DataIntegrityViolationException e) {
+            // A request with the same key committed first, or an expired key was not purged yet.
+            final var stored =
+                    transactionTemplate
+                            .execute(status -> idempotencyKeyRepository.findByKeyHash(keyHash))
+                            .orElseThrow(() -> e);
+            final var now = LocalDateTime.now();
+            if (stored.getExpiresAt().isBefore(now)) {
+                idempotencyKeyRepository.deleteIfExpired(stored.getId(), now);
+                return execute(operation, key, request, responseType, action);
+            }
+
+            log.debug("Replaying the response of {} for a retried request", operation);
+            final var response = stored(stored);
+            remember(hotKey, response);
+            return replay(key.get(), response, requestHash, responseType);
+        }
+    }
+
+    @Override
+    public int purgeExpiredKeys() {
+        final var now = LocalDateTime.now();
+        hotResponses.values().removeIf(response -> response.hotUntil().isBefore(now));
+        return idempotencyKeyRepository.deleteExpired(now);
+    }
+
+    private <T> ResponseEntity<T> replay(
+            String key, StoredResponse stored, byte[] requestHash, Class<T> responseType) {
+        if (!Arrays.equals(stored.requestHash(), requestHash)) {
+            throw new IdempotencyKeyReusedException(key);
+        }
+
+        final var response =
+                ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            response.location(URI.create(stored.location()));
+        }
+        try {
+            return response.body(objectMapper.readValue(stored.body(), responseType));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read a stored response", e);
+        }
+    }
+
+    /**
+     * Keeps a response in memory until it leaves the hot window. When memory is full, expired
+     * responses are dropped first and then arbitrary ones; they are still in the database.
+     */
+    private void remember(String hotKey, StoredResponse response) {
+        if (hotResponses.size() >= properties.hotMaxEntries()) {
+            final var now = LocalDateTime.now();
+            hotResponses.values().removeIf(stored -> stored.hotUntil().isBefore(now));
+
+            final var keys = hotResponses.keySet().iterator();
+            while (hotResponses.size() >= properties.hotMaxEntries() && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        hotResponses.put(hotKey, response);
+    }
+
+    private StoredResponse stored(IdempotencyKeyEntity entity) {
+        final var hotUntil = LocalDateTime.now().plus(properties.hotTtl());
+        return new StoredResponse(
+                entity.getRequestHash(),
+                entity.getResponseStatus(),
+                entity.getResponseLocation(),
+                entity.getResponseBody(),
+                hotUntil.isBefore(entity.getExpiresAt()) ? hotUntil : entity.getExpiresAt());
+    }
+
+    /** Hashes the key together with the operation and the user, so keys never collide. */
+    private static byte[] keyHash(String operation, String key) {
+        final var authentication = SecurityContextHolder.getContext().getAuthentication();
+        final var user = authentication == null ? "" : authentication.getName();
+        return sha256((operation + '\n' + user + '\n' + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not write a request or response", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** A response stored for an idempotency key, as kept in memory. */
+    private record StoredResponse(
+            byte[] requestHash,
+            int status,
+            String location,
+            String body,
+            LocalDateTime hotUntil) {}
+}
@@ -0,0 +1,40 @@
+package es.jose.backend.services.invoicing;
+
+import org.openapitools.model.InvoiceStatusEnum;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service interface for exporting the PDFs of many invoices at once. The invoices of an export are
+ * found separately from writing it, so an invalid request is rejected before the archive starts
+ * streaming.
+ */
+public interface InvoiceExportService {
+
+    /**
+     * Finds the invoices created within a period, optionally filtered by status.
+     *
+     * @param from The first day of the period.
+     * @param to The last day of the period.
+     * @param status Optional status of the invoices.
+     * @return the IDs of the invoices, in order of creation.
+     * @throws es.jose.backend.exceptions.invoice.InvalidInvoiceExportRangeException if the period
+     *     ends before it starts.
+     */
+    List<Long> findInvoiceIdsToExport(
+            LocalDate from, LocalDate to, Optional<InvoiceStatusEnum> status);
+
+    /**
+     * Writes the PDFs of the given invoices to a stream as a ZIP archive, in the order they are
+     * rendered.
+     *
+     * @param invoiceIds The IDs of the invoices.
+     * @param out The stream to write the archive to. It is not closed.
+     * @throws IOException if the stream could not be written to.
+     */
+    void writePdfs(List<Long> invoiceIds, OutputStream out) throws IOException;
+}
@@ -0,0 +1,191 @@
+package es.jose.backend.services.invoicing;
+
+import es.jose.backend.config.InvoiceExportProperties;
+import es.jose.backend.exceptions.invoice.InvalidInvoiceExportRangeException;
+import es.jose.backend.persistence.entities.InvoiceEntity;
+import es.jose.backend.persistence.repositories.InvoiceRepository;
+import es.jose.backend.services.pdf.InvoicePdf;
+import es.jose.backend.services.pdf.InvoicePdfCache;
+import es.jose.backend.services.pdf.InvoicePdfRenderer;
+import es.jose.backend.utils.ThymeleafUtils;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.openapitools.model.InvoiceStatusEnum;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thymeleaf.context.IContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Service implementation for exporting the PDFs of many invoices at once. PDFs are rendered on
+ * virtual threads, at most a configured number at a time, and written to the archive as each one
+ * completes. A new render only starts once a finished PDF has been written, so an export holds no
+ * more PDFs in memory than it has workers, whatever its size. PDFs already in the cache are read
+ * from it, but the export does not add to it, so a large export does not evict the PDFs customers
+ * are downloading.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InvoiceExportServiceImpl implements InvoiceExportService {
+
+    private static final String ERRORS_ENTRY = "ERRORS.txt";
+    private static final int PDF_BUFFER_SIZE = 32 * 1024;
+
+    private final InvoiceRepository invoiceRepository;
+    private final ThymeleafUtils thymeleafUtils;
+    private final InvoicePdfRenderer invoicePdfRenderer;
+    private final InvoicePdfCache invoicePdfCache;
+    private final TransactionTemplate transactionTemplate;
+    private final InvoiceExportProperties properties;
+
+    /**
+     * Finds the invoices created within a period, optionally filtered by status.
+     *
+     * @param from The first day of the period.
+     * @param to The last day of the period.
+     * @param status Optional status of the invoices.
+     * @return the IDs of the invoices, in order of creation.
+     * @throws InvalidInvoiceExportRangeException if the period ends before it starts.
+     */
+    @Override
+    public List<Long> findInvoiceIdsToExport(
+            LocalDate from, LocalDate to, Optional<InvoiceStatusEnum> status) {
+        if (to.isBefore(from)) {
+            throw new InvalidInvoiceExportRangeException(from, to);
+        }
+
+        return invoiceRepository.findIdsCreatedBetween(
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay(), status.orElse(null));
+    }
+
+    /**
+     * Writes the PDFs of the given invoices to a stream as a ZIP archive, in the order they are
+     * rendered. Invoices that cannot be rendered, or were deleted in the meantime, do not stop
+     * the export; they are listed in an {@value #ERRORS_ENTRY} entry at the end of the archive.
+     *
+     * @param invoiceIds The IDs of the invoices.
+     * @param out The stream to write the archive to. It is not closed.
+     * @throws IOException if the stream could not be written to.
+     */
+    @Override
+    public void writePdfs(List<Long> invoiceIds, OutputStream out) throws IOException {
+        final var zip = new ZipOutputStream(out);
+        // PDFs are compressed already.
+        zip.setLevel(Deflater.BEST_SPEED);
+        final var errors = new ArrayList<String>();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final CompletionService<ExportedPdf> completion =
+                    new ExecutorCompletionService<>(executor);
+            final var remaining = invoiceIds.iterator();
+            var inFlight = 0;
+            try {
+                while (inFlight > 0 || remaining.hasNext()) {
+                    while (inFlight < properties.workers() && remaining.hasNext()) {
+                        final var invoiceId = remaining.next();
+                        completion.submit(() -> export(invoiceId));
+                        inFlight++;
+                    }
+
+                    final var exported = completion.take().get();
+                    inFlight--;
+                    if (exported.error() != null) {
+                        errors.add("Invoice " + exported.invoiceId() + ": " + exported.error());
+                        continue;
+                    }
+
+                    zip.putNextEntry(new ZipEntry("invoice-" + exported.invoiceId() + ".pdf"));
+                    exported.pdf().writeTo(zip);
+                    zip.closeEntry();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                throw new InterruptedIOException("Interrupted while exporting invoices");
+            } catch (ExecutionException e) {
+                // Exports catch their own failures.
+                executor.shutdownNow();
+                throw new IllegalStateException(e);
+            } catch (IOException | RuntimeException e) {
+                // The client is gone; stop rendering for it.
+                executor.shutdownNow();
+                throw e;
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            log.warn("Exported invoices with {} errors: {}", errors.size(), errors);
+            zip.putNextEntry(new ZipEntry(ERRORS_ENTRY));
+            zip.write(String.join("\n", errors).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * Gets the PDF of an invoice, from the cache if it is there and rendered into memory
+     * otherwise.
+     */
+    private ExportedPdf export(Long invoiceId) {
+        try {
+            final var snapshot =
+                    transactionTemplate.execute(
+                            status ->
+                                    invoiceRepository
+                                            .findWithLineItemsById(invoiceId)
+                                            .map(this::snapshot)
+                                            .orElse(null));
+            if (snapshot == null) {
+                return ExportedPdf.failed(invoiceId, "deleted during the export");
+            }
+
+            final var cached = invoicePdfCache.get(invoiceId, snapshot.version());
+            if (cached.isPresent()) {
+                return new ExportedPdf(invoiceId, InvoicePdf.of(cached.get()), null);
+            }
+
+            final var pdf = new ByteArrayOutputStream(PDF_BUFFER_SIZE);
+            invoicePdfRenderer.render(snapshot.context(), pdf);
+            return new ExportedPdf(invoiceId, new InvoicePdf(pdf.size(), pdf::writeTo), null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not export the PDF of invoice {}", invoiceId, e);
+            return ExportedPdf.failed(invoiceId, e.getMessage());
+        }
+    }
+
+    private Snapshot snapshot(InvoiceEntity invoice) {
+        return new Snapshot(
+                InvoicePdfCache.versionOf(invoice), thymeleafUtils.invoiceContext(invoice));
+    }
+
+    /** What a render needs from an invoice, read in one transaction. */
+    private record Snapshot(long version, IContext context) {}
+
+    /** The PDF of an invoice of an export, or why there is none. */
+    private record ExportedPdf(Long invoiceId, InvoicePdf pdf, String error) {
+
+        private static ExportedPdf failed(Long invoiceId, String error) {
+            return new ExportedPdf(invoiceId, null, error);
+        }
+    }
+}
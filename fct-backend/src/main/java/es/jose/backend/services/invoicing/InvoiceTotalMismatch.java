@@ -0,0 +1,28 @@
+package es.jose.backend.services.invoicing;
+
+import es.jose.backend.utils.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * An invoice whose stored total does not match the sum of the subtotals of its line items.
+ *
+ * @param invoiceId the ID of the invoice.
+ * @param storedTotal the total stored on the invoice.
+ * @param lineItemsTotal the sum of the subtotals of its line items.
+ */
+public record InvoiceTotalMismatch(
+        Long invoiceId, Money storedTotal, Money lineItemsTotal) {
+
+    /**
+     * Creates a mismatch from the query that finds them, where the subtotals are summed as
+     * decimals.
+     *
+     * @param invoiceId the ID of the invoice.
+     * @param storedTotal the total stored on the invoice.
+     * @param lineItemsTotal the sum of the subtotals of its line items.
+     */
+    public InvoiceTotalMismatch(Long invoiceId, Money storedTotal, BigDecimal lineItemsTotal) {
+        this(invoiceId, storedTotal, Money.of(lineItemsTotal));
+    }
+}
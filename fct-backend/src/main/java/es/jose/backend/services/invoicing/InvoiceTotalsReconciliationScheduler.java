@@ -0,0 +1,29 @@
+package es.jose.backend.services.invoicing;
+
+import es.jose.backend.services.InvoiceService;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically verifies the incrementally kept invoice totals against their line items, repairing
+ * any that drifted.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        prefix = "app.invoices.reconciliation",
+        name = "enabled",
+        havingValue = "true")
+public class InvoiceTotalsReconciliationScheduler {
+
+    private final InvoiceService invoiceService;
+
+    @Scheduled(cron = "${app.invoices.reconciliation.cron}")
+    public void reconcileInvoiceTotals() {
+        invoiceService.reconcileInvoiceTotals();
+    }
+}
@@ -0,0 +1,27 @@
+package es.jose.backend.services.mail;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Sends the reminders of the next day's appointments. Runs repeatedly through the day so that
+ * appointments booked late, and reminders that failed on an earlier run, are still sent; the
+ * reminders already sent are skipped.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.reminders", name = "enabled", havingValue = "true")
+public class AppointmentReminderScheduler {
+
+    private final AppointmentReminderService appointmentReminderService;
+
+    @Scheduled(cron = "${app.reminders.cron}")
+    public void sendTomorrowReminders() {
+        appointmentReminderService.sendReminders(LocalDate.now().plusDays(1));
+    }
+}
@@ -0,0 +1,14 @@
+package es.jose.backend.services.mail;
+
+import java.time.LocalDate;
+
+public interface AppointmentReminderService {
+
+    /**
+     * Sends the reminder emails of the appointments of a day that have not been reminded yet.
+     *
+     * @param date The day of the appointments.
+     * @return The number of reminders sent.
+     */
+    int sendReminders(LocalDate date);
+}
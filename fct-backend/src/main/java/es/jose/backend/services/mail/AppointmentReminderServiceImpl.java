@@ -0,0 +1,311 @@
+package es.jose.backend.services.mail;
+
+import es.jose.backend.config.AppointmentReminderProperties;
+import es.jose.backend.persistence.entities.AppointmentEntity;
+import es.jose.backend.persistence.repositories.AppointmentRepository;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.openapitools.model.AppointmentStatusEnum;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service implementation for sending appointment reminders. Appointments are read page by page
+ * and rendered into messages on the calling thread, which hands them over to a sender thread
+ * through a bounded queue, so rendering pauses whenever sending falls behind. The sender groups
+ * the messages into batches that JavaMailSender delivers over a single SMTP connection, retries
+ * failed messages with exponential backoff, and checkpoints every delivered batch on the
+ * appointments so that a restart does not send the same reminder twice.
+ *
+ * <p>A reminder that cannot be rendered, or a batch that fails for any other reason than the mail
+ * server, is logged and skipped, so that one bad appointment does not hold back the rest of the
+ * run. The calling thread never waits on the queue without checking that the sender is still
+ * alive, since it is the thread shared by every scheduled job.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AppointmentReminderServiceImpl implements AppointmentReminderService {
+
+    private static final String TEMPLATE = "appointment-reminder";
+    private static final String SUBJECT = "Appointment reminder";
+
+    /** Marks the end of the queue. */
+    private static final Reminder END = new Reminder(null, null);
+
+    /** How long to wait for room in the queue before checking on the sender again. */
+    private static final Duration HANDOVER_WAIT = Duration.ofSeconds(1);
+
+    private final JavaMailSender mailSender;
+    private final TemplateEngine templateEngine;
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentReminderProperties properties;
+
+    /**
+     * Sends the reminder emails of the appointments of a day that have not been reminded yet.
+     * Declined appointments are skipped. Reminders that still fail after every retry are left
+     * unmarked and picked up by the next run.
+     *
+     * @param date The day of the appointments.
+     * @return The number of reminders sent.
+     */
+    @Override
+    public int sendReminders(LocalDate date) {
+        final var queue = new ArrayBlockingQueue<Reminder>(properties.queueCapacity());
+        final var sent = new AtomicInteger();
+        final var sender =
+                Thread.ofVirtual()
+                        .name("appointment-reminder-sender")
+                        .start(() -> sent.set(drain(queue)));
+
+        try {
+            var afterId = 0L;
+            var senderAlive = true;
+            List<AppointmentEntity> page;
+            do {
+                page =
+                        appointmentRepository.findPendingReminders(
+                                date,
+                                afterId,
+                                AppointmentStatusEnum.DECLINED,
+                                Limit.of(properties.pageSize()));
+                for (var appointment : page) {
+                    final Reminder reminder;
+                    try {
+                        reminder = render(appointment);
+                    } catch (RuntimeException e) {
+                        log.warn(
+                                "Skipping the reminder of appointment {}", appointment.getId(), e);
+                        continue;
+                    }
+                    senderAlive = handOver(queue, sender, reminder);
+                    if (!senderAlive) {
+                        log.error("Reminder sender stopped, leaving the rest for the next run");
+                        break;
+                    }
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.getLast().getId();
+                }
+            } while (senderAlive && page.size() == properties.pageSize());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // The sender only stops at the end marker, so hand it over even if rendering failed.
+            end(queue, sender);
+        }
+
+        try {
+            sender.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        log.info("Sent {} appointment reminders for {}", sent.get(), date);
+        return sent.get();
+    }
+
+    /**
+     * Queues the end marker, or stops the sender right away if the calling thread is interrupted.
+     * Reminders that were queued but not sent are left for the next run.
+     *
+     * @param queue The queue of rendered reminders.
+     * @param sender The sender thread.
+     */
+    private static void end(BlockingQueue<Reminder> queue, Thread sender) {
+        try {
+            handOver(queue, sender, END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sender.interrupt();
+        }
+    }
+
+    /**
+     * Queues a reminder, waiting for room in the queue for as long as the sender is alive.
+     *
+     * @param queue The queue of rendered reminders.
+     * @param sender The sender thread.
+     * @param reminder The reminder to queue.
+     * @return true if the reminder was queued, false if the sender has stopped.
+     * @throws InterruptedException if interrupted while waiting for room in the queue.
+     */
+    private static boolean handOver(BlockingQueue<Reminder> queue, Thread sender, Reminder reminder)
+            throws InterruptedException {
+        while (!queue.offer(reminder, HANDOVER_WAIT.toMillis(), TimeUnit.MILLISECONDS)) {
+            if (!sender.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends the queued reminders in batches until the end marker is reached.
+     *
+     * @param queue The queue of rendered reminders.
+     * @return The number of reminders sent.
+     */
+    private int drain(BlockingQueue<Reminder> queue) {
+        var sent = 0;
+        final var batch = new ArrayList<Reminder>(properties.batchSize());
+        try {
+            var end = false;
+            while (!end) {
+                batch.add(queue.take());
+                queue.drainTo(batch, properties.batchSize() - 1);
+                end = batch.remove(END);
+                if (!batch.isEmpty()) {
+                    try {
+                        sent += sendWithRetry(batch);
+                    } catch (RuntimeException e) {
+                        // Keep draining, or the calling thread would wait for room forever.
+                        log.error("Could not send {} appointment reminders", batch.size(), e);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return sent;
+    }
+
+    /**
+     * Sends a batch, retrying the messages that failed with exponential backoff, and checkpoints
+     * the reminders as they are delivered.
+     *
+     * @param batch The reminders to send.
+     * @return The number of reminders delivered.
+     * @throws InterruptedException if interrupted while backing off.
+     */
+    private int sendWithRetry(List<Reminder> batch) throws InterruptedException {
+        var delivered = 0;
+        var pending = batch;
+        var backoff = properties.initialBackoff();
+        for (var attempt = 1; ; attempt++) {
+            final var failed = send(pending);
+            final var sent = new ArrayList<>(pending);
+            sent.removeAll(failed);
+            delivered += checkpoint(sent);
+
+            if (failed.isEmpty()) {
+                return delivered;
+            }
+            if (attempt >= properties.maxAttempts()) {
+                log.warn(
+                        "Giving up on {} appointment reminders after {} attempts",
+                        failed.size(),
+                        attempt);
+                return delivered;
+            }
+
+            log.debug("Retrying {} appointment reminders in {}", failed.size(), backoff);
+            Thread.sleep(backoff);
+            backoff = backoff.multipliedBy(2);
+            pending = failed;
+        }
+    }
+
+    /**
+     * Sends the messages of the given reminders over a single SMTP connection.
+     *
+     * @param reminders The reminders to send.
+     * @return The reminders whose message could not be sent.
+     */
+    private List<Reminder> send(List<Reminder> reminders) {
+        try {
+            mailSender.send(reminders.stream().map(Reminder::message).toArray(MimeMessage[]::new));
+            return List.of();
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                return reminders;
+            }
+            // Failed messages are keyed by the message instances that were handed in.
+            final var failed = new IdentityHashMap<Object, Boolean>();
+            e.getFailedMessages().keySet().forEach(message -> failed.put(message, true));
+            return reminders.stream().filter(r -> failed.containsKey(r.message())).toList();
+        } catch (MailException e) {
+            log.debug("Could not send appointment reminders", e);
+            return reminders;
+        }
+    }
+
+    /**
+     * Records that the given reminders have been sent.
+     *
+     * @param reminders The reminders that were delivered.
+     * @return The number of reminders recorded.
+     */
+    private int checkpoint(List<Reminder> reminders) {
+        if (reminders.isEmpty()) {
+            return 0;
+        }
+
+        appointmentRepository.markRemindersSent(
+                reminders.stream().map(Reminder::appointmentId).toList(), LocalDateTime.now());
+        return reminders.size();
+    }
+
+    /**
+     * Renders the reminder of an appointment.
+     *
+     * @param appointment The appointment, with its user and category loaded.
+     * @return the rendered reminder.
+     */
+    private Reminder render(AppointmentEntity appointment) {
+        final var context = new Context();
+        context.setVariable("firstName", appointment.getUser().getFirstName());
+        context.setVariable("category", appointment.getCategory().getName());
+        context.setVariable("date", appointment.getDate());
+        context.setVariable("startTime", appointment.getStartTime());
+        context.setVariable(
+                "endTime", appointment.getStartTime().plusMinutes(appointment.getDuration()));
+        context.setVariable("description", appointment.getDescription());
+
+        final var message = mailSender.createMimeMessage();
+        try {
+            final var helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+            helper.setFrom(properties.from());
+            helper.setTo(appointment.getUser().getEmail());
+            helper.setSubject(SUBJECT);
+            helper.setText(templateEngine.process(TEMPLATE, context), true);
+        } catch (MessagingException e) {
+            throw new IllegalStateException(
+                    "Could not render the reminder of appointment " + appointment.getId(), e);
+        }
+
+        return new Reminder(appointment.getId(), message);
+    }
+
+    /**
+     * A rendered reminder waiting to be sent.
+     *
+     * @param appointmentId The id of the appointment the reminder is about.
+     * @param message The message to send.
+     */
+    private record Reminder(Long appointmentId, MimeMessage message) {}
+}
@@ -0,0 +1,63 @@
+package es.jose.backend.services.pagination;
+
+import es.jose.backend.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a result ordered by date and then by id. It is handed to clients as an opaque
+ * URL-safe string so that they do not come to depend on its layout.
+ *
+ * @param date the date of the last row read.
+ * @param id the id of the last row read.
+ */
+public record DateKeysetCursor(LocalDate date, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Builds the cursor that starts at the given day, before any of its rows.
+     *
+     * @param date the first day to read.
+     * @return the cursor.
+     */
+    public static DateKeysetCursor startOf(LocalDate date) {
+        return new DateKeysetCursor(date, 0L);
+    }
+
+    /**
+     * Encodes the cursor for a client.
+     *
+     * @return the opaque cursor string.
+     */
+    public String encode() {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((date + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor received from a client.
+     *
+     * @param cursor the opaque cursor string.
+     * @return the decoded cursor.
+     * @throws InvalidCursorException if the string is not a cursor.
+     */
+    public static DateKeysetCursor decode(String cursor) {
+        try {
+            final var value =
+                    new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final int separator = value.indexOf(SEPARATOR);
+            return new DateKeysetCursor(
+                    LocalDate.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException
+                | IndexOutOfBoundsException
+                | DateTimeParseException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
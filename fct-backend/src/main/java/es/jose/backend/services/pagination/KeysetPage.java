@@ -0,0 +1,46 @@
+package es.jose.backend.services.pagination;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * A page of results read with keyset pagination.
+ *
+ * @param items the items of the page, in key order.
+ * @param nextCursor the cursor to request the following page with, or empty on the last page.
+ * @param <T> the type of the items.
+ */
+public record KeysetPage<T>(List<T> items, Optional<String> nextCursor) {
+
+    /**
+     * Builds a page from a result read with one row more than the page size, which tells whether
+     * a following page exists without a separate count query.
+     *
+     * @param rows the rows read, at most {@code limit + 1}.
+     * @param limit the page size.
+     * @param cursorOf builds the cursor pointing after a row.
+     * @param <T> the type of the items.
+     * @return the page.
+     */
+    public static <T> KeysetPage<T> of(
+            List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, Optional.empty());
+        }
+
+        final var items = rows.subList(0, limit);
+        return new KeysetPage<>(items, Optional.of(cursorOf.apply(items.getLast())));
+    }
+
+    /**
+     * Applies a function to every item of the page, keeping its cursor.
+     *
+     * @param mapper the function to apply.
+     * @param <R> the type of the mapped items.
+     * @return the mapped page.
+     */
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        return new KeysetPage<>(items.stream().map(mapper).toList(), nextCursor);
+    }
+}
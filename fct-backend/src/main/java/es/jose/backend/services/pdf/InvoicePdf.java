@@ -0,0 +1,75 @@
+package es.jose.backend.services.pdf;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * The PDF of an invoice, ready to be written to a response. It is either read from the cache or
+ * rendered, possibly while it is written, so its size is not always known up front. A PDF read
+ * from the cache also has the file it is cached in, which can be sent without going through the
+ * application at all.
+ *
+ * @param contentLength the size of the PDF in bytes, or -1 if it is not known until written.
+ * @param content writes the PDF.
+ * @param file the file the PDF is cached in, or null if it is not cached.
+ */
+public record InvoicePdf(long contentLength, Content content, Path file) {
+
+    /**
+     * Creates a PDF that is not cached.
+     *
+     * @param contentLength the size of the PDF in bytes, or -1 if it is not known until written.
+     * @param content writes the PDF.
+     */
+    public InvoicePdf(long contentLength, Content content) {
+        this(contentLength, content, null);
+    }
+
+    /** Writes a PDF to a stream. */
+    @FunctionalInterface
+    public interface Content {
+
+        /**
+         * Writes the PDF.
+         *
+         * @param out the stream to write to. It is not closed.
+         * @throws IOException if the stream could not be written to.
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Wraps a PDF read from the cache.
+     *
+     * @param pdf the cached PDF.
+     * @return the PDF, of known size.
+     */
+    public static InvoicePdf of(Resource pdf) {
+        try {
+            return new InvoicePdf(
+                    pdf.contentLength(),
+                    out -> {
+                        try (var in = pdf.getInputStream()) {
+                            in.transferTo(out);
+                        }
+                    },
+                    pdf.isFile() ? pdf.getFile().toPath() : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the PDF to a stream.
+     *
+     * @param out the stream to write to. It is not closed.
+     * @throws IOException if the stream could not be written to.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        content.writeTo(out);
+    }
+}
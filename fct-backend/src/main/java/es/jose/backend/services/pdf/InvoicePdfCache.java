@@ -0,0 +1,434 @@
+package es.jose.backend.services.pdf;
+
+import es.jose.backend.config.InvoicePdfCacheProperties;
+import es.jose.backend.persistence.entities.InvoiceEntity;
+
+import jakarta.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * On-disk cache of rendered invoice PDFs. Each invoice has at most one cached PDF, stored under its
+ * ID and the version of the invoice it was rendered from, so any change to the invoice makes the
+ * cached PDF miss without having to be told. Cached files are memory-mapped and served from the
+ * mapping, and the least recently used ones are evicted once the cache outgrows its size. A PDF
+ * can be cached while it is streamed to a response, without ever being held in memory.
+ */
+@Slf4j
+@Component
+public class InvoicePdfCache {
+
+    private static final String EXTENSION = ".pdf";
+    private static final int FILE_BUFFER_SIZE = 16 * 1024;
+    private static final Pattern FILE_NAME = Pattern.compile("(\\d+)-(\\d+)\\.pdf");
+
+    private final Path directory;
+    private final long maxBytes;
+    private final ConcurrentHashMap<Long, CachedPdf> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    public InvoicePdfCache(InvoicePdfCacheProperties properties) {
+        this.directory = properties.directory();
+        this.maxBytes = properties.maxSize().toBytes();
+    }
+
+    /**
+     * Gets the version of an invoice a PDF is cached under: its last modification, in microseconds,
+     * which is the precision the database keeps.
+     *
+     * @param invoice the invoice.
+     * @return the version of the invoice.
+     */
+    public static long versionOf(InvoiceEntity invoice) {
+        final var modified =
+                invoice.getUpdatedAt() != null ? invoice.getUpdatedAt() : invoice.getCreatedAt();
+        return ChronoUnit.MICROS.between(Instant.EPOCH, modified.toInstant(ZoneOffset.UTC));
+    }
+
+    /**
+     * Creates the cache directory and indexes the PDFs left in it by a previous run, keeping only
+     * the latest version of each invoice.
+     */
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                files.forEach(this::index);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not initialize the PDF cache in " + directory, e);
+        }
+
+        evictIfNeeded();
+        log.info("PDF cache holds {} invoices, {} bytes", entries.size(), totalBytes.get());
+    }
+
+    /**
+     * Gets the cached PDF of an invoice, if it was rendered from the given version.
+     *
+     * @param invoiceId the ID of the invoice.
+     * @param version the current version of the invoice.
+     * @return the PDF, or empty if it is not cached or was rendered from another version.
+     */
+    public Optional<Resource> get(Long invoiceId, long version) {
+        final var entry = entries.get(invoiceId);
+        if (entry == null || entry.version != version) {
+            return Optional.empty();
+        }
+
+        entry.lastAccess = System.nanoTime();
+        return Optional.of(entry.resource());
+    }
+
+    /**
+     * Stores the rendered PDF of an invoice, replacing any older version of it.
+     *
+     * @param invoiceId the ID of the invoice.
+     * @param version the version of the invoice the PDF was rendered from.
+     * @param pdf the PDF.
+     * @return the stored PDF.
+     */
+    public Resource put(Long invoiceId, long version, byte[] pdf) {
+        final Path temp;
+        try {
+            temp = Files.createTempFile(directory, invoiceId + "-", ".tmp");
+            Files.write(temp, pdf);
+        } catch (IOException e) {
+            log.warn("Could not cache the PDF of invoice {}", invoiceId, e);
+            return new ByteArrayResource(pdf);
+        }
+
+        return store(invoiceId, version, temp).orElseGet(() -> new ByteArrayResource(pdf));
+    }
+
+    /**
+     * Starts caching a PDF while it is being written somewhere else, typically to a response.
+     * Everything written to {@link PendingPdf#stream()} goes to {@code out} and to a temporary
+     * file, which is cached once {@link PendingPdf#commit()} is called and dropped otherwise.
+     * Failing to write the file never fails the writes to {@code out}; the PDF is just not cached.
+     *
+     * @param invoiceId the ID of the invoice.
+     * @param version the version of the invoice the PDF is rendered from.
+     * @param out the stream the PDF is written to.
+     * @return the pending PDF, to be closed once written.
+     */
+    public PendingPdf open(Long invoiceId, long version, OutputStream out) {
+        OutputStream file = null;
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, invoiceId + "-", ".tmp");
+            file = new BufferedOutputStream(Files.newOutputStream(temp), FILE_BUFFER_SIZE);
+        } catch (IOException e) {
+            log.warn("Could not cache the PDF of invoice {}", invoiceId, e);
+            if (temp != null) {
+                delete(temp);
+                temp = null;
+            }
+        }
+        return new PendingPdf(invoiceId, version, out, temp, file);
+    }
+
+    /**
+     * Evicts the cached PDF of an invoice, if any.
+     *
+     * @param invoiceId the ID of the invoice.
+     */
+    public void evict(Long invoiceId) {
+        final var entry = entries.remove(invoiceId);
+        if (entry != null) {
+            totalBytes.addAndGet(-entry.size());
+            discard(entry);
+        }
+    }
+
+    /**
+     * Moves a fully written temporary file into place and indexes it.
+     *
+     * @return the stored PDF, or empty if it could not be stored or a newer version was cached
+     *     while this one was rendering.
+     */
+    private Optional<Resource> store(Long invoiceId, long version, Path temp) {
+        final CachedPdf entry;
+        try {
+            final var path =
+                    Files.move(
+                            temp,
+                            directory.resolve(fileName(invoiceId, version)),
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+            entry = new CachedPdf(invoiceId, version, path, map(path));
+        } catch (IOException e) {
+            log.warn("Could not cache the PDF of invoice {}", invoiceId, e);
+            delete(temp);
+            return Optional.empty();
+        }
+
+        if (!install(entry)) {
+            discard(entry);
+            return Optional.empty();
+        }
+
+        evictIfNeeded();
+        return Optional.of(entry.resource());
+    }
+
+    private void index(Path path) {
+        final var matcher = FILE_NAME.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            delete(path);
+            return;
+        }
+
+        try {
+            final var entry =
+                    new CachedPdf(
+                            Long.parseLong(matcher.group(1)),
+                            Long.parseLong(matcher.group(2)),
+                            path,
+                            map(path));
+            if (!install(entry)) {
+                discard(entry);
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Removing unreadable cached PDF {}", path, e);
+            delete(path);
+        }
+    }
+
+    /**
+     * Indexes an entry in place of the one of the same invoice, unless that one is newer.
+     *
+     * @return whether the entry was indexed.
+     */
+    private boolean install(CachedPdf entry) {
+        final var replaced = new CachedPdf[1];
+        final var stored =
+                entries.compute(
+                        entry.invoiceId,
+                        (id, previous) -> {
+                            if (previous != null && previous.version > entry.version) {
+                                return previous;
+                            }
+                            replaced[0] = previous;
+                            return entry;
+                        });
+        if (stored != entry) {
+            return false;
+        }
+
+        totalBytes.addAndGet(entry.size());
+        if (replaced[0] != null) {
+            totalBytes.addAndGet(-replaced[0].size());
+            discard(replaced[0]);
+        }
+        return true;
+    }
+
+    /** Evicts the least recently used PDFs until the cache fits in its size again. */
+    private void evictIfNeeded() {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+
+        synchronized (evictionLock) {
+            while (totalBytes.get() > maxBytes) {
+                final var oldest =
+                        entries.values().stream()
+                                .min(Comparator.comparingLong(entry -> entry.lastAccess));
+                if (oldest.isEmpty()) {
+                    return;
+                }
+
+                final var entry = oldest.get();
+                if (entries.remove(entry.invoiceId, entry)) {
+                    totalBytes.addAndGet(-entry.size());
+                    discard(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the file of an entry that is no longer indexed, unless a newer entry of the same
+     * version took its place. Readers that still hold the mapping keep reading it.
+     */
+    private void discard(CachedPdf entry) {
+        final var current = entries.get(entry.invoiceId);
+        if (current == null || !current.path.equals(entry.path)) {
+            delete(entry.path);
+        }
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete cached PDF {}", path, e);
+        }
+    }
+
+    private static String fileName(Long invoiceId, long version) {
+        return invoiceId + "-" + version + EXTENSION;
+    }
+
+    /** A PDF that is being written to a stream and to the cache at the same time. */
+    public final class PendingPdf implements Closeable {
+
+        private final Long invoiceId;
+        private final long version;
+        private final OutputStream out;
+        private final Path temp;
+        private final OutputStream stream;
+        private OutputStream file;
+        private boolean committed;
+
+        private PendingPdf(
+                Long invoiceId, long version, OutputStream out, Path temp, OutputStream file) {
+            this.invoiceId = invoiceId;
+            this.version = version;
+            this.out = out;
+            this.temp = temp;
+            this.file = file;
+            this.stream = new TeeStream();
+        }
+
+        /**
+         * Gets the stream the PDF has to be written to.
+         *
+         * @return the stream. Closing it does not close the stream the PDF is written to.
+         */
+        public OutputStream stream() {
+            return stream;
+        }
+
+        /** Caches the PDF written so far, which has to be the whole document. */
+        public void commit() {
+            if (committed || file == null) {
+                return;
+            }
+
+            committed = true;
+            try {
+                file.close();
+            } catch (IOException e) {
+                abandon(e);
+                return;
+            }
+            file = null;
+            store(invoiceId, version, temp);
+        }
+
+        /** Drops the temporary file unless the PDF was committed. */
+        @Override
+        public void close() {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    log.debug("Could not close the cached PDF {}", temp, e);
+                }
+                file = null;
+                delete(temp);
+            }
+        }
+
+        private void abandon(IOException e) {
+            log.warn("Could not cache the PDF of invoice {}", invoiceId, e);
+            close();
+        }
+
+        /** Writes to the destination first, then to the file as long as it can be written. */
+        private final class TeeStream extends OutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                if (file != null) {
+                    try {
+                        file.write(b);
+                    } catch (IOException e) {
+                        abandon(e);
+                    }
+                }
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+                if (file != null) {
+                    try {
+                        file.write(bytes, offset, length);
+                    } catch (IOException e) {
+                        abandon(e);
+                    }
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.flush();
+            }
+        }
+    }
+
+    private static final class CachedPdf {
+
+        private final Long invoiceId;
+        private final long version;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private volatile long lastAccess = System.nanoTime();
+
+        private CachedPdf(Long invoiceId, long version, Path path, MappedByteBuffer buffer) {
+            this.invoiceId = invoiceId;
+            this.version = version;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        private long size() {
+            return buffer.capacity();
+        }
+
+        private Resource resource() {
+            return new MappedPdfResource(path, buffer, "PDF of invoice " + invoiceId);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package es.jose.backend.services.pdf;
+
+import es.jose.backend.config.InvoicePdfPrerenderProperties;
+import es.jose.backend.persistence.entities.InvoiceEntity;
+import es.jose.backend.persistence.repositories.InvoiceRepository;
+import es.jose.backend.utils.ThymeleafUtils;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thymeleaf.context.IContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Renders the PDFs of invoices into the {@link InvoicePdfCache} in the background, so that the
+ * download that usually follows a payment is served from the cache. Invoices wait in a bounded
+ * queue drained by a few virtual threads. An invoice is queued at most once: asking again while it
+ * waits does nothing, and asking while it renders renders it once more afterwards, since it may
+ * have changed after the render read it. When the queue is full, status changes wait briefly for
+ * room and then leave the invoice to be rendered on download.
+ */
+@Slf4j
+@Component
+public class InvoicePdfPrerenderer {
+
+    private final InvoiceRepository invoiceRepository;
+    private final ThymeleafUtils thymeleafUtils;
+    private final InvoicePdfRenderer invoicePdfRenderer;
+    private final InvoicePdfCache invoicePdfCache;
+    private final TransactionTemplate transactionTemplate;
+    private final InvoicePdfPrerenderProperties properties;
+
+    private final BlockingQueue<Job> queue;
+    private final ConcurrentMap<Long, Job> jobs = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    public InvoicePdfPrerenderer(
+            InvoiceRepository invoiceRepository,
+            ThymeleafUtils thymeleafUtils,
+            InvoicePdfRenderer invoicePdfRenderer,
+            InvoicePdfCache invoicePdfCache,
+            TransactionTemplate transactionTemplate,
+            InvoicePdfPrerenderProperties properties) {
+        this.invoiceRepository = invoiceRepository;
+        this.thymeleafUtils = thymeleafUtils;
+        this.invoicePdfRenderer = invoicePdfRenderer;
+        this.invoicePdfCache = invoicePdfCache;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+    }
+
+    /** Starts the workers that drain the queue. */
+    @PostConstruct
+    public void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        final var factory = Thread.ofVirtual().name("invoice-pdf-prerender-", 0).factory();
+        for (var i = 0; i < properties.workers(); i++) {
+            final var worker = factory.newThread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /** Stops the workers. Invoices still queued are left to be rendered on download. */
+    @PreDestroy
+    public void stop() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Renders the PDF of an invoice in the background once the current transaction commits, so
+     * that the render reads what was committed. Queues it right away when called outside of a
+     * transaction.
+     *
+     * @param invoiceId the ID of the invoice.
+     */
+    public void prerenderAfterCommit(Long invoiceId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            prerender(invoiceId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        prerender(invoiceId);
+                    }
+                });
+    }
+
+    /**
+     * Queues the PDF of an invoice to be rendered in the background, unless it is already queued.
+     *
+     * @param invoiceId the ID of the invoice.
+     * @return whether the invoice is queued or rendering, false if the queue stayed full.
+     */
+    public boolean prerender(Long invoiceId) {
+        if (!properties.enabled()) {
+            return false;
+        }
+
+        final var created = new Job[1];
+        jobs.compute(
+                invoiceId,
+                (id, job) -> {
+                    if (job == null) {
+                        return created[0] = new Job(id);
+                    }
+                    if (job.started) {
+                        job.stale = true;
+                    }
+                    return job;
+                });
+        if (created[0] == null) {
+            return true;
+        }
+
+        try {
+            if (queue.offer(
+                    created[0],
+                    properties.enqueueTimeout().toMillis(),
+                    TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        jobs.remove(invoiceId, created[0]);
+        created[0].done.complete(null);
+        log.warn("The PDF render queue is full, invoice {} will be rendered on download", invoiceId);
+        return false;
+    }
+
+    /**
+     * Waits for the background render of an invoice, if one is queued or running, so that a
+     * download does not render the same PDF a second time. Gives up after the configured wait.
+     *
+     * @param invoiceId the ID of the invoice.
+     */
+    public void awaitInFlight(Long invoiceId) {
+        final var job = jobs.get(invoiceId);
+        if (job == null) {
+            return;
+        }
+
+        try {
+            job.done.get(properties.downloadWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Gave up waiting for the background render of invoice {}", invoiceId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Jobs always complete normally.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void work() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                run(queue.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(Job job) {
+        jobs.computeIfPresent(
+                job.invoiceId,
+                (id, current) -> {
+                    current.started = true;
+                    return current;
+                });
+
+        try {
+            render(job.invoiceId);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not render the PDF of invoice {} in the background", job.invoiceId, e);
+        } finally {
+            final var again = new boolean[1];
+            jobs.computeIfPresent(
+                    job.invoiceId,
+                    (id, current) -> {
+                        if (current != job) {
+                            return current;
+                        }
+                        again[0] = current.stale;
+                        return null;
+                    });
+            job.done.complete(null);
+            if (again[0]) {
+                prerender(job.invoiceId);
+            }
+        }
+    }
+
+    private void render(Long invoiceId) throws IOException {
+        final var invoice =
+                transactionTemplate.execute(
+                        status ->
+                                invoiceRepository
+                                        .findWithLineItemsById(invoiceId)
+                                        .map(this::snapshot)
+                                        .orElse(null));
+        if (invoice == null || invoicePdfCache.get(invoiceId, invoice.version).isPresent()) {
+            return;
+        }
+
+        try (var pending =
+                invoicePdfCache.open(invoiceId, invoice.version, OutputStream.nullOutputStream())) {
+            invoicePdfRenderer.render(invoice.context, pending.stream());
+            pending.commit();
+        }
+    }
+
+    private Snapshot snapshot(InvoiceEntity invoice) {
+        return new Snapshot(
+                InvoicePdfCache.versionOf(invoice), thymeleafUtils.invoiceContext(invoice));
+    }
+
+    /** What a render needs from an invoice, read in one transaction. */
+    private record Snapshot(long version, IContext context) {}
+
+    /** An invoice waiting for or undergoing a background render. */
+    private static final class Job {
+
+        private final Long invoiceId;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        // Both are only accessed while the job's entry in the map is locked.
+        private boolean started;
+        private boolean stale;
+
+        private Job(Long invoiceId) {
+            this.invoiceId = invoiceId;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package es.jose.backend.services.pdf;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.FSSupplier;
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+
+import es.jose.backend.config.InvoicePdfRendererProperties;
+import es.jose.backend.persistence.entities.InvoiceEntity;
+import es.jose.backend.persistence.entities.LineItemEntity;
+import es.jose.backend.persistence.entities.UserEntity;
+import es.jose.backend.utils.Money;
+import es.jose.backend.utils.ThymeleafUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IContext;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Renders invoices as PDFs. Everything a render shares with the others is prepared once: the
+ * stylesheets of the invoice template and the embedded fonts are read into memory at startup,
+ * font metrics are cached across renders, and a bounded pool of configured renderers, one per core
+ * by default, keeps the CPU-bound layout work from oversubscribing the machine. The pool is warmed
+ * up with a sample invoice once the application is ready, so the first download does not pay for
+ * class loading and template parsing.
+ */
+@Slf4j
+@Component
+public class InvoicePdfRenderer {
+
+    private static final String TEMPLATE = "invoice";
+    private static final int PDF_BUFFER_SIZE = 32 * 1024;
+    private static final List<String> STYLESHEETS = List.of("invoice.css");
+
+    /** Scheme the template's relative links resolve to, served from memory and nowhere else. */
+    private static final String RESOURCE_SCHEME = "invoice-resource";
+
+    private static final String BASE_URI = RESOURCE_SCHEME + ":/templates/";
+
+    private static final DocumentBuilderFactory DOCUMENT_BUILDERS = documentBuilders();
+
+    private final TemplateEngine templateEngine;
+    private final ThymeleafUtils thymeleafUtils;
+    private final Map<String, byte[]> resources;
+    private final FSCacheEx<String, FSCacheValue> fontMetrics = new FSDefaultCacheStore();
+    private final BlockingQueue<PdfRendererBuilder> renderers;
+
+    public InvoicePdfRenderer(
+            TemplateEngine templateEngine,
+            ThymeleafUtils thymeleafUtils,
+            InvoicePdfRendererProperties properties) {
+        this.templateEngine = templateEngine;
+        this.thymeleafUtils = thymeleafUtils;
+        this.resources = loadStylesheets();
+
+        final var fonts = loadFonts(properties.fonts() != null ? properties.fonts() : List.of());
+        final var poolSize =
+                properties.poolSize() > 0
+                        ? properties.poolSize()
+                        : Runtime.getRuntime().availableProcessors();
+        this.renderers = new ArrayBlockingQueue<>(poolSize);
+        for (var i = 0; i < poolSize; i++) {
+            renderers.add(newRenderer(fonts));
+        }
+    }
+
+    /**
+     * Renders every renderer of the pool once with a sample invoice, which parses and caches the
+     * template and loads the classes, fonts and font metrics a render needs.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        final var start = System.nanoTime();
+        final var sample = thymeleafUtils.invoiceContext(sampleInvoice());
+        final var poolSize = renderers.size();
+        try {
+            for (var i = 0; i < poolSize; i++) {
+                render(sample, OutputStream.nullOutputStream());
+            }
+        } catch (IOException e) {
+            log.warn("Could not warm up the invoice PDF renderers", e);
+            return;
+        }
+        log.info(
+                "Warmed up {} invoice PDF renderers in {} ms",
+                poolSize,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Renders an invoice as a PDF into a stream. The template is written through a {@link
+     * java.io.Writer} into a character buffer that is parsed in place, so the HTML is never copied
+     * into a {@link String}. The PDF is rendered into a buffer and the renderer goes back to the
+     * pool before the buffer is written to the stream, so a slow client never holds a renderer.
+     * Waits for a free renderer if all of them are busy.
+     *
+     * @param context the template context of the invoice.
+     * @param out the stream to write the PDF to. It is flushed but not closed.
+     * @throws IOException if the PDF could not be written to the stream.
+     */
+    public void render(IContext context, OutputStream out) throws IOException {
+        final var html = new HtmlBuffer();
+        templateEngine.process(TEMPLATE, context, html);
+        log.debug(
+                "Rendering invoice {} from {} chars of HTML",
+                context.getVariable("invoiceNumber"),
+                html.size());
+        final var document = html.parse();
+
+        final PdfRendererBuilder renderer;
+        try {
+            renderer = renderers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a PDF renderer");
+        }
+
+        final var pdf = new ByteArrayOutputStream(PDF_BUFFER_SIZE);
+        try {
+            renderer.withW3cDocument(document, BASE_URI).toStream(pdf).run();
+        } finally {
+            // Do not keep the document and the stream reachable while the renderer is idle.
+            renderer.withW3cDocument(null, BASE_URI).toStream(null);
+            renderers.add(renderer);
+        }
+
+        pdf.writeTo(out);
+        out.flush();
+    }
+
+    private PdfRendererBuilder newRenderer(List<LoadedFont> fonts) {
+        final var renderer =
+                new PdfRendererBuilder()
+                        .useFastMode()
+                        .useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetrics)
+                        .useProtocolsStreamImplementation(this::openResource, RESOURCE_SCHEME);
+        for (var font : fonts) {
+            renderer.useFont(font.supplier(), font.family());
+        }
+        return renderer;
+    }
+
+    private FSStream openResource(String uri) {
+        final var bytes = resources.get(uri);
+        if (bytes == null) {
+            log.warn("The invoice template links to {}, which is not one of its resources", uri);
+            return null;
+        }
+
+        return new FSStream() {
+
+            @Override
+            public InputStream getStream() {
+                return new ByteArrayInputStream(bytes);
+            }
+
+            @Override
+            public Reader getReader() {
+                return new InputStreamReader(getStream(), StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    private static Map<String, byte[]> loadStylesheets() {
+        try {
+            final var stylesheets = new HashMap<String, byte[]>();
+            for (var name : STYLESHEETS) {
+                try (var in = new ClassPathResource("templates/" + name).getInputStream()) {
+                    stylesheets.put(BASE_URI + name, in.readAllBytes());
+                }
+            }
+            return Map.copyOf(stylesheets);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load the invoice stylesheets", e);
+        }
+    }
+
+    private static List<LoadedFont> loadFonts(List<InvoicePdfRendererProperties.Font> fonts) {
+        return fonts.stream()
+                .map(
+                        font -> {
+                            try (var in = font.location().getInputStream()) {
+                                return new LoadedFont(font.family(), in.readAllBytes());
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(
+                                        "Could not load the font " + font.location(), e);
+                            }
+                        })
+                .toList();
+    }
+
+    private static InvoiceEntity sampleInvoice() {
+        final var invoice =
+                InvoiceEntity.builder()
+                        .id(0L)
+                        .createdAt(LocalDateTime.now())
+                        .user(UserEntity.builder().firstName("Sample").lastName("Client").build())
+                        .totalPrice(Money.ofCents(1000))
+                        .build();
+        invoice.setLineItems(
+                Set.of(
+                        LineItemEntity.builder()
+                                .quantity(1)
+                                .priceAtPurchase(Money.ofCents(1000))
+                                .subtotal(Money.ofCents(1000))
+                                .invoice(invoice)
+                                .build()));
+        return invoice;
+    }
+
+    private static DocumentBuilderFactory documentBuilders() {
+        final var factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setExpandEntityReferences(false);
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature(
+                    "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+        return factory;
+    }
+
+    /** A font read into memory once, handed to every render without touching the disk. */
+    private record LoadedFont(String family, byte[] bytes) {
+
+        private FSSupplier<InputStream> supplier() {
+            return () -> new ByteArrayInputStream(bytes);
+        }
+    }
+
+    /** Buffer the template is written to, read back without copying its characters. */
+    private static final class HtmlBuffer extends CharArrayWriter {
+
+        private static final int INITIAL_SIZE = 8 * 1024;
+
+        private HtmlBuffer() {
+            super(INITIAL_SIZE);
+        }
+
+        private Document parse() {
+            try {
+                return DOCUMENT_BUILDERS
+                        .newDocumentBuilder()
+                        .parse(new InputSource(new CharArrayReader(buf, 0, count)));
+            } catch (ParserConfigurationException | SAXException | IOException e) {
+                throw new IllegalStateException("The invoice template is not well-formed XHTML", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package es.jose.backend.services.pdf;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * A rendered PDF read straight from a memory-mapped file. Reads copy from the page cache into the
+ * caller's buffer, without a read system call or an in-heap copy of the whole document. The file
+ * itself is exposed too, so that it can be handed to the servlet container to be sent as is.
+ */
+final class MappedPdfResource extends AbstractResource {
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final String description;
+
+    /**
+     * Creates a resource over a mapped file.
+     *
+     * @param path the file.
+     * @param buffer the mapped file. It is not modified; every stream reads its own view of it.
+     * @param description a description of the document.
+     */
+    MappedPdfResource(Path path, ByteBuffer buffer, String description) {
+        this.path = path;
+        this.buffer = buffer;
+        this.description = description;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public boolean isFile() {
+        return true;
+    }
+
+    @Override
+    public File getFile() {
+        return path.toFile();
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        final var view = buffer.duplicate().clear();
+        return new InputStream() {
+
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (length == 0) {
+                    return 0;
+                }
+                if (!view.hasRemaining()) {
+                    return -1;
+                }
+
+                final var count = Math.min(length, view.remaining());
+                view.get(bytes, offset, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return view.remaining();
+            }
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package es.jose.backend.services.reporting;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The revenue of the paid invoices of a day.
+ *
+ * @param revenueDate the day the invoices were created.
+ * @param revenue the sum of the subtotals of their line items.
+ * @param quantity the sum of the quantities of their line items.
+ * @param lineItems the number of their line items.
+ */
+public record DailyRevenue(
+        LocalDate revenueDate, BigDecimal revenue, Long quantity, Long lineItems) {}
@@ -0,0 +1,16 @@
+package es.jose.backend.services.reporting;
+
+import org.openapitools.model.LineItemTypeEnum;
+
+import java.math.BigDecimal;
+
+/**
+ * The revenue of the line items of paid invoices of one type.
+ *
+ * @param itemType the type of the line items.
+ * @param revenue the sum of the subtotals of the line items.
+ * @param quantity the sum of the quantities of the line items.
+ * @param lineItems the number of line items.
+ */
+public record LineItemTypeTotals(
+        LineItemTypeEnum itemType, BigDecimal revenue, Long quantity, Long lineItems) {}
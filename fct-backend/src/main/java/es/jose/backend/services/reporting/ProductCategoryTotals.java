@@ -0,0 +1,15 @@
+package es.jose.backend.services.reporting;
+
+import java.math.BigDecimal;
+
+/**
+ * The revenue of the product line items of paid invoices in one product category.
+ *
+ * @param categoryId the ID of the category.
+ * @param categoryName the name of the category, or null if it no longer exists.
+ * @param revenue the sum of the subtotals of the line items.
+ * @param quantity the sum of the quantities of the line items.
+ * @param lineItems the number of line items.
+ */
+public record ProductCategoryTotals(
+        Long categoryId, String categoryName, BigDecimal revenue, Long quantity, Long lineItems) {}
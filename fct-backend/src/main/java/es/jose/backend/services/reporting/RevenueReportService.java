@@ -0,0 +1,43 @@
+package es.jose.backend.services.reporting;
+
+import org.openapitools.model.LineItemTypeRevenue;
+import org.openapitools.model.PeriodRevenue;
+import org.openapitools.model.ProductCategoryRevenue;
+import org.openapitools.model.RevenueGranularityEnum;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/** Service interface for reporting the revenue of paid invoices. */
+public interface RevenueReportService {
+
+    /**
+     * Retrieves the revenue of the invoices paid within a period, by day, week or month.
+     *
+     * @param from The first day of the period.
+     * @param to The last day of the period.
+     * @param granularity The length of the periods to add up.
+     * @return the revenue of each period that has any, in order.
+     */
+    List<PeriodRevenue> getRevenueByPeriod(
+            LocalDate from, LocalDate to, RevenueGranularityEnum granularity);
+
+    /**
+     * Retrieves the revenue of the products of the invoices paid within a period, by product
+     * category.
+     *
+     * @param from The first day of the period.
+     * @param to The last day of the period.
+     * @return the revenue of each category that has any, highest first.
+     */
+    List<ProductCategoryRevenue> getRevenueByProductCategory(LocalDate from, LocalDate to);
+
+    /**
+     * Retrieves the revenue of the invoices paid within a period, by line item type.
+     *
+     * @param from The first day of the period.
+     * @param to The last day of the period.
+     * @return the revenue of each type that has any, highest first.
+     */
+    List<LineItemTypeRevenue> getRevenueByLineItemType(LocalDate from, LocalDate to);
+}
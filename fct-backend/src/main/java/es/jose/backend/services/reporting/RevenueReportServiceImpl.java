@@ -0,0 +1,125 @@
+package es.jose.backend.services.reporting;
+
+import es.jose.backend.exceptions.report.InvalidReportRangeException;
+import es.jose.backend.persistence.repositories.RevenueRollupRepository;
+
+import lombok.RequiredArgsConstructor;
+
+import org.openapitools.model.LineItemTypeRevenue;
+import org.openapitools.model.PeriodRevenue;
+import org.openapitools.model.ProductCategoryRevenue;
+import org.openapitools.model.RevenueGranularityEnum;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service implementation for revenue reports. Reports are grouped by the database over the daily
+ * rollups rather than over invoices and line items, so a report over a year reads at most a few
+ * hundred rows per line item type and category. Weeks and months are folded from the daily sums,
+ * since MariaDB and H2 share no function for the start of a week.
+ */
+@Service
+@RequiredArgsConstructor
+public class RevenueReportServiceImpl implements RevenueReportService {
+
+    private final RevenueRollupRepository revenueRollupRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<PeriodRevenue> getRevenueByPeriod(
+            LocalDate from, LocalDate to, RevenueGranularityEnum granularity) {
+        checkRange(from, to);
+
+        final var periods = new LinkedHashMap<LocalDate, DailyRevenue>();
+        for (var day : revenueRollupRepository.sumByDay(from, to)) {
+            periods.merge(
+                    periodStart(day.revenueDate(), granularity),
+                    day,
+                    (total, next) ->
+                            new DailyRevenue(
+                                    total.revenueDate(),
+                                    total.revenue().add(next.revenue()),
+                                    total.quantity() + next.quantity(),
+                                    total.lineItems() + next.lineItems()));
+        }
+
+        return periods.entrySet().stream()
+                .map(
+                        period ->
+                                PeriodRevenue.builder()
+                                        .periodStart(period.getKey())
+                                        .revenue(toDouble(period.getValue().revenue()))
+                                        .quantity(period.getValue().quantity())
+                                        .lineItems(period.getValue().lineItems())
+                                        .build())
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductCategoryRevenue> getRevenueByProductCategory(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+
+        return revenueRollupRepository.sumByProductCategory(from, to).stream()
+                .map(
+                        totals ->
+                                ProductCategoryRevenue.builder()
+                                        .categoryId(totals.categoryId())
+                                        .categoryName(Optional.ofNullable(totals.categoryName()))
+                                        .revenue(toDouble(totals.revenue()))
+                                        .quantity(totals.quantity())
+                                        .lineItems(totals.lineItems())
+                                        .build())
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<LineItemTypeRevenue> getRevenueByLineItemType(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+
+        return revenueRollupRepository.sumByLineItemType(from, to).stream()
+                .map(
+                        totals ->
+                                LineItemTypeRevenue.builder()
+                                        .itemType(totals.itemType())
+                                        .revenue(toDouble(totals.revenue()))
+                                        .quantity(totals.quantity())
+                                        .lineItems(totals.lineItems())
+                                        .build())
+                .toList();
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new InvalidReportRangeException(from, to);
+        }
+    }
+
+    /**
+     * Finds the first day of the period a day belongs to. Weeks start on Monday.
+     *
+     * @param day The day.
+     * @param granularity The length of the periods.
+     * @return the first day of its period.
+     */
+    private static LocalDate periodStart(LocalDate day, RevenueGranularityEnum granularity) {
+        return switch (granularity) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    private static Double toDouble(BigDecimal amount) {
+        return amount.doubleValue();
+    }
+}
@@ -0,0 +1,42 @@
+package es.jose.backend.services.reporting;
+
+import org.openapitools.model.LineItemTypeEnum;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+
+/**
+ * An amount to add to one row of the daily revenue rollups.
+ *
+ * @param revenueDate the day the invoices were created.
+ * @param itemType the type of the line items.
+ * @param categoryId the product category of the line items, or 0 if they are not for products.
+ * @param revenue the subtotals to add, negative to subtract.
+ * @param quantity the quantities to add, negative to subtract.
+ * @param lineItems the number of line items to add, negative to subtract.
+ */
+public record RevenueRollupDelta(
+        LocalDate revenueDate,
+        LineItemTypeEnum itemType,
+        long categoryId,
+        BigDecimal revenue,
+        long quantity,
+        long lineItems) {
+
+    /** Orders deltas by the row they apply to. */
+    public static final Comparator<RevenueRollupDelta> BY_ROW =
+            Comparator.comparing(RevenueRollupDelta::revenueDate)
+                    .thenComparing(RevenueRollupDelta::itemType)
+                    .thenComparingLong(RevenueRollupDelta::categoryId);
+
+    /**
+     * Returns the delta that undoes this one.
+     *
+     * @return the negated delta.
+     */
+    public RevenueRollupDelta negate() {
+        return new RevenueRollupDelta(
+                revenueDate, itemType, categoryId, revenue.negate(), -quantity, -lineItems);
+    }
+}
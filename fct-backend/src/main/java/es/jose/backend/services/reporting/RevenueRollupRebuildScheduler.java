@@ -0,0 +1,38 @@
+package es.jose.backend.services.reporting;
+
+import es.jose.backend.config.RevenueRollupProperties;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Periodically rebuilds the recent revenue rollups from the invoices, repairing any that drifted
+ * from invoices or line items changed outside the services.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        prefix = "app.reports.revenue-rollups",
+        name = "rebuild-enabled",
+        havingValue = "true")
+public class RevenueRollupRebuildScheduler {
+
+    private final RevenueRollupService revenueRollupService;
+    private final RevenueRollupProperties properties;
+
+    @Scheduled(cron = "${app.reports.revenue-rollups.rebuild-cron}")
+    public void rebuildRecentRollups() {
+        final var today = LocalDate.now();
+        final var rows =
+                revenueRollupService.rebuildRollups(
+                        today.minusDays(properties.rebuildDays()), today);
+        log.info("Rebuilt {} revenue rollups of the last {} days", rows, properties.rebuildDays());
+    }
+}
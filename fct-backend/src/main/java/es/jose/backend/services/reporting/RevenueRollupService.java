@@ -0,0 +1,55 @@
+package es.jose.backend.services.reporting;
+
+import org.openapitools.model.InvoiceStatusEnum;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the daily revenue rollups in step with the paid invoices. Changes are applied within the
+ * transaction of the change that causes them, so a rollup never counts a payment that was rolled
+ * back.
+ */
+public interface RevenueRollupService {
+
+    /**
+     * Adds the line items of an invoice to the rollups when it becomes paid, and takes them out
+     * when it stops being paid.
+     *
+     * @param invoiceId The ID of the invoice.
+     * @param previous The status the invoice had.
+     * @param current The status the invoice has now.
+     */
+    void invoiceStatusChanged(Long invoiceId, InvoiceStatusEnum previous, InvoiceStatusEnum current);
+
+    /**
+     * Takes the line items of an invoice that is about to be deleted out of the rollups, if it is
+     * paid. Must be called while its line items still exist.
+     *
+     * @param invoiceId The ID of the invoice.
+     * @param status The status of the invoice.
+     */
+    void invoiceDeleting(Long invoiceId, InvoiceStatusEnum status);
+
+    /**
+     * Adds a line item that was just created to the rollups, if its invoice is paid.
+     *
+     * @param lineItemId The ID of the line item.
+     */
+    void lineItemAdded(Long lineItemId);
+
+    /**
+     * Takes a line item that is about to be deleted out of the rollups, if its invoice is paid.
+     *
+     * @param lineItemId The ID of the line item.
+     */
+    void lineItemDeleting(Long lineItemId);
+
+    /**
+     * Recomputes the rollups of a period from the paid invoices, repairing any drift.
+     *
+     * @param from The first day to rebuild.
+     * @param to The last day to rebuild.
+     * @return The number of rollup rows written.
+     */
+    int rebuildRollups(LocalDate from, LocalDate to);
+}
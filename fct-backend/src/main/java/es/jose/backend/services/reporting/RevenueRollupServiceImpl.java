@@ -0,0 +1,84 @@
+package es.jose.backend.services.reporting;
+
+import es.jose.backend.persistence.repositories.RevenueRollupRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.openapitools.model.InvoiceStatusEnum;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Service implementation for the daily revenue rollups. Paying an invoice adds its line items to
+ * the rollups of the day it was created, grouped by the database, and un-paying or deleting it
+ * takes them out again, so a payment costs a few row updates however many invoices the day has.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RevenueRollupServiceImpl implements RevenueRollupService {
+
+    private final RevenueRollupRepository revenueRollupRepository;
+
+    /** Builds the rollups of the invoices paid before they were kept, when there are none yet. */
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (revenueRollupRepository.count() > 0) {
+            return;
+        }
+
+        final var rows = revenueRollupRepository.rebuildAllRollups();
+        log.info("Built {} revenue rollups from the paid invoices", rows);
+    }
+
+    @Override
+    @Transactional
+    public void invoiceStatusChanged(
+            Long invoiceId, InvoiceStatusEnum previous, InvoiceStatusEnum current) {
+        final var wasPaid = previous == InvoiceStatusEnum.PAID;
+        final var isPaid = current == InvoiceStatusEnum.PAID;
+        if (wasPaid == isPaid) {
+            return;
+        }
+
+        var deltas = revenueRollupRepository.findInvoiceRevenue(invoiceId);
+        if (wasPaid) {
+            deltas = deltas.stream().map(RevenueRollupDelta::negate).toList();
+        }
+        revenueRollupRepository.addToRollups(deltas);
+    }
+
+    @Override
+    @Transactional
+    public void invoiceDeleting(Long invoiceId, InvoiceStatusEnum status) {
+        invoiceStatusChanged(invoiceId, status, null);
+    }
+
+    @Override
+    @Transactional
+    public void lineItemAdded(Long lineItemId) {
+        revenueRollupRepository.addToRollups(
+                revenueRollupRepository.findPaidLineItemRevenue(lineItemId));
+    }
+
+    @Override
+    @Transactional
+    public void lineItemDeleting(Long lineItemId) {
+        revenueRollupRepository.addToRollups(
+                revenueRollupRepository.findPaidLineItemRevenue(lineItemId).stream()
+                        .map(RevenueRollupDelta::negate)
+                        .toList());
+    }
+
+    @Override
+    @Transactional
+    public int rebuildRollups(LocalDate from, LocalDate to) {
+        return revenueRollupRepository.rebuildRollups(from, to);
+    }
+}
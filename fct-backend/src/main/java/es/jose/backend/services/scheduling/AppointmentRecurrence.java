@@ -0,0 +1,63 @@
+package es.jose.backend.services.scheduling;
+
+import org.openapitools.model.AppointmentRecurrenceEnum;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/** Expands the recurrence rule of an appointment series into the dates of its occurrences. */
+public final class AppointmentRecurrence {
+
+    private AppointmentRecurrence() {}
+
+    /**
+     * Lists the dates of a series, stopping at whichever of {@code until} and {@code count} comes
+     * first. Monthly occurrences are computed from the start date rather than from each other, so
+     * a series starting on the 31st falls back to the last day of shorter months and then returns
+     * to the 31st.
+     *
+     * @param recurrence how often the series repeats.
+     * @param start the date of the first occurrence.
+     * @param until the last day an occurrence may fall on, if any.
+     * @param count the number of occurrences, if any.
+     * @param max the maximum number of occurrences a series may have.
+     * @return the dates of the occurrences in ascending order, or empty if the rule has no end or
+     *     yields more than {@code max} occurrences.
+     */
+    public static Optional<List<LocalDate>> occurrences(
+            AppointmentRecurrenceEnum recurrence,
+            LocalDate start,
+            Optional<LocalDate> until,
+            Optional<Integer> count,
+            int max) {
+        if (until.isEmpty() && count.isEmpty()) {
+            return Optional.empty();
+        }
+
+        final int limit = count.orElse(max + 1);
+        final var last = until.orElse(LocalDate.MAX);
+        final var dates = new ArrayList<LocalDate>();
+        for (int i = 0; i < limit; i++) {
+            final var date = nth(recurrence, start, i);
+            if (date.isAfter(last)) {
+                break;
+            }
+            if (dates.size() == max) {
+                return Optional.empty();
+            }
+            dates.add(date);
+        }
+
+        return dates.isEmpty() ? Optional.empty() : Optional.of(dates);
+    }
+
+    private static LocalDate nth(AppointmentRecurrenceEnum recurrence, LocalDate start, int n) {
+        return switch (recurrence) {
+            case WEEKLY -> start.plusWeeks(n);
+            case BIWEEKLY -> start.plusWeeks(2L * n);
+            case MONTHLY -> start.plusMonths(n);
+        };
+    }
+}
@@ -0,0 +1,267 @@
+package es.jose.backend.services.scheduling;
+
+import es.jose.backend.config.AppointmentScheduleProperties;
+import es.jose.backend.persistence.repositories.AppointmentRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.openapitools.model.AppointmentStatusEnum;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the booked time of every day that has been looked at and arbitrates bookings against it.
+ * Each day is loaded from the database the first time it is needed and then kept up to date by the
+ * reservations made through this component. Reservations on the same day are serialized by that
+ * day's own monitor, so two requests for overlapping slots are resolved without a global lock and
+ * without a round trip to the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AppointmentSlotScheduler {
+
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentScheduleProperties properties;
+
+    private final ConcurrentMap<LocalDate, DaySchedule> days = new ConcurrentHashMap<>();
+
+    /**
+     * Lists the free slots of a day for an appointment of the given duration. Slots of the current
+     * day that have already started are not offered.
+     *
+     * @param date the day to check.
+     * @param duration the duration of the appointment in minutes.
+     * @return the free slots in ascending order.
+     */
+    public List<TimeSlot> getAvailableSlots(LocalDate date, int duration) {
+        final int earliest = date.equals(LocalDate.now()) ? minuteOf(LocalTime.now()) + 1 : 0;
+
+        return day(date)
+                .freeStarts(
+                        openingMinute(),
+                        closingMinute(),
+                        duration,
+                        properties.slotStepMinutes())
+                .stream()
+                .filter(start -> start >= earliest)
+                .map(start -> toSlot(date, start, duration))
+                .toList();
+    }
+
+    /**
+     * Books the given slot if it lies within working hours and does not overlap any booking.
+     *
+     * @param slot the slot to book.
+     * @return true if the slot was booked, false otherwise.
+     */
+    public boolean tryReserve(TimeSlot slot) {
+        if (!isWithinWorkingHours(slot)) {
+            return false;
+        }
+
+        return day(slot.date()).tryReserve(slot.startMinute(), slot.endMinute());
+    }
+
+    /**
+     * Books the earliest free slot of a day for an appointment of the given duration.
+     *
+     * @param date the day to book.
+     * @param duration the duration of the appointment in minutes.
+     * @return the booked slot, or empty if the day is full.
+     */
+    public Optional<TimeSlot> reserveFirstAvailable(LocalDate date, int duration) {
+        // Another request may take a slot between listing and booking it, so simply move on to
+        // the next candidate when that happens.
+        return getAvailableSlots(date, duration).stream().filter(this::tryReserve).findFirst();
+    }
+
+    /**
+     * Releases a booked slot, making its time available again.
+     *
+     * @param slot the slot to release.
+     */
+    public void release(TimeSlot slot) {
+        final var schedule = days.get(slot.date());
+        if (schedule != null) {
+            schedule.release(slot.startMinute(), slot.endMinute());
+        }
+    }
+
+    /**
+     * Moves a booking from one slot to another. The original slot is released first so a booking
+     * can be shifted onto time that overlaps itself; if the target is not free the original slot
+     * is booked again. Both happen while holding the days involved, so no other booking can take
+     * the original slot in between.
+     *
+     * @param from the currently booked slot.
+     * @param to the slot to move the booking to.
+     * @return true if the booking was moved, false if the target slot is not available.
+     */
+    public boolean reschedule(TimeSlot from, TimeSlot to) {
+        return isWithinWorkingHours(to) && move(from, to);
+    }
+
+    /**
+     * Releases a booked slot once the current transaction commits, so that the time is not offered
+     * to others while the change that frees it could still roll back. Releases it right away when
+     * called outside of a transaction.
+     *
+     * @param slot the slot to release.
+     */
+    public void releaseAfterCommit(TimeSlot slot) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(slot);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        release(slot);
+                    }
+                });
+    }
+
+    /**
+     * Undoes the given reservations if the current transaction rolls back, so that time booked
+     * for rows that never got committed becomes available again. Does nothing outside of a
+     * transaction.
+     *
+     * @param slots the slots reserved within the current transaction.
+     */
+    public void releaseOnRollback(List<TimeSlot> slots) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            slots.forEach(AppointmentSlotScheduler.this::release);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Reverts a {@link #reschedule(TimeSlot, TimeSlot)} if the current transaction rolls back.
+     * Does nothing outside of a transaction.
+     *
+     * @param from the slot the booking was moved from.
+     * @param to the slot the booking was moved to.
+     */
+    public void revertOnRollback(TimeSlot from, TimeSlot to) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED && !move(to, from)) {
+                            log.error(
+                                    "Could not book {} again after rolling back its move to {}, it"
+                                            + " was taken in the meantime",
+                                    from,
+                                    to);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Gets the schedule of a day, loading it from the database on first use. Concurrent first
+     * uses may both load the day, but only one of the loaded schedules is ever published.
+     *
+     * @param date the day.
+     * @return the schedule of the day.
+     */
+    private DaySchedule day(LocalDate date) {
+        final var cached = days.get(date);
+        if (cached != null) {
+            return cached;
+        }
+
+        final var loaded =
+                new DaySchedule(
+                        appointmentRepository.findBookedSlotsByDate(
+                                date, AppointmentStatusEnum.DECLINED));
+        final var published = days.putIfAbsent(date, loaded);
+        if (published != null) {
+            return published;
+        }
+
+        log.debug("Loaded schedule for {}", date);
+        days.keySet().removeIf(d -> d.isBefore(LocalDate.now()));
+        return loaded;
+    }
+
+    /**
+     * Moves a booking from one slot to another, skipping the working hours check so that bookings
+     * made under different working hours can be put back. A move between two days holds both of
+     * them, the earlier one first, so that concurrent moves between the same days cannot deadlock.
+     *
+     * @param from the currently booked slot.
+     * @param to the slot to move the booking to.
+     * @return true if the booking was moved, false if the target slot is not available.
+     */
+    private boolean move(TimeSlot from, TimeSlot to) {
+        final var source = day(from.date());
+        final var target = day(to.date());
+        if (source == target) {
+            return source.move(
+                    from.startMinute(), from.endMinute(), to.startMinute(), to.endMinute());
+        }
+
+        final var first = from.date().isBefore(to.date()) ? source : target;
+        final var second = first == source ? target : source;
+        synchronized (first) {
+            synchronized (second) {
+                final var released = source.release(from.startMinute(), from.endMinute());
+                if (target.tryReserve(to.startMinute(), to.endMinute())) {
+                    return true;
+                }
+                if (released && !source.tryReserve(from.startMinute(), from.endMinute())) {
+                    throw new IllegalStateException("Could not book " + from + " again");
+                }
+                return false;
+            }
+        }
+    }
+
+    private boolean isWithinWorkingHours(TimeSlot slot) {
+        return slot.duration() > 0
+                && slot.startMinute() >= openingMinute()
+                && slot.endMinute() <= closingMinute();
+    }
+
+    private int openingMinute() {
+        return minuteOf(properties.openingTime());
+    }
+
+    private int closingMinute() {
+        return minuteOf(properties.closingTime());
+    }
+
+    private static int minuteOf(LocalTime time) {
+        return time.toSecondOfDay() / 60;
+    }
+
+    private static TimeSlot toSlot(LocalDate date, int startMinute, int duration) {
+        return new TimeSlot(date, LocalTime.ofSecondOfDay(startMinute * 60L), duration);
+    }
+}
@@ -0,0 +1,146 @@
+package es.jose.backend.services.scheduling;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Booked time of a single day, kept as non-overlapping intervals ordered by start minute. Every
+ * day has its own monitor, so bookings on different days never contend with each other.
+ */
+final class DaySchedule {
+
+    /** Start minute of each booked interval mapped to its (exclusive) end minute. */
+    private final TreeMap<Integer, Integer> booked = new TreeMap<>();
+
+    /**
+     * Builds the schedule of a day from its already persisted bookings.
+     *
+     * @param slots the booked slots of the day.
+     */
+    DaySchedule(List<TimeSlot> slots) {
+        // Rows written before the scheduler existed may overlap; coalesce them into the time they
+        // cover together so the day never looks freer than it is. Releasing one of them then
+        // frees nothing, which only errs on the side of keeping the time booked.
+        final var sorted =
+                slots.stream().sorted(Comparator.comparingInt(TimeSlot::startMinute)).toList();
+        Map.Entry<Integer, Integer> last = null;
+        for (var slot : sorted) {
+            if (last != null && slot.startMinute() < last.getValue()) {
+                booked.put(last.getKey(), Math.max(last.getValue(), slot.endMinute()));
+            } else {
+                booked.put(slot.startMinute(), slot.endMinute());
+            }
+            last = booked.lastEntry();
+        }
+    }
+
+    /**
+     * Books the interval if it does not overlap any booked interval.
+     *
+     * @param start the start minute of the interval.
+     * @param end the exclusive end minute of the interval.
+     * @return true if the interval was booked, false if it overlaps an existing booking.
+     */
+    synchronized boolean tryReserve(int start, int end) {
+        if (!isFree(start, end)) {
+            return false;
+        }
+        booked.put(start, end);
+        return true;
+    }
+
+    /**
+     * Releases a previously booked interval. Does nothing if the interval is not booked.
+     *
+     * @param start the start minute of the interval.
+     * @param end the exclusive end minute of the interval.
+     * @return true if the interval was booked and has been released.
+     */
+    synchronized boolean release(int start, int end) {
+        return booked.remove(start, end);
+    }
+
+    /**
+     * Moves a booked interval to another one in a single step, so that no other booking can take
+     * either of them in between. The original interval is released first so a booking can be
+     * shifted onto time that overlaps itself, and is booked again if the target is not free.
+     *
+     * @param fromStart the start minute of the booked interval.
+     * @param fromEnd the exclusive end minute of the booked interval.
+     * @param toStart the start minute of the interval to move the booking to.
+     * @param toEnd the exclusive end minute of the interval to move the booking to.
+     * @return true if the booking was moved, false if the target overlaps another booking.
+     */
+    synchronized boolean move(int fromStart, int fromEnd, int toStart, int toEnd) {
+        final var released = booked.remove(fromStart, fromEnd);
+        if (isFree(toStart, toEnd)) {
+            booked.put(toStart, toEnd);
+            return true;
+        }
+        if (released) {
+            booked.put(fromStart, fromEnd);
+        }
+        return false;
+    }
+
+    /**
+     * Lists the start minutes, stepping from {@code opening}, at which an interval of the given
+     * length fits before {@code closing} without overlapping any booking.
+     *
+     * @param opening the first start minute to consider.
+     * @param closing the minute by which the interval must have ended.
+     * @param length the length of the interval in minutes.
+     * @param step the distance between candidate start minutes.
+     * @return the free start minutes in ascending order.
+     */
+    synchronized List<Integer> freeStarts(int opening, int closing, int length, int step) {
+        final var starts = new ArrayList<Integer>();
+        for (int start = opening; start + length <= closing; start += step) {
+            // Jump over the booking that blocks this candidate instead of probing minute by minute.
+            final Map.Entry<Integer, Integer> blocking = blockingInterval(start, start + length);
+            if (blocking == null) {
+                starts.add(start);
+            } else {
+                final int blockedUntil = blocking.getValue();
+                while (start + step < blockedUntil) {
+                    start += step;
+                }
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Checks whether the interval is free.
+     *
+     * @param start the start minute of the interval.
+     * @param end the exclusive end minute of the interval.
+     * @return true if no booked interval overlaps it.
+     */
+    private boolean isFree(int start, int end) {
+        return blockingInterval(start, end) == null;
+    }
+
+    /**
+     * Finds a booked interval overlapping the given one. Since booked intervals never overlap each
+     * other, only the closest interval on each side needs to be checked.
+     *
+     * @param start the start minute of the interval.
+     * @param end the exclusive end minute of the interval.
+     * @return an overlapping booked interval, or null if there is none.
+     */
+    private Map.Entry<Integer, Integer> blockingInterval(int start, int end) {
+        final var before = booked.floorEntry(start);
+        if (before != null && before.getValue() > start) {
+            return before;
+        }
+        final var after = booked.ceilingEntry(start);
+        if (after != null && after.getKey() < end) {
+            return after;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package es.jose.backend.services.scheduling;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A span of booked or bookable time within a single day.
+ *
+ * @param date the day of the slot.
+ * @param startTime the time at which the slot starts.
+ * @param duration the length of the slot in minutes.
+ */
+public record TimeSlot(LocalDate date, LocalTime startTime, int duration) {
+
+    /**
+     * Gets the time at which the slot ends.
+     *
+     * @return the start time plus the duration.
+     */
+    public LocalTime endTime() {
+        return startTime.plusMinutes(duration);
+    }
+
+    /**
+     * Gets the start of the slot as minutes since midnight.
+     *
+     * @return the start minute of the day.
+     */
+    int startMinute() {
+        return startTime.toSecondOfDay() / 60;
+    }
+
+    /**
+     * Gets the end of the slot as minutes since midnight. May exceed a day for slots that run past
+     * midnight, which keeps the interval arithmetic free of wrap-around.
+     *
+     * @return the end minute of the day.
+     */
+    int endMinute() {
+        return startMinute() + duration;
+    }
+}
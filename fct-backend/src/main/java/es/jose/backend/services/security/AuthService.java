@@ -38,4 +38,13 @@ public interface AuthService {
      *     refresh token.
      */
     LoginResponse refreshSession(String refreshToken);
+
+    /**
+     * Handles the user logout process. Revokes the access token the user is authenticated with, if
+     * any, and the refresh token of the session along with every token refreshed from it.
+     *
+     * @param authentication The Spring Security Authentication object of the request, or null.
+     * @param refreshToken The refresh token of the session.
+     */
+    void logout(Authentication authentication, String refreshToken);
 }
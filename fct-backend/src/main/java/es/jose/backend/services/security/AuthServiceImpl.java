@@ -1,6 +1,7 @@
 package es.jose.backend.services.security;
 
 import es.jose.backend.exceptions.AuthenticationFailedException;
+import es.jose.backend.security.CachingJwtDecoder;
 import es.jose.backend.security.LocalAuthUser;
 import es.jose.backend.services.UserService;
 import es.jose.backend.services.mail.EmailVerificationService;
@@ -11,14 +12,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.openapitools.model.LoginResponse;
 import org.openapitools.model.RegisterRequest;
 import org.openapitools.model.RegisterResponse;
+import org.openapitools.model.RoleEnum;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.oauth2.jwt.JwtClaimsSet;
-import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
 import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -27,8 +29,8 @@ import java.util.stream.Collectors;
 
 /**
  * Service implementation for authentication and authorization operations. Handles user login,
- * registration, and JWT token management. Interacts with UserService, EmailVerificationService,
- * JwtEncoder, and JwtDecoder.
+ * registration, logout and JWT token management. Interacts with UserService,
+ * EmailVerificationService, RefreshTokenService, JwtEncoder, and CachingJwtDecoder.
  */
 @Slf4j
 @Service
@@ -36,9 +38,10 @@ import java.util.stream.Collectors;
 public class AuthServiceImpl implements AuthService {
 
     private final JwtEncoder jwtEncoder;
-    private final JwtDecoder jwtDecoder;
+    private final CachingJwtDecoder jwtDecoder;
     private final UserService userService;
     private final EmailVerificationService emailVerificationService;
+    private final RefreshTokenService refreshTokenService;
 
     @Value("${app.refresh-token.expiration-days}")
     private long REFRESH_TOKEN_EXPIRATION_DAYS;
@@ -73,20 +76,23 @@ public class AuthServiceImpl implements AuthService {
 
         final String jwt = jwtEncoder.encode(JwtEncoderParameters.from(jwtClaims)).getTokenValue();
 
+        final var user = (LocalAuthUser) authentication.getPrincipal();
+        final var refreshExpiresAt = now.plus(REFRESH_TOKEN_EXPIRATION_DAYS, ChronoUnit.DAYS);
         final var refreshClaims =
                 JwtClaimsSet.builder()
                         .issuer("self")
                         .issuedAt(now)
-                        .expiresAt(now.plus(REFRESH_TOKEN_EXPIRATION_DAYS, ChronoUnit.DAYS))
+                        .expiresAt(refreshExpiresAt)
                         .subject(authentication.getName())
                         .claim("type", "refresh")
                         .claim("authorities", authorities)
-                        .build();
+                        .claim(RefreshTokenService.USER_CLAIM, user.getUser().getId())
+                        .claim("role", user.getUser().getRole().name());
 
         final String refreshToken =
-                jwtEncoder.encode(JwtEncoderParameters.from(refreshClaims)).getTokenValue();
-
-        final var user = (LocalAuthUser) authentication.getPrincipal();
+                refreshToken(
+                        refreshClaims,
+                        refreshTokenService.issue(user.getUser().getId(), refreshExpiresAt));
 
         return LoginResponse.builder()
                 .userId(user.getUser().getId())
@@ -117,16 +123,17 @@ public class AuthServiceImpl implements AuthService {
 
     /**
      * Refreshes an expired authentication token using a valid refresh token. Decodes the refresh
-     * token, validates its type and expiration, and issues a new authentication token.
+     * token, validates its type and expiration, uses it up and issues a new authentication token
+     * and the next refresh token. Everything the response needs is in the refresh token, so the
+     * user is not looked up.
      *
      * @param refreshToken The refresh token used to request a new authentication token.
-     * @return A LoginResponse containing the new authentication token and the (possibly same)
-     *     refresh token.
-     * @throws AuthenticationFailedException if the refresh token is invalid or expired.
+     * @return A LoginResponse containing the new authentication token and the next refresh token.
+     * @throws AuthenticationFailedException if the refresh token is invalid, expired, already used
+     *     or revoked.
      */
     @Override
     public LoginResponse refreshSession(final String refreshToken) {
-        log.info("Validating token: {}", refreshToken);
         try {
             final var jwt = jwtDecoder.decode(refreshToken);
 
@@ -135,6 +142,14 @@ public class AuthServiceImpl implements AuthService {
                 throw new AuthenticationFailedException("Invalid refresh token");
             }
 
+            final String role = jwt.getClaim("role");
+            if (role == null) {
+                // Issued before refresh tokens were registered.
+                throw new AuthenticationFailedException("Invalid refresh token");
+            }
+            log.debug("Refreshing the session of {}", jwt.getSubject());
+            final var grant = refreshTokenService.rotate(jwt);
+
             final Instant now = Instant.now();
             final String username = jwt.getSubject();
             final var authorities = jwt.getClaim("authorities");
@@ -153,18 +168,61 @@ public class AuthServiceImpl implements AuthService {
                             .encode(JwtEncoderParameters.from(newAccessTokenClaims))
                             .getTokenValue();
 
-            final var user = userService.getUserByUsernameOrEmail(username);
+            // The next refresh token expires when the family's first one does.
+            final var nextRefreshToken =
+                    refreshToken(
+                            JwtClaimsSet.builder()
+                                    .claims(claims -> claims.putAll(jwt.getClaims()))
+                                    .issuedAt(now),
+                            grant);
 
             return LoginResponse.builder()
-                    .userId(user.id())
-                    .role(user.role())
+                    .userId(((Number) jwt.getClaim(RefreshTokenService.USER_CLAIM)).longValue())
+                    .role(RoleEnum.valueOf(role))
                     .jwt(newAccessToken)
-                    .refreshToken(refreshToken)
+                    .refreshToken(nextRefreshToken)
                     .build();
 
         } catch (final JwtException e) {
-            e.printStackTrace();
+            log.debug("Invalid refresh token", e);
+            throw new AuthenticationFailedException("Invalid refresh token");
+        }
+    }
+
+    /**
+     * Handles the user logout process. Revokes the access token the request is authenticated with,
+     * if any, and the family of the refresh token, so that neither the session nor any token
+     * refreshed from it can be used again.
+     *
+     * @param authentication The Spring Security Authentication object of the request, or null.
+     * @param refreshToken The refresh token of the session.
+     * @throws AuthenticationFailedException if the refresh token is invalid or expired.
+     */
+    @Override
+    public void logout(final Authentication authentication, final String refreshToken) {
+        if (authentication instanceof final JwtAuthenticationToken token) {
+            jwtDecoder.revoke(token.getToken().getTokenValue());
+        }
+
+        try {
+            final var jwt = jwtDecoder.decode(refreshToken);
+            if (!"refresh".equals(jwt.getClaim("type"))) {
+                throw new AuthenticationFailedException("Invalid refresh token");
+            }
+            log.debug("Logging out {}", jwt.getSubject());
+            refreshTokenService.revoke(jwt);
+        } catch (final JwtException e) {
+            log.debug("Invalid refresh token", e);
             throw new AuthenticationFailedException("Invalid refresh token");
         }
     }
+
+    /** Encodes a refresh token with the identifiers it was registered with. */
+    private String refreshToken(final JwtClaimsSet.Builder claims, final RefreshTokenGrant grant) {
+        final var refreshClaims =
+                claims.id(grant.tokenId())
+                        .claim(RefreshTokenService.FAMILY_CLAIM, grant.familyId())
+                        .build();
+        return jwtEncoder.encode(JwtEncoderParameters.from(refreshClaims)).getTokenValue();
+    }
 }
@@ -0,0 +1,9 @@
+package es.jose.backend.services.security;
+
+/**
+ * The identifiers to put in a refresh token that was just registered.
+ *
+ * @param tokenId the {@code jti} claim of the token.
+ * @param familyId the {@code jti} of the first token of its family, as the {@code fam} claim.
+ */
+public record RefreshTokenGrant(String tokenId, String familyId) {}
@@ -0,0 +1,24 @@
+package es.jose.backend.services.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/** Periodically deletes the refresh tokens that have expired. */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.refresh-token", name = "purge-enabled", havingValue = "true")
+public class RefreshTokenPurgeScheduler {
+
+    private final RefreshTokenService refreshTokenService;
+
+    @Scheduled(cron = "${app.refresh-token.purge-cron}")
+    public void purgeExpiredTokens() {
+        final var purged = refreshTokenService.purgeExpiredTokens();
+        log.debug("Purged {} expired refresh tokens", purged);
+    }
+}
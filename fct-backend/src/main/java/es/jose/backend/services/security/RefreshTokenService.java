@@ -0,0 +1,62 @@
+package es.jose.backend.services.security;
+
+import es.jose.backend.exceptions.AuthenticationFailedException;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+
+/**
+ * Service interface for the registry of issued refresh tokens. Every refresh token can be used
+ * once, to get the next one of its family, and using one twice revokes the family.
+ */
+public interface RefreshTokenService {
+
+    /** Claim holding the {@code jti} of the first token of the family. */
+    String FAMILY_CLAIM = "fam";
+
+    /** Claim holding the ID of the user the token was issued to. */
+    String USER_CLAIM = "uid";
+
+    /**
+     * Registers the first token of a new family, for a login.
+     *
+     * @param userId The user logging in.
+     * @param expiresAt When the token, and every token of its family, expires.
+     * @return The identifiers to put in the token.
+     */
+    RefreshTokenGrant issue(Long userId, Instant expiresAt);
+
+    /**
+     * Uses up a refresh token and registers the next one of its family, which expires when the
+     * used one did. A token that was already used has been replayed, and revokes its family.
+     *
+     * @param refreshToken The decoded refresh token.
+     * @return The identifiers to put in the next token.
+     * @throws AuthenticationFailedException if the token was already used, was revoked or was not
+     *     issued by the registry.
+     */
+    RefreshTokenGrant rotate(Jwt refreshToken);
+
+    /**
+     * Revokes the family of a refresh token, for a logout.
+     *
+     * @param refreshToken The decoded refresh token.
+     * @throws AuthenticationFailedException if the token was not issued by the registry.
+     */
+    void revoke(Jwt refreshToken);
+
+    /**
+     * Revokes every refresh token of a user.
+     *
+     * @param userId The user.
+     */
+    void revokeAll(Long userId);
+
+    /**
+     * Deletes the refresh tokens that have expired.
+     *
+     * @return The number of tokens deleted.
+     */
+    int purgeExpiredTokens();
+}
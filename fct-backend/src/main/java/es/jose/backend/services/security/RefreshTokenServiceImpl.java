@@ -0,0 +1,166 @@
+package es.jose.backend.services.security;
+
+import es.jose.backend.config.RefreshTokenProperties;
+import es.jose.backend.exceptions.AuthenticationFailedException;
+import es.jose.backend.persistence.repositories.RefreshTokenRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service implementation for the registry of issued refresh tokens, kept in the {@code
+ * refresh_tokens} table. A refresh uses up its token with a single update by primary key, which
+ * also makes two concurrent refreshes with the same token exclusive, and inserts the next token in
+ * the same transaction.
+ *
+ * <p>The tokens this instance has seen used, and the families and users it has revoked, are also
+ * indexed in memory until the tokens expire, so that replays are rejected without touching the
+ * database. The table stays the reference, for the tokens used through other instances.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final RefreshTokenProperties properties;
+
+    /** Tokens that have been used or revoked, until they expire. */
+    private final ConcurrentHashMap<UUID, Instant> spentTokens = new ConcurrentHashMap<>();
+
+    /** Families that have been revoked, until their tokens expire. */
+    private final ConcurrentHashMap<UUID, Instant> revokedFamilies = new ConcurrentHashMap<>();
+
+    /** When the tokens of a user were revoked; tokens issued before then are rejected. */
+    private final ConcurrentHashMap<Long, Instant> revokedUsers = new ConcurrentHashMap<>();
+
+    @Override
+    public RefreshTokenGrant issue(Long userId, Instant expiresAt) {
+        final var tokenId = UUID.randomUUID().toString();
+        refreshTokenRepository.create(tokenId, tokenId, userId, toLocal(expiresAt));
+        return new RefreshTokenGrant(tokenId, tokenId);
+    }
+
+    @Override
+    public RefreshTokenGrant rotate(Jwt refreshToken) {
+        final var tokenId = uuid(refreshToken.getId());
+        final var familyId = uuid(refreshToken.getClaimAsString(FAMILY_CLAIM));
+        final var userId = userId(refreshToken);
+        final var expiresAt = refreshToken.getExpiresAt();
+        if (expiresAt == null) {
+            throw invalidToken();
+        }
+
+        final var revokedAt = revokedUsers.get(userId);
+        if (revokedFamilies.containsKey(familyId)
+                || (revokedAt != null
+                        && (refreshToken.getIssuedAt() == null
+                                || refreshToken.getIssuedAt().isBefore(revokedAt)))) {
+            throw invalidToken();
+        }
+        if (spentTokens.containsKey(tokenId)) {
+            throw replayed(familyId, expiresAt);
+        }
+
+        final var next = UUID.randomUUID().toString();
+        final var rotated =
+                transactionTemplate.execute(
+                        status -> {
+                            if (refreshTokenRepository.use(tokenId.toString(), LocalDateTime.now())
+                                    == 0) {
+                                return false;
+                            }
+                            refreshTokenRepository.create(
+                                    next, familyId.toString(), userId, toLocal(expiresAt));
+                            return true;
+                        });
+        if (!Boolean.TRUE.equals(rotated)) {
+            throw replayed(familyId, expiresAt);
+        }
+
+        spentTokens.put(tokenId, expiresAt);
+        return new RefreshTokenGrant(next, familyId.toString());
+    }
+
+    @Override
+    public void revoke(Jwt refreshToken) {
+        final var familyId = uuid(refreshToken.getClaimAsString(FAMILY_CLAIM));
+        final var expiresAt = refreshToken.getExpiresAt();
+        if (expiresAt == null) {
+            throw invalidToken();
+        }
+        revokeFamily(familyId, expiresAt);
+    }
+
+    @Override
+    public void revokeAll(Long userId) {
+        // Issued-at claims only have seconds.
+        revokedUsers.put(userId, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        refreshTokenRepository.revokeUser(userId, LocalDateTime.now());
+    }
+
+    @Override
+    public int purgeExpiredTokens() {
+        final var now = Instant.now();
+        spentTokens.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+        revokedFamilies.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+        final var oldestValid = now.minus(Duration.ofDays(properties.expirationDays()));
+        revokedUsers.values().removeIf(revokedAt -> revokedAt.isBefore(oldestValid));
+
+        return refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    /**
+     * Revokes the family of a token that could not be used up: it was used already, by whoever
+     * stole it or by its owner, and there is no telling which of them has the next token.
+     */
+    private AuthenticationFailedException replayed(UUID familyId, Instant expiresAt) {
+        log.warn("Refresh token of family {} used twice, revoking the family", familyId);
+        revokeFamily(familyId, expiresAt);
+        return invalidToken();
+    }
+
+    private void revokeFamily(UUID familyId, Instant expiresAt) {
+        revokedFamilies.put(familyId, expiresAt);
+        refreshTokenRepository.revokeFamily(familyId.toString(), LocalDateTime.now());
+    }
+
+    private static AuthenticationFailedException invalidToken() {
+        return new AuthenticationFailedException("Invalid refresh token");
+    }
+
+    private static UUID uuid(String value) {
+        if (value == null) {
+            throw invalidToken();
+        }
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw invalidToken();
+        }
+    }
+
+    private static Long userId(Jwt refreshToken) {
+        if (refreshToken.getClaims().get(USER_CLAIM) instanceof Number userId) {
+            return userId.longValue();
+        }
+        throw invalidToken();
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
@@ -31,6 +31,14 @@ public interface UserSecurityService {
      */
     LocalAuthUser getAuthUser();
 
+    /**
+     * Forgets what is known about a user, so that the next request of that user sees the changes
+     * made to it. Takes effect right away and again once the current transaction commits.
+     *
+     * @param userId The ID of the user that changed.
+     */
+    void evictAfterCommit(Long userId);
+
     /**
      * Checks if the authenticated user is an admin. Retrieves the user's authorities from the
      * security context and checks for the ROLE_ADMIN authority. Uses {@link #getAuthUser()}
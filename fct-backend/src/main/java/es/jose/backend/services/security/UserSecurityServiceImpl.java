@@ -1,5 +1,6 @@
 package es.jose.backend.services.security;
 
+import es.jose.backend.config.PrincipalCacheProperties;
 import es.jose.backend.exceptions.user.UserNotFoundException;
 import es.jose.backend.persistence.repositories.UserRepository;
 import es.jose.backend.security.LocalAuthUser;
@@ -10,22 +11,40 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service implementation for checking user security and authorization properties. Provides methods
  * to retrieve the currently authenticated user from the security context. Interacts with the
  * UserRepository.
+ *
+ * <p>The users behind JWT principals are looked up by the token's subject once per request at most,
+ * and kept across requests for a short while, so ownership checks do not query the database. Users
+ * changed through the user service are evicted once the change commits.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserSecurityServiceImpl implements UserSecurityService {
 
+    /** Request attribute holding the user already looked up during the request. */
+    private static final String REQUEST_ATTRIBUTE = UserSecurityServiceImpl.class.getName();
+
     private final UserRepository userRepository;
+    private final PrincipalCacheProperties properties;
+
+    private final ConcurrentHashMap<String, CachedUser> users = new ConcurrentHashMap<>();
 
     /**
      * Gets the authenticated user from the Spring Security context. Supports both LocalAuthUser and
-     * Jwt principals. Retrieves the user from the repository if the principal is a Jwt.
+     * Jwt principals. Retrieves the user from the request, the cache or, failing those, the
+     * repository if the principal is a Jwt.
      *
      * @return the authenticated LocalAuthUser or null if the principal is not supported or user not
      *     found.
@@ -37,21 +56,96 @@ public class UserSecurityServiceImpl implements UserSecurityService {
         final var principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
         if (principal instanceof final LocalAuthUser authUser) {
-            log.info("Authenticated user (AuthUser): {}", authUser);
+            log.debug("Authenticated user (AuthUser): {}", authUser.getUsername());
             return authUser;
         }
 
         if (principal instanceof final Jwt jwt) {
-            log.info("Subject: {}", jwt.getSubject());
-            return new LocalAuthUser(
-                    userRepository
-                            .findByUsernameOrEmail(jwt.getSubject())
-                            .orElseThrow(
-                                    () ->
-                                            new UserNotFoundException(
-                                                    "username or email", jwt.getSubject())));
+            final var subject = jwt.getSubject();
+            final var request = RequestContextHolder.getRequestAttributes();
+            if (request != null
+                    && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                            instanceof final CachedUser memo
+                    && memo.subject().equals(subject)) {
+                return memo.authUser();
+            }
+
+            final var user = cachedUser(subject);
+            if (request != null) {
+                request.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+            }
+            return user.authUser();
         }
 
         return null;
     }
+
+    @Override
+    public void evictAfterCommit(Long userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A request may load the old user before the change commits.
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            evict(userId);
+                        }
+                    });
+        }
+    }
+
+    private CachedUser cachedUser(String subject) {
+        final var now = Instant.now();
+        final var cached = users.get(subject);
+        if (cached != null && now.isBefore(cached.cachedUntil())) {
+            return cached;
+        }
+
+        log.debug("Loading the user of subject {}", subject);
+        final var user =
+                new CachedUser(
+                        subject,
+                        new LocalAuthUser(
+                                userRepository
+                                        .findByUsernameOrEmail(subject)
+                                        .orElseThrow(
+                                                () ->
+                                                        new UserNotFoundException(
+                                                                "username or email", subject))),
+                        now.plus(properties.ttl()));
+        remember(user, now);
+        return user;
+    }
+
+    /**
+     * Keeps a user. When memory is full, expired users are dropped first and then arbitrary ones, a
+     * tenth of the cache at a time; dropped users are just loaded again.
+     */
+    private void remember(CachedUser user, Instant now) {
+        if (users.size() >= properties.maxEntries()) {
+            users.values().removeIf(cached -> !now.isBefore(cached.cachedUntil()));
+
+            final var target = properties.maxEntries() - Math.max(1, properties.maxEntries() / 10);
+            final var subjects = users.keySet().iterator();
+            while (users.size() > target && subjects.hasNext()) {
+                subjects.next();
+                subjects.remove();
+            }
+        }
+        users.put(user.subject(), user);
+    }
+
+    /** Drops a user however it was looked up, by username or by email, and in this request. */
+    private void evict(Long userId) {
+        users.values().removeIf(cached -> userId.equals(cached.authUser().getUser().getId()));
+
+        final var request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.removeAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /** A user looked up by the subject of a token, and until when it may be reused. */
+    private record CachedUser(String subject, LocalAuthUser authUser, Instant cachedUntil) {}
 }
@@ -0,0 +1,150 @@
+package es.jose.backend.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money, held as a whole number of cents. Prices and totals are added and multiplied
+ * as longs, exactly and without allocating intermediate decimals; amounts are rounded half up to
+ * the cent only where a price is multiplied by a fraction, such as a tax rate or part of an hour.
+ * Conversions to and from {@link BigDecimal} and {@code double} happen at the edges, when amounts
+ * are stored or sent to clients.
+ *
+ * @param cents the amount in cents.
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    /** No money. */
+    public static final Money ZERO = new Money(0);
+
+    private static final int SCALE = 2;
+    private static final long BASIS_POINTS = 10_000;
+
+    /**
+     * Gets an amount given in cents.
+     *
+     * @param cents the amount in cents.
+     * @return the amount.
+     */
+    public static Money ofCents(long cents) {
+        return new Money(cents);
+    }
+
+    /**
+     * Gets an amount given as a decimal, rounded half up to the cent.
+     *
+     * @param amount the amount.
+     * @return the amount, or null if it is null.
+     * @throws ArithmeticException if the amount is too large to be held in cents.
+     */
+    public static Money of(BigDecimal amount) {
+        return amount == null
+                ? null
+                : new Money(
+                        amount.setScale(SCALE, RoundingMode.HALF_UP)
+                                .unscaledValue()
+                                .longValueExact());
+    }
+
+    /**
+     * Gets an amount given as a double, as written in decimal and rounded half up to the cent, so
+     * that 0.1 is ten cents rather than the binary fraction closest to it.
+     *
+     * @param amount the amount.
+     * @return the amount, or null if it is null.
+     * @throws ArithmeticException if the amount is too large to be held in cents.
+     * @throws NumberFormatException if the amount is not finite.
+     */
+    public static Money of(Double amount) {
+        return amount == null ? null : of(BigDecimal.valueOf(amount));
+    }
+
+    /**
+     * Adds an amount to this one.
+     *
+     * @param other the amount to add.
+     * @return the sum.
+     * @throws ArithmeticException if the sum overflows.
+     */
+    public Money plus(Money other) {
+        return new Money(Math.addExact(cents, other.cents));
+    }
+
+    /**
+     * Gets this amount with the opposite sign.
+     *
+     * @return the negated amount.
+     */
+    public Money negate() {
+        return new Money(Math.negateExact(cents));
+    }
+
+    /**
+     * Multiplies this amount by a whole number, such as a quantity.
+     *
+     * @param multiplier the number to multiply by.
+     * @return the product.
+     * @throws ArithmeticException if the product overflows.
+     */
+    public Money times(long multiplier) {
+        return new Money(Math.multiplyExact(cents, multiplier));
+    }
+
+    /**
+     * Multiplies this amount by a fraction, rounding the result half up to the cent.
+     *
+     * @param numerator the numerator of the fraction.
+     * @param denominator the denominator of the fraction. Not zero.
+     * @return the product.
+     * @throws ArithmeticException if the product overflows or the denominator is zero.
+     */
+    public Money times(long numerator, long denominator) {
+        final var product = Math.multiplyExact(cents, numerator);
+        final var quotient = product / denominator;
+        final var remainder = product % denominator;
+        if (Math.abs(remainder) * 2 >= Math.abs(denominator)) {
+            return new Money(quotient + (Long.signum(product) * Long.signum(denominator)));
+        }
+        return new Money(quotient);
+    }
+
+    /**
+     * Adds a tax to this amount, rounding the result half up to the cent. The rate is taken to a
+     * hundredth of a percent.
+     *
+     * @param rate the rate of the tax, 0.21 for 21%.
+     * @return the amount with the tax.
+     * @throws ArithmeticException if the result overflows.
+     */
+    public Money plusTax(double rate) {
+        return times(BASIS_POINTS + Math.round(rate * BASIS_POINTS), BASIS_POINTS);
+    }
+
+    /**
+     * Gets this amount as a decimal with two decimal places.
+     *
+     * @return the amount.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Gets this amount as the double closest to it, for clients.
+     *
+     * @return the amount.
+     */
+    public double toDouble() {
+        return cents / 100d;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
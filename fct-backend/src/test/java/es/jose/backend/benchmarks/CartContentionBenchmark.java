@@ -0,0 +1,161 @@
+package es.jose.backend.benchmarks;
+
+import es.jose.backend.FctBackendApplication;
+import es.jose.backend.persistence.repositories.ProductRepository;
+import es.jose.backend.persistence.repositories.UserRepository;
+import es.jose.backend.services.CartService;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of adding the same product to the same cart from 1, 8 and 64 concurrent writers,
+ * against the H2 database of the {@code dev} profile. Every invocation makes {@value #INCREMENTS}
+ * additions split among the writers, and fails if the final quantity plus the additions that gave
+ * up after their retries does not add up to them, that is, if any update was lost. The {@code
+ * applied} and {@code gaveUp} counters show how many additions went through and how many were
+ * rejected. {@code writeBehind} compares the cart store that writes every change to the database
+ * with the one that keeps carts in memory and writes them in batches.
+ *
+ * <p>Run with {@code mvn test-compile} and then {@code java -cp
+ * target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main
+ * CartContentionBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class CartContentionBenchmark {
+
+    private static final int INCREMENTS = 256;
+
+    @Param({"1", "8", "64"})
+    public int writers;
+
+    @Param({"false", "true"})
+    public boolean writeBehind;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private ExecutorService executor;
+    private Long userId;
+    private Long productId;
+
+    /** Additions that went through and that gave up, reported next to the throughput. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long applied;
+        public long gaveUp;
+    }
+
+    @Setup
+    public void setUp() {
+        context =
+                new SpringApplicationBuilder(FctBackendApplication.class)
+                        .profiles("dev")
+                        // Arguments, since properties set on the builder are only defaults.
+                        .run(
+                                "--server.port=0",
+                                "--logging.level.root=ERROR",
+                                "--logging.level.org.hibernate.engine.jdbc.spi=OFF",
+                                "--spring.jpa.show-sql=false",
+                                "--app.invoices.pdf-prerender.enabled=false",
+                                "--app.carts.write-behind.enabled=" + writeBehind);
+        cartService = context.getBean(CartService.class);
+        userId = context.getBean(UserRepository.class).findAll().getFirst().getId();
+        productId = context.getBean(ProductRepository.class).findAll().getFirst().getId();
+        executor = Executors.newFixedThreadPool(writers);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyCart() {
+        if (quantity() > 0) {
+            cartService.removeProductFromCart(userId, productId);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INCREMENTS)
+    public void addSameProduct(Outcomes outcomes) throws Exception {
+        var start = new CountDownLatch(1);
+        var results = new ArrayList<Future<Integer>>(writers);
+        for (var w = 0; w < writers; w++) {
+            results.add(
+                    executor.submit(
+                            () -> {
+                                start.await();
+                                var gaveUp = 0;
+                                for (var i = 0; i < INCREMENTS / writers; i++) {
+                                    try {
+                                        cartService.addProductToCart(userId, productId);
+                                    } catch (ConcurrencyFailureException e) {
+                                        gaveUp++;
+                                    }
+                                }
+                                return gaveUp;
+                            }));
+        }
+        start.countDown();
+
+        var gaveUp = 0;
+        for (var result : results) {
+            gaveUp += awaitResult(result);
+        }
+        var applied = quantity();
+        if (applied + gaveUp != INCREMENTS) {
+            throw new IllegalStateException(
+                    (INCREMENTS - applied - gaveUp) + " additions to the cart were lost");
+        }
+        outcomes.applied += applied;
+        outcomes.gaveUp += gaveUp;
+    }
+
+    private int quantity() {
+        return cartService.getAllCarts(Optional.of(userId)).stream()
+                .filter(cart -> cart.productId().equals(productId))
+                .mapToInt(cart -> cart.quantity())
+                .sum();
+    }
+
+    private static int awaitResult(Future<Integer> result) throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package es.jose.backend.benchmarks;
+
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+
+import es.jose.backend.config.InvoicePdfRendererProperties;
+import es.jose.backend.persistence.entities.InvoiceEntity;
+import es.jose.backend.persistence.entities.LineItemEntity;
+import es.jose.backend.persistence.entities.UserEntity;
+import es.jose.backend.services.pdf.InvoicePdfRenderer;
+import es.jose.backend.utils.Money;
+import es.jose.backend.utils.ThymeleafUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation of downloading an invoice as a PDF on a cache miss: the HTML built as a {@link
+ * String} and the PDF copied out of a byte array into a {@link ByteArrayResource}, as invoices used
+ * to be downloaded, against the PDF rendered by {@link InvoicePdfRenderer} from the template
+ * written into a character buffer. A small invoice and one large enough for the copies to matter.
+ *
+ * <p>Run with {@code mvn test-compile} and then {@code java -cp
+ * target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main
+ * InvoicePdfDownloadBenchmark -prof gc}, and compare {@code gc.alloc.rate.norm}, the bytes
+ * allocated per download.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoicePdfDownloadBenchmark {
+
+    @Param({"2", "3000"})
+    public int lineItems;
+
+    private SpringTemplateEngine templateEngine;
+    private String baseUri;
+    private IContext context;
+    private InvoicePdfRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        var resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        baseUri = getClass().getResource("/templates/").toExternalForm();
+
+        var thymeleafUtils = new ThymeleafUtils();
+        context = thymeleafUtils.invoiceContext(invoice(lineItems));
+        renderer =
+                new InvoicePdfRenderer(
+                        templateEngine,
+                        thymeleafUtils,
+                        new InvoicePdfRendererProperties(1, List.of()));
+        renderer.warmUp();
+    }
+
+    @Benchmark
+    public Resource buffered() throws IOException {
+        var pdf = new ByteArrayOutputStream();
+        new PdfRendererBuilder()
+                .useFastMode()
+                .withHtmlContent(templateEngine.process("invoice", context), baseUri)
+                .toStream(pdf)
+                .run();
+        return new ByteArrayResource(pdf.toByteArray());
+    }
+
+    @Benchmark
+    public void streamed() throws IOException {
+        renderer.render(context, OutputStream.nullOutputStream());
+    }
+
+    private static InvoiceEntity invoice(int lineItems) {
+        var invoice =
+                InvoiceEntity.builder()
+                        .id(1L)
+                        .createdAt(LocalDateTime.now())
+                        .user(UserEntity.builder().firstName("Ana").lastName("García").build())
+                        .totalPrice(Money.ofCents(lineItems * 1200L))
+                        .lineItems(new HashSet<>())
+                        .build();
+        for (int i = 0; i < lineItems; i++) {
+            invoice.getLineItems()
+                    .add(
+                            LineItemEntity.builder()
+                                    .quantity(1)
+                                    .priceAtPurchase(Money.ofCents(1200))
+                                    .subtotal(Money.ofCents(1200))
+                                    .invoice(invoice)
+                                    .build());
+        }
+        return invoice;
+    }
+}
@@ -0,0 +1,131 @@
+package es.jose.backend.benchmarks;
+
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+
+import es.jose.backend.config.InvoicePdfRendererProperties;
+import es.jose.backend.persistence.entities.InvoiceEntity;
+import es.jose.backend.persistence.entities.LineItemEntity;
+import es.jose.backend.persistence.entities.UserEntity;
+import es.jose.backend.services.pdf.InvoicePdfRenderer;
+import es.jose.backend.utils.Money;
+import es.jose.backend.utils.ThymeleafUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.FileSystemResource;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of rendering a single invoice as a PDF: a new renderer built for every invoice, as
+ * invoices used to be rendered, against the pooled, warmed-up {@link InvoicePdfRenderer}.
+ *
+ * <p>Run with {@code mvn test-compile} and then {@code java -cp
+ * target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main
+ * InvoicePdfRenderBenchmark}, adding {@code -p fontFile=/path/to/font.ttf} to embed a font.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoicePdfRenderBenchmark {
+
+    private static final int LINE_ITEMS = 10;
+
+    /** A TrueType font to embed as the invoice font, or empty to use the built-in ones. */
+    @Param({""})
+    public String fontFile;
+
+    private SpringTemplateEngine templateEngine;
+    private String baseUri;
+    private IContext context;
+    private InvoicePdfRenderer renderer;
+
+    @Setup
+    public void setUp() {
+        var resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        baseUri = getClass().getResource("/templates/").toExternalForm();
+
+        var thymeleafUtils = new ThymeleafUtils();
+        context = thymeleafUtils.invoiceContext(invoice());
+
+        var fonts =
+                fontFile.isEmpty()
+                        ? List.<InvoicePdfRendererProperties.Font>of()
+                        : List.of(
+                                new InvoicePdfRendererProperties.Font(
+                                        new FileSystemResource(fontFile), "Arial"));
+        renderer =
+                new InvoicePdfRenderer(
+                        templateEngine,
+                        thymeleafUtils,
+                        new InvoicePdfRendererProperties(1, fonts));
+        renderer.warmUp();
+    }
+
+    @Benchmark
+    public void newRendererPerInvoice() throws IOException {
+        var builder =
+                new PdfRendererBuilder()
+                        .useFastMode()
+                        .withHtmlContent(templateEngine.process("invoice", context), baseUri)
+                        .toStream(OutputStream.nullOutputStream());
+        if (!fontFile.isEmpty()) {
+            builder.useFont(new File(fontFile), "Arial");
+        }
+        builder.run();
+    }
+
+    @Benchmark
+    public void pooledRenderer() throws IOException {
+        renderer.render(context, OutputStream.nullOutputStream());
+    }
+
+    private static InvoiceEntity invoice() {
+        var invoice =
+                InvoiceEntity.builder()
+                        .id(1L)
+                        .createdAt(LocalDateTime.now())
+                        .user(UserEntity.builder().firstName("Ana").lastName("García").build())
+                        .totalPrice(Money.ofCents(LINE_ITEMS * 1200))
+                        .lineItems(new HashSet<>())
+                        .build();
+        for (int i = 0; i < LINE_ITEMS; i++) {
+            invoice.getLineItems()
+                    .add(
+                            LineItemEntity.builder()
+                                    .quantity(1)
+                                    .priceAtPurchase(Money.ofCents(1200))
+                                    .subtotal(Money.ofCents(1200))
+                                    .invoice(invoice)
+                                    .build());
+        }
+        return invoice;
+    }
+}
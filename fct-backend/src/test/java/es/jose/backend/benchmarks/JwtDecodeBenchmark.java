@@ -0,0 +1,113 @@
+package es.jose.backend.benchmarks;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+
+import es.jose.backend.config.JwtCacheProperties;
+import es.jose.backend.security.CachingJwtDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of decoding the access token of a request: with the plain Nimbus decoder, which parses
+ * the token and verifies its RSA signature every time; with the caching decoder the first time it
+ * sees the token ({@code cold}), which adds the digest of the token and storing it; and with the
+ * caching decoder once it has seen the token ({@code warm}).
+ *
+ * <p>Run with {@code mvn test-compile} and then {@code java -cp
+ * target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main JwtDecodeBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtDecodeBenchmark {
+
+    private static final JwtCacheProperties CACHE =
+            new JwtCacheProperties(true, 10_000, Duration.ofSeconds(30));
+
+    private String token;
+    private JwtDecoder nimbus;
+    private CachingJwtDecoder warm;
+
+    @Setup
+    public void setUp() throws Exception {
+        var generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        var keys = generator.generateKeyPair();
+        var publicKey = (RSAPublicKey) keys.getPublic();
+
+        var jwk = new RSAKey.Builder(publicKey).privateKey((RSAPrivateKey) keys.getPrivate()).build();
+        var encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(jwk)));
+        var now = Instant.now();
+        token =
+                encoder.encode(
+                                JwtEncoderParameters.from(
+                                        JwtClaimsSet.builder()
+                                                .issuer("self")
+                                                .issuedAt(now)
+                                                .expiresAt(now.plus(Duration.ofHours(2)))
+                                                .subject("admin")
+                                                .claim("authorities", List.of("ROLE_ADMIN"))
+                                                .build()))
+                        .getTokenValue();
+
+        nimbus = NimbusJwtDecoder.withPublicKey(publicKey).build();
+        warm = new CachingJwtDecoder(nimbus, CACHE, Duration.ofDays(7));
+        warm.decode(token);
+    }
+
+    /** A caching decoder that has not seen the token yet, new for every invocation. */
+    @State(Scope.Thread)
+    public static class Cold {
+
+        private CachingJwtDecoder decoder;
+
+        @Setup(Level.Invocation)
+        public void setUp(JwtDecodeBenchmark benchmark) {
+            decoder = new CachingJwtDecoder(benchmark.nimbus, CACHE, Duration.ofDays(7));
+        }
+    }
+
+    @Benchmark
+    public Jwt nimbus() {
+        return nimbus.decode(token);
+    }
+
+    @Benchmark
+    public Jwt cold(Cold cold) {
+        return cold.decoder.decode(token);
+    }
+
+    @Benchmark
+    public Jwt warm() {
+        return warm.decode(token);
+    }
+}
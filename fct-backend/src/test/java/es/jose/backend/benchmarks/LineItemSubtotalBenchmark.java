@@ -0,0 +1,68 @@
+package es.jose.backend.benchmarks;
+
+import es.jose.backend.utils.Money;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of pricing a product line item, its unit price times its quantity plus VAT: in doubles
+ * converted to a decimal, as line items used to be priced; in decimals, as checkouts used to be
+ * priced; and in {@link Money}.
+ *
+ * <p>Run with {@code mvn test-compile} and then {@code java -cp
+ * target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main
+ * LineItemSubtotalBenchmark -prof gc} to also see the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineItemSubtotalBenchmark {
+
+    private double price;
+    private double vatPercentage;
+    private int quantity;
+    private Money money;
+
+    @Setup
+    public void setUp() {
+        price = 33.5;
+        vatPercentage = 0.21;
+        quantity = 3;
+        money = Money.of(price);
+    }
+
+    @Benchmark
+    public BigDecimal doubles() {
+        var tax = vatPercentage * price;
+        return BigDecimal.valueOf((price + tax) * quantity);
+    }
+
+    @Benchmark
+    public BigDecimal decimals() {
+        return BigDecimal.valueOf(price)
+                .multiply(BigDecimal.ONE.add(BigDecimal.valueOf(vatPercentage)))
+                .multiply(BigDecimal.valueOf(quantity))
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public Money money() {
+        return money.times(quantity).plusTax(vatPercentage);
+    }
+}
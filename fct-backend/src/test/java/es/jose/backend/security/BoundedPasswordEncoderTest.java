@@ -0,0 +1,103 @@
+package es.jose.backend.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import es.jose.backend.config.MessageSourceProvider;
+import es.jose.backend.config.PasswordHashingProperties;
+import es.jose.backend.exceptions.PasswordHashingBusyException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger hashes = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private volatile boolean blocking;
+    private BoundedPasswordEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        new MessageSourceProvider(new StaticMessageSource());
+        encoder =
+                new BoundedPasswordEncoder(
+                        new PasswordEncoder() {
+                            @Override
+                            public String encode(CharSequence rawPassword) {
+                                return "{plain}" + rawPassword;
+                            }
+
+                            @Override
+                            public boolean matches(CharSequence rawPassword, String encoded) {
+                                hashes.incrementAndGet();
+                                if (blocking) {
+                                    await(release);
+                                }
+                                return encoded.equals(encode(rawPassword));
+                            }
+                        },
+                        new PasswordHashingProperties(1, 1, Duration.ofMinutes(2), 100),
+                        meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.close();
+    }
+
+    @Test
+    void verifiesTheSameCredentialsOnlyOnce() {
+        assertThat(encoder.matches("secret", "{plain}secret")).isTrue();
+        assertThat(encoder.matches("secret", "{plain}secret")).isTrue();
+        assertThat(encoder.matches("wrong", "{plain}secret")).isFalse();
+        assertThat(encoder.matches("secret", "{plain}changed")).isFalse();
+
+        assertThat(hashes).hasValue(3);
+        assertThat(meterRegistry.counter("security.password.verified.hits").count()).isEqualTo(1);
+        assertThat(meterRegistry.timer("security.password.hashing").count()).isEqualTo(3);
+    }
+
+    @Test
+    void rejectsCredentialsRightAwayOnceTheQueueIsFull() throws Exception {
+        blocking = true;
+        var running = CompletableFuture.supplyAsync(() -> encoder.matches("a", "{plain}a"));
+        while (hashes.get() == 0) {
+            Thread.onSpinWait();
+        }
+        var queued = CompletableFuture.supplyAsync(() -> encoder.matches("b", "{plain}b"));
+        while (meterRegistry.get("security.password.queue").gauge().value() == 0) {
+            Thread.onSpinWait();
+        }
+
+        assertThatThrownBy(() -> encoder.matches("c", "{plain}c"))
+                .isInstanceOf(PasswordHashingBusyException.class);
+        assertThat(meterRegistry.counter("security.password.rejected").count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package es.jose.backend.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import es.jose.backend.config.JwtCacheProperties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.time.Instant;
+
+class CachingJwtDecoderTest {
+
+    private JwtDecoder delegate;
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(JwtDecoder.class);
+        when(delegate.decode(anyString()))
+                .thenAnswer(invocation -> jwt(invocation.getArgument(0), Duration.ofHours(1)));
+        decoder =
+                new CachingJwtDecoder(
+                        delegate,
+                        new JwtCacheProperties(true, 3, Duration.ofSeconds(30)),
+                        Duration.ofDays(7));
+    }
+
+    @Test
+    void verifiesEachTokenOnlyOnce() {
+        var first = decoder.decode("a");
+        var second = decoder.decode("a");
+        decoder.decode("b");
+
+        assertThat(second).isSameAs(first);
+        verify(delegate, times(1)).decode("a");
+        verify(delegate, times(1)).decode("b");
+    }
+
+    @Test
+    void decodesTokensAgainShortlyBeforeTheyExpire() {
+        when(delegate.decode("soon")).thenReturn(jwt("soon", Duration.ofSeconds(10)));
+
+        decoder.decode("soon");
+        decoder.decode("soon");
+
+        verify(delegate, times(2)).decode("soon");
+    }
+
+    @Test
+    void keepsNoMoreTokensThanItIsAllowedTo() {
+        for (var token : new String[] {"a", "b", "c", "d", "e"}) {
+            decoder.decode(token);
+        }
+        for (var token : new String[] {"a", "b", "c", "d", "e"}) {
+            decoder.decode(token);
+        }
+
+        verify(delegate, atLeast(10 - 3)).decode(anyString());
+    }
+
+    @Test
+    void rejectsRevokedTokensEvenIfCached() {
+        decoder.decode("a");
+
+        decoder.revoke("a");
+
+        assertThatThrownBy(() -> decoder.decode("a")).isInstanceOf(BadJwtException.class);
+        assertThat(decoder.decode("b").getTokenValue()).isEqualTo("b");
+    }
+
+    @Test
+    void rejectsEveryTokenOfARevokedSubjectIssuedUntilThen() {
+        decoder.decode("a");
+        when(delegate.decode("b")).thenReturn(jwt("b", "user", Instant.now()));
+        when(delegate.decode("other")).thenReturn(jwt("other", "someone", Instant.now()));
+        when(delegate.decode("later"))
+                .thenReturn(jwt("later", "user", Instant.now().plusSeconds(2)));
+
+        decoder.revokeSubject("user");
+
+        assertThatThrownBy(() -> decoder.decode("a")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("b")).isInstanceOf(BadJwtException.class);
+        assertThat(decoder.decode("other").getSubject()).isEqualTo("someone");
+        assertThat(decoder.decode("later").getTokenValue()).isEqualTo("later");
+    }
+
+    @Test
+    void checksRevocationsWithoutCaching() {
+        var uncached =
+                new CachingJwtDecoder(
+                        delegate,
+                        new JwtCacheProperties(false, 3, Duration.ofSeconds(30)),
+                        Duration.ofDays(7));
+
+        uncached.decode("a");
+        uncached.decode("a");
+        uncached.revoke("b");
+
+        verify(delegate, times(2)).decode("a");
+        assertThatThrownBy(() -> uncached.decode("b")).isInstanceOf(BadJwtException.class);
+    }
+
+    private static Jwt jwt(String token, Duration validFor) {
+        var now = Instant.now();
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("user")
+                .issuedAt(now)
+                .expiresAt(now.plus(validFor))
+                .build();
+    }
+
+    private static Jwt jwt(String token, String subject, Instant issuedAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject(subject)
+                .issuedAt(issuedAt)
+                .expiresAt(issuedAt.plus(Duration.ofHours(1)))
+                .build();
+    }
+}
@@ -0,0 +1,70 @@
+package es.jose.backend.services.cart;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import es.jose.backend.config.CartExpiryProperties;
+import es.jose.backend.persistence.repositories.CartRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.util.List;
+
+class CartExpiryServiceImplTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CartRepository repository;
+    private CartStore store;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(CartRepository.class);
+        when(repository.findIdleUserIds(eq(0L), any(), eq(Limit.of(2)))).thenReturn(List.of(1L, 2L));
+        when(repository.findIdleUserIds(eq(2L), any(), eq(Limit.of(2)))).thenReturn(List.of(3L, 4L));
+        when(repository.findIdleUserIds(eq(4L), any(), eq(Limit.of(2)))).thenReturn(List.of(5L));
+
+        store = mock(CartStore.class);
+        when(store.expireIdle(anyList(), any())).thenReturn(3);
+    }
+
+    @Test
+    void deletesIdleCartsAPageOfUsersAtATime() {
+        var deleted = service(Duration.ofMinutes(1)).expireIdleCarts();
+
+        assertThat(deleted).isEqualTo(9);
+        verify(store).expireIdle(eq(List.of(1L, 2L)), any());
+        verify(store).expireIdle(eq(List.of(3L, 4L)), any());
+        verify(store).expireIdle(eq(List.of(5L)), any());
+        assertThat(meterRegistry.counter("carts.expired.lines").count()).isEqualTo(9);
+        assertThat(meterRegistry.timer("carts.expiry.runs").count()).isEqualTo(1);
+    }
+
+    @Test
+    void leavesTheRestToTheNextRunOnceItTookTooLong() {
+        var deleted = service(Duration.ZERO).expireIdleCarts();
+
+        assertThat(deleted).isEqualTo(3);
+        verify(store, never()).expireIdle(eq(List.of(3L, 4L)), any());
+    }
+
+    private CartExpiryServiceImpl service(Duration maxDuration) {
+        return new CartExpiryServiceImpl(
+                repository,
+                store,
+                new CartExpiryProperties(
+                        true, "-", Duration.ofDays(30), 2, Duration.ofMillis(1), maxDuration),
+                meterRegistry);
+    }
+}
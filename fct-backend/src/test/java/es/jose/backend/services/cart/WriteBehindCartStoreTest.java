@@ -0,0 +1,151 @@
+package es.jose.backend.services.cart;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import es.jose.backend.config.CartWriteBehindProperties;
+import es.jose.backend.mappers.CartMapper;
+import es.jose.backend.persistence.entities.keys.CartKey;
+import es.jose.backend.persistence.repositories.CartRepository;
+import es.jose.backend.services.ProductService;
+import es.jose.backend.services.UserService;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+class WriteBehindCartStoreTest {
+
+    private static final Long USER = 1L;
+
+    private final List<List<CartLine>> saved = new CopyOnWriteArrayList<>();
+    private final List<List<CartKey>> deleted = new CopyOnWriteArrayList<>();
+
+    private CartRepository repository;
+    private ProductService productService;
+    private WriteBehindCartStore store;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(CartRepository.class);
+        when(repository.findLinesByUserId(USER))
+                .thenReturn(List.of(new CartLine(USER, 10L, 2), new CartLine(USER, 20L, 1)));
+        doAnswer(invocation -> saved.add(new ArrayList<>(invocation.getArgument(0))))
+                .when(repository)
+                .saveAllLines(anyList());
+        doAnswer(invocation -> deleted.add(new ArrayList<>(invocation.getArgument(0))))
+                .when(repository)
+                .deleteAllLines(anyList());
+
+        productService = mock(ProductService.class);
+        store =
+                new WriteBehindCartStore(
+                        mock(CartMapper.class),
+                        mock(UserService.class),
+                        productService,
+                        repository,
+                        new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                        new CartWriteBehindProperties(
+                                true, Duration.ofMinutes(1), 4, Duration.ofMinutes(30)));
+    }
+
+    @Test
+    void servesReadsAndChangesFromMemoryOnceLoaded() {
+        store.addProduct(USER, 10L);
+        store.updateQuantity(USER, 20L, 5);
+
+        assertThat(store.getCart(USER))
+                .extracting(cart -> cart.productId() + "x" + cart.quantity())
+                .containsExactly("10x3", "20x5");
+        verify(repository, times(1)).findLinesByUserId(USER);
+        verify(productService, never()).getProductEntityById(any());
+        verify(repository, never()).saveAllLines(anyList());
+    }
+
+    @Test
+    void coalescesChangesIntoOneWritePerLine() {
+        for (var i = 0; i < 5; i++) {
+            store.addProduct(USER, 30L);
+        }
+        store.addProduct(USER, 10L);
+        store.removeProduct(USER, 20L);
+
+        store.flush();
+        store.flush();
+
+        assertThat(saved).hasSize(1);
+        assertThat(saved.getFirst())
+                .containsExactlyInAnyOrder(new CartLine(USER, 30L, 5), new CartLine(USER, 10L, 3));
+        assertThat(deleted).containsExactly(List.of(new CartKey(USER, 20L)));
+        verify(productService, times(1)).getProductEntityById(30L);
+    }
+
+    @Test
+    void keepsChangesThatCouldNotBeWrittenForTheNextFlush() {
+        store.addProduct(USER, 10L);
+        doThrow(new CannotAcquireLockException("busy"))
+                .doAnswer(invocation -> saved.add(new ArrayList<>(invocation.getArgument(0))))
+                .when(repository)
+                .saveAllLines(anyList());
+
+        store.flush();
+        store.addProduct(USER, 10L);
+        store.flush();
+
+        assertThat(saved).containsExactly(List.of(new CartLine(USER, 10L, 4)));
+    }
+
+    @Test
+    void writesTheCartBeforeACheckoutAndReadsItAgainAfter() {
+        store.updateQuantity(USER, 10L, 7);
+
+        var result =
+                store.checkout(
+                        USER,
+                        () -> {
+                            assertThat(saved).containsExactly(List.of(new CartLine(USER, 10L, 7)));
+                            return "invoice";
+                        });
+        store.getCart(USER);
+
+        assertThat(result).isEqualTo("invoice");
+        verify(repository, times(2)).findLinesByUserId(USER);
+        assertThatThrownBy(() -> store.removeProduct(USER, 99L))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+
+    @Test
+    void writesOtherCartsWhileACheckoutRuns() {
+        final var other = 2L;
+        store.addProduct(other, 10L);
+
+        store.checkout(
+                USER,
+                () ->
+                        CompletableFuture.runAsync(() -> store.flush(other))
+                                .orTimeout(5, TimeUnit.SECONDS)
+                                .join());
+
+        assertThat(saved).contains(List.of(new CartLine(other, 10L, 1)));
+    }
+}
@@ -0,0 +1,96 @@
+package es.jose.backend.services.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import es.jose.backend.config.OptimisticRetryProperties;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class OptimisticRetryTest {
+
+    private static final int MAX_ATTEMPTS = 4;
+
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final OptimisticRetry retry =
+            new OptimisticRetry(
+                    new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                    new OptimisticRetryProperties(
+                            MAX_ATTEMPTS, Duration.ofMillis(1), Duration.ofMillis(2)));
+
+    @Test
+    void retriesUntilTheWriteNoLongerConflicts() {
+        var result =
+                retry.execute(
+                        tx -> {
+                            var attempt = attempts.incrementAndGet();
+                            if (attempt == 1) {
+                                throw new OptimisticLockingFailureException("stale");
+                            }
+                            if (attempt == 2) {
+                                throw new CannotAcquireLockException("deadlock");
+                            }
+                            return attempt;
+                        });
+
+        assertThat(result).isEqualTo(3);
+    }
+
+    @Test
+    void givesUpAfterTheLastAttempt() {
+        assertThatThrownBy(
+                        () ->
+                                retry.execute(
+                                        tx -> {
+                                            attempts.incrementAndGet();
+                                            throw new OptimisticLockingFailureException("stale");
+                                        }))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+
+        assertThat(attempts).hasValue(MAX_ATTEMPTS);
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() {
+        assertThatThrownBy(
+                        () ->
+                                retry.execute(
+                                        tx -> {
+                                            attempts.incrementAndGet();
+                                            throw new DataIntegrityViolationException("invalid");
+                                        }))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void leavesTheRetryToTheCallerWithinATransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThatThrownBy(
+                            () ->
+                                    retry.execute(
+                                            tx -> {
+                                                attempts.incrementAndGet();
+                                                throw new OptimisticLockingFailureException(
+                                                        "stale");
+                                            }))
+                    .isInstanceOf(OptimisticLockingFailureException.class);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertThat(attempts).hasValue(1);
+    }
+}
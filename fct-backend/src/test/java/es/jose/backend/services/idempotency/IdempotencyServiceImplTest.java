@@ -0,0 +1,113 @@
+package es.jose.backend.services.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.jose.backend.config.IdempotencyProperties;
+import es.jose.backend.config.MessageSourceProvider;
+import es.jose.backend.exceptions.idempotency.IdempotencyKeyReusedException;
+import es.jose.backend.persistence.entities.IdempotencyKeyEntity;
+import es.jose.backend.persistence.repositories.IdempotencyKeyRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class IdempotencyServiceImplTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private IdempotencyKeyRepository repository;
+    private IdempotencyServiceImpl service;
+
+    record Created(Long id, String name) {}
+
+    @BeforeEach
+    void setUp() {
+        new MessageSourceProvider(new StaticMessageSource());
+        repository = mock(IdempotencyKeyRepository.class);
+        when(repository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        service =
+                new IdempotencyServiceImpl(
+                        repository,
+                        new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                        new ObjectMapper(),
+                        new IdempotencyProperties(
+                                Duration.ofHours(24), Duration.ofMinutes(10), 100, true, ""));
+    }
+
+    @Test
+    void answersARetryFromMemoryWithoutExecutingItAgain() {
+        var first = create("key", "a");
+        var retry = create("key", "a");
+
+        assertThat(executions).hasValue(1);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getBody()).isEqualTo(first.getBody());
+        assertThat(retry.getHeaders().getFirst(IdempotencyServiceImpl.REPLAYED_HEADER))
+                .isEqualTo("true");
+        verify(repository, times(1)).saveAndFlush(any());
+    }
+
+    @Test
+    void answersADuplicateThatLostTheRaceWithTheStoredResponse() {
+        var stored = new IdempotencyKeyEntity[1];
+        when(repository.saveAndFlush(any()))
+                .thenAnswer(
+                        invocation -> {
+                            IdempotencyKeyEntity entity = invocation.getArgument(0);
+                            entity.setResponseStatus(201);
+                            entity.setResponseBody("{\"id\":7,\"name\":\"a\"}");
+                            stored[0] = entity;
+                            throw new DataIntegrityViolationException("duplicate key");
+                        });
+        when(repository.findByKeyHash(any())).thenAnswer(invocation -> Optional.of(stored[0]));
+
+        var response = create("key", "a");
+
+        assertThat(executions).hasValue(0);
+        assertThat(response.getBody()).isEqualTo(new Created(7L, "a"));
+    }
+
+    @Test
+    void rejectsAKeyReusedForADifferentRequest() {
+        create("key", "a");
+
+        assertThatThrownBy(() -> create("key", "b"))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void executesEveryRequestWithoutAKey() {
+        service.execute("create", Optional.empty(), "a", Created.class, this::execute);
+        service.execute("create", Optional.empty(), "a", Created.class, this::execute);
+
+        assertThat(executions).hasValue(2);
+    }
+
+    private ResponseEntity<Created> create(String key, String name) {
+        return service.execute("create", Optional.of(key), name, Created.class, this::execute);
+    }
+
+    private ResponseEntity<Created> execute() {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(new Created((long) executions.incrementAndGet(), "a"));
+    }
+}
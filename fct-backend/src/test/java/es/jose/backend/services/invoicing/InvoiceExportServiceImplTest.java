@@ -0,0 +1,162 @@
+package es.jose.backend.services.invoicing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import es.jose.backend.config.InvoiceExportProperties;
+import es.jose.backend.config.InvoicePdfCacheProperties;
+import es.jose.backend.persistence.entities.InvoiceEntity;
+import es.jose.backend.persistence.repositories.InvoiceRepository;
+import es.jose.backend.services.pdf.InvoicePdfCache;
+import es.jose.backend.services.pdf.InvoicePdfRenderer;
+import es.jose.backend.utils.ThymeleafUtils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipInputStream;
+
+class InvoiceExportServiceImplTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 5, 2, 10, 0);
+    private static final int WORKERS = 3;
+
+    @TempDir Path directory;
+
+    private final Map<Long, InvoiceEntity> invoices = new ConcurrentHashMap<>();
+    private final AtomicInteger rendering = new AtomicInteger();
+    private final AtomicInteger maxRendering = new AtomicInteger();
+    private final AtomicInteger renders = new AtomicInteger();
+
+    private InvoicePdfCache cache;
+    private InvoiceExportServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (long id = 1; id <= 20; id++) {
+            invoices.put(id, InvoiceEntity.builder().id(id).createdAt(CREATED_AT).build());
+        }
+
+        var repository = mock(InvoiceRepository.class);
+        when(repository.findWithLineItemsById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(invoices.get(invocation.getArgument(0))));
+
+        var thymeleafUtils = mock(ThymeleafUtils.class);
+        when(thymeleafUtils.invoiceContext(any()))
+                .thenAnswer(
+                        invocation -> {
+                            var context = new Context();
+                            context.setVariable(
+                                    "invoiceNumber",
+                                    ((InvoiceEntity) invocation.getArgument(0)).getId());
+                            return context;
+                        });
+
+        var renderer = mock(InvoicePdfRenderer.class);
+        doAnswer(
+                        invocation -> {
+                            maxRendering.accumulateAndGet(rendering.incrementAndGet(), Math::max);
+                            try {
+                                Thread.sleep(5);
+                                IContext context = invocation.getArgument(0);
+                                var id = (Long) context.getVariable("invoiceNumber");
+                                if (id == 13L) {
+                                    throw new IOException("broken template");
+                                }
+                                renders.incrementAndGet();
+                                ((OutputStream) invocation.getArgument(1)).write(pdf(id));
+                                return null;
+                            } finally {
+                                rendering.decrementAndGet();
+                            }
+                        })
+                .when(renderer)
+                .render(any(), any());
+
+        cache =
+                new InvoicePdfCache(
+                        new InvoicePdfCacheProperties(directory, DataSize.ofMegabytes(1)));
+        cache.init();
+
+        service =
+                new InvoiceExportServiceImpl(
+                        repository,
+                        thymeleafUtils,
+                        renderer,
+                        cache,
+                        new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                        new InvoiceExportProperties(WORKERS));
+    }
+
+    @Test
+    void rendersNoMoreInvoicesAtOnceThanItHasWorkers() throws Exception {
+        var entries = export(invoices.keySet().stream().sorted().toList());
+
+        assertThat(maxRendering.get()).isBetween(1, WORKERS);
+        assertThat(entries).hasSize(20);
+        assertThat(entries.get("invoice-7.pdf")).isEqualTo(new String(pdf(7L)));
+    }
+
+    @Test
+    void listsTheInvoicesItCouldNotExportAtTheEnd() throws Exception {
+        invoices.remove(5L);
+
+        var entries = export(List.of(4L, 5L, 13L, 14L));
+
+        assertThat(entries).containsOnlyKeys("invoice-4.pdf", "invoice-14.pdf", "ERRORS.txt");
+        assertThat(entries.get("ERRORS.txt"))
+                .contains("Invoice 5: deleted during the export")
+                .contains("Invoice 13: broken template");
+    }
+
+    @Test
+    void readsCachedPdfsInsteadOfRenderingThem() throws Exception {
+        var invoice = invoices.get(2L);
+        cache.put(2L, InvoicePdfCache.versionOf(invoice), "cached".getBytes(StandardCharsets.UTF_8));
+
+        var entries = export(List.of(1L, 2L));
+
+        assertThat(entries.get("invoice-2.pdf")).isEqualTo("cached");
+        assertThat(renders.get()).isEqualTo(1);
+    }
+
+    private Map<String, String> export(List<Long> invoiceIds) throws IOException {
+        var out = new ByteArrayOutputStream();
+        service.writePdfs(invoiceIds, out);
+
+        var entries = new HashMap<String, String>();
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] pdf(Long id) {
+        return ("%PDF-1.4 invoice " + id).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,235 @@
+package es.jose.backend.services.mail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import es.jose.backend.config.AppointmentReminderProperties;
+import es.jose.backend.persistence.entities.AppointmentCategoryEntity;
+import es.jose.backend.persistence.entities.AppointmentEntity;
+import es.jose.backend.persistence.entities.UserEntity;
+import es.jose.backend.persistence.repositories.AppointmentRepository;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openapitools.model.AppointmentStatusEnum;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IContext;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+class AppointmentReminderServiceImplTest {
+
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+    private static final int BATCH_SIZE = 4;
+
+    private final List<AppointmentEntity> pending = new ArrayList<>();
+    private final Set<Long> checkpointed = Collections.synchronizedSet(new HashSet<>());
+
+    private volatile int checkpointFailuresLeft;
+    private StandInSmtpServer smtp;
+    private AppointmentReminderServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        smtp = new StandInSmtpServer();
+
+        var repository = mock(AppointmentRepository.class);
+        when(repository.findPendingReminders(
+                        eq(TOMORROW), anyLong(), eq(AppointmentStatusEnum.DECLINED), any()))
+                .thenAnswer(
+                        invocation -> {
+                            long afterId = invocation.getArgument(1);
+                            Limit limit = invocation.getArgument(3);
+                            return pending.stream()
+                                    .filter(a -> a.getId() > afterId)
+                                    .filter(a -> !checkpointed.contains(a.getId()))
+                                    .limit(limit.max())
+                                    .toList();
+                        });
+        when(repository.markRemindersSent(any(), any()))
+                .thenAnswer(
+                        invocation -> {
+                            if (checkpointFailuresLeft > 0) {
+                                checkpointFailuresLeft--;
+                                throw new DataAccessResourceFailureException("Connection lost");
+                            }
+                            List<Long> ids = invocation.getArgument(0);
+                            checkpointed.addAll(ids);
+                            return ids.size();
+                        });
+
+        var templateEngine = mock(TemplateEngine.class);
+        when(templateEngine.process(anyString(), any(IContext.class)))
+                .thenReturn("<p>See you tomorrow</p>");
+
+        service =
+                new AppointmentReminderServiceImpl(
+                        smtp,
+                        templateEngine,
+                        repository,
+                        new AppointmentReminderProperties(
+                                true,
+                                "-",
+                                "salon@example.com",
+                                3,
+                                BATCH_SIZE,
+                                2,
+                                3,
+                                Duration.ofMillis(1)));
+    }
+
+    @Test
+    void sendsEveryReminderInBoundedBatchesAndCheckpointsThem() {
+        addAppointments(10);
+
+        assertThat(service.sendReminders(TOMORROW)).isEqualTo(10);
+
+        assertThat(smtp.delivered).hasSize(10);
+        assertThat(smtp.connections)
+                .allSatisfy(batch -> assertThat(batch).isBetween(1, BATCH_SIZE));
+        assertThat(checkpointed).containsExactlyInAnyOrderElementsOf(ids(10));
+    }
+
+    @Test
+    void retriesFailedMessagesWithBackoff() {
+        addAppointments(6);
+        smtp.failuresLeft.put("client3@example.com", 2);
+
+        assertThat(service.sendReminders(TOMORROW)).isEqualTo(6);
+
+        assertThat(smtp.delivered).containsOnlyOnce("client3@example.com").hasSize(6);
+        assertThat(checkpointed).containsExactlyInAnyOrderElementsOf(ids(6));
+    }
+
+    @Test
+    void leavesMessagesThatKeepFailingForTheNextRun() {
+        addAppointments(5);
+        smtp.failuresLeft.put("client2@example.com", 3);
+
+        assertThat(service.sendReminders(TOMORROW)).isEqualTo(4);
+        assertThat(checkpointed).doesNotContain(2L).hasSize(4);
+
+        // A restart picks up only what was not checkpointed.
+        assertThat(service.sendReminders(TOMORROW)).isEqualTo(1);
+        assertThat(smtp.delivered).containsOnlyOnce("client2@example.com").hasSize(5);
+        assertThat(checkpointed).containsExactlyInAnyOrderElementsOf(ids(5));
+    }
+
+    @Test
+    void retriesWholeBatchWhenTheConnectionFails() {
+        addAppointments(3);
+        smtp.connectionFailuresLeft = 1;
+
+        assertThat(service.sendReminders(TOMORROW)).isEqualTo(3);
+        assertThat(smtp.delivered).hasSize(3);
+    }
+
+    @Test
+    @Timeout(10)
+    void skipsWhatCannotBeRenderedOrCheckpointedAndKeepsGoing() {
+        addAppointments(10);
+        pending.get(2).getUser().setEmail("<broken");
+        checkpointFailuresLeft = 1;
+
+        var sent = service.sendReminders(TOMORROW);
+
+        assertThat(smtp.delivered).hasSize(9).doesNotContain("<broken");
+        assertThat(sent).isLessThan(9).isEqualTo(checkpointed.size());
+        assertThat(checkpointed).doesNotContain(3L);
+    }
+
+    private void addAppointments(int count) {
+        for (long id = 1; id <= count; id++) {
+            pending.add(
+                    AppointmentEntity.builder()
+                            .id(id)
+                            .date(TOMORROW)
+                            .startTime(LocalTime.of(10, 0))
+                            .duration(60)
+                            .description("Appointment " + id)
+                            .user(
+                                    UserEntity.builder()
+                                            .firstName("Client " + id)
+                                            .email("client" + id + "@example.com")
+                                            .build())
+                            .category(AppointmentCategoryEntity.builder().name("Makeup").build())
+                            .build());
+        }
+    }
+
+    private static List<Long> ids(int count) {
+        return LongStream.rangeClosed(1, count).boxed().toList();
+    }
+
+    /**
+     * Stands in for the SMTP server: every call to {@code doSend} is one connection, over which
+     * the messages are "delivered" unless a failure has been scripted for their recipient.
+     */
+    private static class StandInSmtpServer extends JavaMailSenderImpl {
+
+        final List<Integer> connections = Collections.synchronizedList(new ArrayList<>());
+        final List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        final Map<String, Integer> failuresLeft =
+                Collections.synchronizedMap(new LinkedHashMap<>());
+        volatile int connectionFailuresLeft;
+
+        @Override
+        protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages)
+                throws MailException {
+            if (connectionFailuresLeft > 0) {
+                connectionFailuresLeft--;
+                throw new MailSendException("Connection refused");
+            }
+
+            connections.add(mimeMessages.length);
+            var failed = new LinkedHashMap<Object, Exception>();
+            for (var message : mimeMessages) {
+                var recipient = recipientOf(message);
+                var failures = failuresLeft.getOrDefault(recipient, 0);
+                if (failures > 0) {
+                    failuresLeft.put(recipient, failures - 1);
+                    failed.put(message, new MessagingException("451 Try again later"));
+                } else {
+                    delivered.add(recipient);
+                }
+            }
+
+            if (!failed.isEmpty()) {
+                throw new MailSendException(failed);
+            }
+        }
+
+        private static String recipientOf(MimeMessage message) {
+            try {
+                return ((InternetAddress) message.getAllRecipients()[0]).getAddress();
+            } catch (MessagingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package es.jose.backend.services.pdf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import es.jose.backend.config.InvoicePdfCacheProperties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class InvoicePdfCacheTest {
+
+    private static final int PDF_SIZE = 1024;
+
+    @TempDir Path directory;
+
+    private InvoicePdfCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = newCache();
+    }
+
+    @Test
+    void servesThePdfOfTheVersionItWasRenderedFrom() throws IOException {
+        cache.put(1L, 100L, pdf('a'));
+
+        assertThat(cache.get(1L, 100L)).get().satisfies(resource -> assertContent(resource, 'a'));
+        assertThat(cache.get(1L, 101L)).isEmpty();
+        assertThat(cache.get(2L, 100L)).isEmpty();
+    }
+
+    @Test
+    void exposesTheFileOfACachedPdfToBeSentAsIs() throws IOException {
+        cache.put(1L, 100L, pdf('a'));
+
+        var pdf = InvoicePdf.of(cache.get(1L, 100L).orElseThrow());
+
+        assertThat(pdf.contentLength()).isEqualTo(PDF_SIZE);
+        assertThat(Files.readAllBytes(pdf.file())).isEqualTo(pdf('a'));
+        assertThat(new InvoicePdf(-1, out -> {}).file()).isNull();
+    }
+
+    @Test
+    void aNewVersionReplacesTheOldOneOnDisk() throws IOException {
+        cache.put(1L, 100L, pdf('a'));
+        cache.put(1L, 101L, pdf('b'));
+
+        assertThat(cache.get(1L, 100L)).isEmpty();
+        assertThat(cache.get(1L, 101L)).get().satisfies(resource -> assertContent(resource, 'b'));
+        assertThat(files()).containsExactly("1-101.pdf");
+    }
+
+    @Test
+    void anOlderVersionDoesNotReplaceANewerOne() throws IOException {
+        cache.put(1L, 101L, pdf('b'));
+
+        assertContent(cache.put(1L, 100L, pdf('a')), 'a');
+
+        assertThat(cache.get(1L, 101L)).isPresent();
+        assertThat(files()).containsExactly("1-101.pdf");
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedPdfsOnceFull() throws IOException {
+        cache.put(1L, 1L, pdf('a'));
+        cache.put(2L, 1L, pdf('b'));
+        cache.put(3L, 1L, pdf('c'));
+        cache.get(1L, 1L);
+
+        cache.put(4L, 1L, pdf('d'));
+
+        assertThat(cache.get(2L, 1L)).isEmpty();
+        assertThat(cache.get(1L, 1L)).isPresent();
+        assertThat(cache.get(4L, 1L)).isPresent();
+        assertThat(files()).containsExactlyInAnyOrder("1-1.pdf", "3-1.pdf", "4-1.pdf");
+    }
+
+    @Test
+    void evictingAnInvoiceRemovesItsFile() throws IOException {
+        cache.put(1L, 1L, pdf('a'));
+
+        cache.evict(1L);
+
+        assertThat(cache.get(1L, 1L)).isEmpty();
+        assertThat(files()).isEmpty();
+    }
+
+    @Test
+    void cachesAPdfWhileItIsStreamed() throws IOException {
+        var response = new ByteArrayOutputStream();
+
+        try (var pending = cache.open(1L, 1L, response)) {
+            pending.stream().write(pdf('a'));
+            pending.commit();
+        }
+
+        assertThat(response.toByteArray()).isEqualTo(pdf('a'));
+        assertThat(cache.get(1L, 1L)).get().satisfies(resource -> assertContent(resource, 'a'));
+        assertThat(files()).containsExactly("1-1.pdf");
+    }
+
+    @Test
+    void dropsAStreamedPdfThatWasNotCommitted() throws IOException {
+        var response = new ByteArrayOutputStream();
+
+        try (var pending = cache.open(1L, 1L, response)) {
+            pending.stream().write(pdf('a'), 0, PDF_SIZE / 2);
+        }
+
+        assertThat(response.size()).isEqualTo(PDF_SIZE / 2);
+        assertThat(cache.get(1L, 1L)).isEmpty();
+        assertThat(files()).isEmpty();
+    }
+
+    @Test
+    void aRestartKeepsTheCachedPdfs() throws IOException {
+        cache.put(1L, 1L, pdf('a'));
+        Files.write(directory.resolve("1-0.pdf"), pdf('z'));
+        Files.write(directory.resolve("2-5.tmp"), pdf('z'));
+
+        var restarted = newCache();
+
+        assertThat(restarted.get(1L, 1L)).get().satisfies(resource -> assertContent(resource, 'a'));
+        assertThat(files()).containsExactly("1-1.pdf");
+    }
+
+    private InvoicePdfCache newCache() {
+        var cache =
+                new InvoicePdfCache(
+                        new InvoicePdfCacheProperties(
+                                directory, DataSize.ofBytes(3L * PDF_SIZE)));
+        cache.init();
+        return cache;
+    }
+
+    private static byte[] pdf(char fill) {
+        return String.valueOf(fill).repeat(PDF_SIZE).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void assertContent(Resource resource, char fill) throws IOException {
+        assertThat(resource.contentLength()).isEqualTo(PDF_SIZE);
+        try (var in = resource.getInputStream()) {
+            assertThat(in.readAllBytes()).isEqualTo(pdf(fill));
+        }
+    }
+
+    private List<String> files() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).toList();
+        }
+    }
+}
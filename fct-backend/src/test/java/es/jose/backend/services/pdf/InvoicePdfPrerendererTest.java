@@ -0,0 +1,196 @@
+package es.jose.backend.services.pdf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import es.jose.backend.config.InvoicePdfCacheProperties;
+import es.jose.backend.config.InvoicePdfPrerenderProperties;
+import es.jose.backend.persistence.entities.InvoiceEntity;
+import es.jose.backend.persistence.repositories.InvoiceRepository;
+import es.jose.backend.utils.ThymeleafUtils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+class InvoicePdfPrerendererTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 5, 2, 10, 0);
+    private static final byte[] PDF = "%PDF-1.4".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir Path directory;
+
+    private final Map<Long, InvoiceEntity> invoices = new ConcurrentHashMap<>();
+    private final List<Long> rendered = new CopyOnWriteArrayList<>();
+    private final Semaphore rendersAllowed = new Semaphore(0);
+    private final Semaphore rendersStarted = new Semaphore(0);
+
+    private InvoicePdfCache cache;
+    private InvoicePdfPrerenderer prerenderer;
+
+    @AfterEach
+    void tearDown() {
+        rendersAllowed.release(100);
+        prerenderer.stop();
+    }
+
+    @Test
+    void coalescesRepeatedRequestsForAQueuedInvoice() throws Exception {
+        start(1, 10);
+        prerenderer.prerender(1L);
+        awaitRenderStarted();
+
+        for (var i = 0; i < 5; i++) {
+            assertThat(prerenderer.prerender(2L)).isTrue();
+        }
+        rendersAllowed.release(100);
+        prerenderer.awaitInFlight(2L);
+
+        assertThat(rendered).containsExactly(1L, 2L);
+        assertThat(cache.get(2L, version(2L))).isPresent();
+    }
+
+    @Test
+    void rendersAgainWhenTheInvoiceChangesWhileRendering() throws Exception {
+        start(1, 10);
+        prerenderer.prerender(1L);
+        awaitRenderStarted();
+
+        invoices.get(1L).setUpdatedAt(CREATED_AT.plusHours(1));
+        prerenderer.prerender(1L);
+        rendersAllowed.release(100);
+
+        awaitRenders(2);
+        prerenderer.awaitInFlight(1L);
+        assertThat(rendered).containsExactly(1L, 1L);
+        assertThat(cache.get(1L, version(1L))).isPresent();
+    }
+
+    @Test
+    void aDownloadWaitsForTheRenderInFlight() throws Exception {
+        start(1, 10);
+        prerenderer.prerender(1L);
+        awaitRenderStarted();
+
+        var downloaded = new CountDownLatch(1);
+        Thread.ofVirtual()
+                .start(
+                        () -> {
+                            prerenderer.awaitInFlight(1L);
+                            downloaded.countDown();
+                        });
+
+        assertThat(downloaded.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        rendersAllowed.release();
+        assertThat(downloaded.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(cache.get(1L, version(1L))).isPresent();
+    }
+
+    @Test
+    void leavesInvoicesToTheDownloadOnceTheQueueIsFull() throws Exception {
+        start(1, 1);
+        prerenderer.prerender(1L);
+        awaitRenderStarted();
+
+        assertThat(prerenderer.prerender(2L)).isTrue();
+        assertThat(prerenderer.prerender(3L)).isFalse();
+
+        // Nothing is in flight for the rejected invoice, so a download does not wait for it.
+        prerenderer.awaitInFlight(3L);
+        rendersAllowed.release(100);
+        prerenderer.awaitInFlight(2L);
+        assertThat(rendered).containsExactly(1L, 2L);
+    }
+
+    private void start(int workers, int queueCapacity) throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            invoices.put(id, InvoiceEntity.builder().id(id).createdAt(CREATED_AT).build());
+        }
+
+        var repository = mock(InvoiceRepository.class);
+        when(repository.findWithLineItemsById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(invoices.get(invocation.getArgument(0))));
+
+        var thymeleafUtils = mock(ThymeleafUtils.class);
+        when(thymeleafUtils.invoiceContext(any()))
+                .thenAnswer(
+                        invocation -> {
+                            var context = new Context();
+                            context.setVariable(
+                                    "invoiceNumber",
+                                    ((InvoiceEntity) invocation.getArgument(0)).getId());
+                            return context;
+                        });
+
+        var renderer = mock(InvoicePdfRenderer.class);
+        doAnswer(
+                        invocation -> {
+                            rendersStarted.release();
+                            rendersAllowed.acquire();
+                            IContext context = invocation.getArgument(0);
+                            rendered.add((Long) context.getVariable("invoiceNumber"));
+                            ((OutputStream) invocation.getArgument(1)).write(PDF);
+                            return null;
+                        })
+                .when(renderer)
+                .render(any(), any());
+
+        cache =
+                new InvoicePdfCache(
+                        new InvoicePdfCacheProperties(directory, DataSize.ofMegabytes(1)));
+        cache.init();
+
+        prerenderer =
+                new InvoicePdfPrerenderer(
+                        repository,
+                        thymeleafUtils,
+                        renderer,
+                        cache,
+                        new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                        new InvoicePdfPrerenderProperties(
+                                true,
+                                workers,
+                                queueCapacity,
+                                Duration.ofMillis(10),
+                                Duration.ofSeconds(10)));
+        prerenderer.start();
+    }
+
+    private void awaitRenderStarted() throws InterruptedException {
+        assertThat(rendersStarted.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void awaitRenders(int count) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (rendered.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private long version(Long id) {
+        return InvoicePdfCache.versionOf(invoices.get(id));
+    }
+}
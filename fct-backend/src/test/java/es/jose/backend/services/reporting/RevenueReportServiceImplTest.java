@@ -0,0 +1,75 @@
+package es.jose.backend.services.reporting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import es.jose.backend.exceptions.report.InvalidReportRangeException;
+import es.jose.backend.persistence.repositories.RevenueRollupRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openapitools.model.PeriodRevenue;
+import org.openapitools.model.RevenueGranularityEnum;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+class RevenueReportServiceImplTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 2, 28);
+
+    private RevenueReportServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        var repository = mock(RevenueRollupRepository.class);
+        // Friday 31 January, Saturday 1 February, Monday 3 February.
+        when(repository.sumByDay(any(), any()))
+                .thenReturn(
+                        List.of(
+                                day(LocalDate.of(2025, 1, 31), "10.10", 1),
+                                day(LocalDate.of(2025, 2, 1), "20.20", 2),
+                                day(LocalDate.of(2025, 2, 3), "30.30", 3)));
+        service = new RevenueReportServiceImpl(repository);
+    }
+
+    @Test
+    void foldsDaysIntoWeeksStartingOnMonday() {
+        assertThat(service.getRevenueByPeriod(FROM, TO, RevenueGranularityEnum.WEEK))
+                .containsExactly(
+                        period(LocalDate.of(2025, 1, 27), 30.30, 3),
+                        period(LocalDate.of(2025, 2, 3), 30.30, 3));
+    }
+
+    @Test
+    void foldsDaysIntoMonths() {
+        assertThat(service.getRevenueByPeriod(FROM, TO, RevenueGranularityEnum.MONTH))
+                .containsExactly(
+                        period(LocalDate.of(2025, 1, 1), 10.10, 1),
+                        period(LocalDate.of(2025, 2, 1), 50.50, 5));
+    }
+
+    @Test
+    void rejectsAPeriodThatEndsBeforeItStarts() {
+        assertThatThrownBy(() -> service.getRevenueByLineItemType(TO, FROM))
+                .isInstanceOf(InvalidReportRangeException.class);
+    }
+
+    private static DailyRevenue day(LocalDate date, String revenue, long lineItems) {
+        return new DailyRevenue(date, new BigDecimal(revenue), lineItems * 2, lineItems);
+    }
+
+    private static PeriodRevenue period(LocalDate start, double revenue, long lineItems) {
+        return PeriodRevenue.builder()
+                .periodStart(start)
+                .revenue(revenue)
+                .quantity(lineItems * 2)
+                .lineItems(lineItems)
+                .build();
+    }
+}
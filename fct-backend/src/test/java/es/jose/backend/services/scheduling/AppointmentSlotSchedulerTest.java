@@ -0,0 +1,197 @@
+package es.jose.backend.services.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import es.jose.backend.config.AppointmentScheduleProperties;
+import es.jose.backend.persistence.repositories.AppointmentRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class AppointmentSlotSchedulerTest {
+
+    private static final int THREADS = 64;
+    private static final LocalDate DAY = LocalDate.now().plusDays(1);
+
+    private AppointmentSlotScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        var repository = mock(AppointmentRepository.class);
+        when(repository.findBookedSlotsByDate(any(), any()))
+                .thenReturn(List.of(new TimeSlot(DAY, LocalTime.of(12, 0), 60)));
+
+        scheduler =
+                new AppointmentSlotScheduler(
+                        repository,
+                        new AppointmentScheduleProperties(
+                                LocalTime.of(9, 0), LocalTime.of(20, 0), 30));
+    }
+
+    @Test
+    void onlyOneConcurrentRequestBooksTheSameSlot() throws Exception {
+        var slot = new TimeSlot(DAY, LocalTime.of(10, 0), 60);
+
+        var results = race(THREADS, i -> scheduler.tryReserve(slot));
+
+        assertThat(results).containsOnlyOnce(true);
+    }
+
+    @Test
+    void concurrentOverlappingRequestsNeverDoubleBook() throws Exception {
+        var random = new Random(42);
+        var requested = new ArrayList<TimeSlot>();
+        for (int i = 0; i < THREADS * 8; i++) {
+            var start = LocalTime.of(9, 0).plusMinutes(15L * random.nextInt(40));
+            requested.add(new TimeSlot(DAY, start, 15 * (1 + random.nextInt(6))));
+        }
+
+        var booked = Collections.synchronizedList(new ArrayList<TimeSlot>());
+        race(
+                requested.size(),
+                i -> {
+                    var slot = requested.get(i);
+                    if (scheduler.tryReserve(slot)) {
+                        booked.add(slot);
+                    }
+                    return null;
+                });
+
+        booked.add(new TimeSlot(DAY, LocalTime.of(12, 0), 60));
+        booked.sort((a, b) -> a.startTime().compareTo(b.startTime()));
+        for (int i = 1; i < booked.size(); i++) {
+            assertThat(booked.get(i).startTime())
+                    .isAfterOrEqualTo(booked.get(i - 1).endTime());
+        }
+    }
+
+    @Test
+    void availableSlotsSkipBookedTimeAndClosingHours() {
+        scheduler.tryReserve(new TimeSlot(DAY, LocalTime.of(9, 30), 30));
+
+        var starts =
+                scheduler.getAvailableSlots(DAY, 60).stream().map(TimeSlot::startTime).toList();
+
+        assertThat(starts)
+                .startsWith(LocalTime.of(10, 0), LocalTime.of(10, 30), LocalTime.of(11, 0))
+                .doesNotContain(
+                        LocalTime.of(9, 0),
+                        LocalTime.of(9, 30),
+                        LocalTime.of(11, 30),
+                        LocalTime.of(12, 0),
+                        LocalTime.of(12, 30))
+                .contains(LocalTime.of(13, 0))
+                .endsWith(LocalTime.of(19, 0));
+    }
+
+    @Test
+    void rescheduleKeepsTheOriginalSlotWhenTheTargetIsTaken() {
+        var original = new TimeSlot(DAY, LocalTime.of(15, 0), 60);
+        var taken = new TimeSlot(DAY, LocalTime.of(17, 0), 60);
+        scheduler.tryReserve(original);
+        scheduler.tryReserve(taken);
+
+        assertThat(scheduler.reschedule(original, new TimeSlot(DAY, LocalTime.of(16, 30), 60)))
+                .isFalse();
+        assertThat(scheduler.tryReserve(original)).isFalse();
+        assertThat(scheduler.reschedule(original, new TimeSlot(DAY, LocalTime.of(15, 30), 60)))
+                .isTrue();
+        assertThat(scheduler.tryReserve(new TimeSlot(DAY, LocalTime.of(15, 0), 30))).isTrue();
+    }
+
+    @Test
+    void concurrentBookingsNeverTakeTheSlotOfAFailedMove() throws Exception {
+        var original = new TimeSlot(DAY, LocalTime.of(15, 0), 60);
+        scheduler.tryReserve(original);
+        scheduler.tryReserve(new TimeSlot(DAY, LocalTime.of(17, 0), 60));
+        var otherDay = DAY.plusDays(1);
+        scheduler.tryReserve(new TimeSlot(otherDay, LocalTime.of(10, 0), 60));
+
+        var results =
+                race(
+                        THREADS * 8,
+                        i ->
+                                switch (i % 3) {
+                                    case 0 ->
+                                            scheduler.reschedule(
+                                                    original,
+                                                    new TimeSlot(DAY, LocalTime.of(16, 30), 60));
+                                    case 1 ->
+                                            scheduler.reschedule(
+                                                    original,
+                                                    new TimeSlot(
+                                                            otherDay, LocalTime.of(10, 30), 60));
+                                    default -> scheduler.tryReserve(original);
+                                });
+
+        assertThat(results).containsOnly(false);
+    }
+
+    @Test
+    void overlappingLegacyBookingsBlockEveryMinuteTheyCover() {
+        var repository = mock(AppointmentRepository.class);
+        when(repository.findBookedSlotsByDate(any(), any()))
+                .thenReturn(
+                        List.of(
+                                new TimeSlot(DAY, LocalTime.of(9, 30), 30),
+                                new TimeSlot(DAY, LocalTime.of(9, 0), 120),
+                                new TimeSlot(DAY, LocalTime.of(10, 45), 30)));
+        var legacy =
+                new AppointmentSlotScheduler(
+                        repository,
+                        new AppointmentScheduleProperties(
+                                LocalTime.of(9, 0), LocalTime.of(20, 0), 15));
+
+        assertThat(legacy.tryReserve(new TimeSlot(DAY, LocalTime.of(10, 0), 30))).isFalse();
+        assertThat(legacy.tryReserve(new TimeSlot(DAY, LocalTime.of(11, 0), 15))).isFalse();
+        assertThat(legacy.getAvailableSlots(DAY, 30))
+                .extracting(TimeSlot::startTime)
+                .first()
+                .isEqualTo(LocalTime.of(11, 15));
+    }
+
+    private interface Task<T> {
+        T run(int index);
+    }
+
+    private static <T> List<T> race(int tasks, Task<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            var start = new CountDownLatch(1);
+            var futures = new ArrayList<Future<T>>();
+            for (int i = 0; i < tasks; i++) {
+                final int index = i;
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    start.await();
+                                    return task.run(index);
+                                }));
+            }
+            start.countDown();
+
+            var results = new ArrayList<T>();
+            for (var future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
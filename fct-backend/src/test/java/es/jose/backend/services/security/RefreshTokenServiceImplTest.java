@@ -0,0 +1,114 @@
+package es.jose.backend.services.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import es.jose.backend.config.RefreshTokenProperties;
+import es.jose.backend.exceptions.AuthenticationFailedException;
+import es.jose.backend.persistence.repositories.RefreshTokenRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+class RefreshTokenServiceImplTest {
+
+    private static final Long USER = 7L;
+
+    private final Set<String> usable = new HashSet<>();
+
+    private RefreshTokenRepository repository;
+    private RefreshTokenServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(RefreshTokenRepository.class);
+        when(repository.create(anyString(), anyString(), anyLong(), any()))
+                .thenAnswer(invocation -> usable.add(invocation.getArgument(0)) ? 1 : 0);
+        when(repository.use(anyString(), any()))
+                .thenAnswer(invocation -> usable.remove(invocation.getArgument(0)) ? 1 : 0);
+        service =
+                new RefreshTokenServiceImpl(
+                        repository,
+                        new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                        new RefreshTokenProperties(7, true, ""));
+    }
+
+    @Test
+    void exchangesEachTokenForTheNextOfItsFamily() {
+        var first = service.issue(USER, Instant.now().plus(Duration.ofDays(7)));
+
+        var second = service.rotate(jwt(first, Instant.now()));
+        var third = service.rotate(jwt(second, Instant.now()));
+
+        assertThat(second.familyId()).isEqualTo(first.familyId()).isEqualTo(first.tokenId());
+        assertThat(third.tokenId()).isNotIn(first.tokenId(), second.tokenId());
+        verify(repository, never()).revokeFamily(anyString(), any());
+    }
+
+    @Test
+    void revokesTheFamilyOfATokenUsedTwice() {
+        var first = service.issue(USER, Instant.now().plus(Duration.ofDays(7)));
+        var second = service.rotate(jwt(first, Instant.now()));
+
+        assertThatThrownBy(() -> service.rotate(jwt(first, Instant.now())))
+                .isInstanceOf(AuthenticationFailedException.class);
+        assertThatThrownBy(() -> service.rotate(jwt(second, Instant.now())))
+                .isInstanceOf(AuthenticationFailedException.class);
+
+        verify(repository, times(1)).revokeFamily(eq(first.familyId()), any());
+        verify(repository, times(1)).use(eq(first.tokenId()), any());
+    }
+
+    @Test
+    void rejectsTokensIssuedBeforeTheUserWasRevoked() {
+        var first = service.issue(USER, Instant.now().plus(Duration.ofDays(7)));
+
+        service.revokeAll(USER);
+
+        assertThatThrownBy(() -> service.rotate(jwt(first, Instant.now().minusSeconds(60))))
+                .isInstanceOf(AuthenticationFailedException.class);
+        verify(repository).revokeUser(eq(USER), any());
+        verify(repository, never()).use(anyString(), any());
+    }
+
+    @Test
+    void aLogoutRevokesTheFamilyOfTheToken() {
+        var first = service.issue(USER, Instant.now().plus(Duration.ofDays(7)));
+        var second = service.rotate(jwt(first, Instant.now()));
+
+        service.revoke(jwt(second, Instant.now()));
+
+        assertThatThrownBy(() -> service.rotate(jwt(second, Instant.now())))
+                .isInstanceOf(AuthenticationFailedException.class);
+        verify(repository).revokeFamily(eq(first.familyId()), any());
+        verify(repository, never()).use(eq(second.tokenId()), any());
+    }
+
+    private static Jwt jwt(RefreshTokenGrant grant, Instant issuedAt) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .jti(grant.tokenId())
+                .claim(RefreshTokenService.FAMILY_CLAIM, grant.familyId())
+                .claim(RefreshTokenService.USER_CLAIM, USER)
+                .issuedAt(issuedAt)
+                .expiresAt(Instant.now().plus(Duration.ofDays(7)))
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package es.jose.backend.services.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import es.jose.backend.config.PrincipalCacheProperties;
+import es.jose.backend.persistence.entities.UserEntity;
+import es.jose.backend.persistence.repositories.UserRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.Optional;
+
+class UserSecurityServiceImplTest {
+
+    private UserRepository repository;
+    private UserSecurityServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(UserRepository.class);
+        when(repository.findByUsernameOrEmail("ana"))
+                .thenReturn(Optional.of(UserEntity.builder().id(7L).username("ana").build()));
+        service =
+                new UserSecurityServiceImpl(
+                        repository, new PrincipalCacheProperties(Duration.ofMinutes(1), 100));
+
+        SecurityContextHolder.getContext()
+                .setAuthentication(
+                        new JwtAuthenticationToken(
+                                Jwt.withTokenValue("token")
+                                        .header("alg", "RS256")
+                                        .subject("ana")
+                                        .build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void checksOwnershipWithoutLoadingTheUserAgain() {
+        newRequest();
+        assertThat(service.isOwner(7L)).isTrue();
+        assertThat(service.isOwner(8L)).isFalse();
+
+        newRequest();
+        assertThat(service.isOwner(7L)).isTrue();
+
+        verify(repository, times(1)).findByUsernameOrEmail("ana");
+    }
+
+    @Test
+    void loadsTheUserAgainOnceItChanged() {
+        newRequest();
+        service.getAuthUser();
+
+        service.evictAfterCommit(7L);
+        service.getAuthUser();
+
+        verify(repository, times(2)).findByUsernameOrEmail("ana");
+    }
+
+    private static void newRequest() {
+        RequestContextHolder.setRequestAttributes(
+                new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+}
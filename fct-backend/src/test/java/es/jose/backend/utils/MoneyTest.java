@@ -0,0 +1,43 @@
+package es.jose.backend.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+class MoneyTest {
+
+    @Test
+    void readsDoublesAsTheyAreWrittenInDecimal() {
+        assertThat(Money.of(0.1).cents()).isEqualTo(10);
+        assertThat(Money.of(1.005).cents()).isEqualTo(101);
+        assertThat(Money.of(33.5).toDouble()).isEqualTo(33.5);
+        assertThat(Money.of(new BigDecimal("12.345")).toBigDecimal())
+                .isEqualByComparingTo("12.35");
+    }
+
+    @Test
+    void addsTaxToTheWholeLineBeforeRounding() {
+        // 3 x 33.50 x 1.21 = 121.605
+        assertThat(Money.of(33.5).times(3).plusTax(0.21)).isEqualTo(Money.ofCents(12161));
+        assertThat(Money.of(18.0).times(2).plusTax(0.21)).isEqualTo(Money.ofCents(4356));
+    }
+
+    @Test
+    void roundsFractionsHalfUpAwayFromZero() {
+        assertThat(Money.ofCents(1).times(1, 2)).isEqualTo(Money.ofCents(1));
+        assertThat(Money.ofCents(-1).times(1, 2)).isEqualTo(Money.ofCents(-1));
+        assertThat(Money.ofCents(10).times(1, 3)).isEqualTo(Money.ofCents(3));
+        assertThat(Money.ofCents(10000).times(45, 60)).isEqualTo(Money.ofCents(7500));
+    }
+
+    @Test
+    void failsInsteadOfOverflowing() {
+        assertThatThrownBy(() -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)))
+                .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofCents(Long.MAX_VALUE / 2).times(3))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}